@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves section names of an {@link FastScrollRecyclerView.AsyncSectionedAdapter} off the UI thread.
+ *
+ * <p>Lookups return right away with a cached name or the adapter's placeholder. Only the most recently requested
+ * position is loaded; requests the thumb has already moved past are dropped before they reach the adapter. A position
+ * whose name fails to load keeps its placeholder until the names are invalidated.</p>
+ */
+public class AsyncSectionNameLoader {
+
+  /**
+   * Callback for names that finished loading.
+   */
+  public interface Callback {
+
+    /**
+     * Called on the UI thread when the name of the latest requested position has been loaded.
+     */
+    void onSectionNameLoaded(int position, @NonNull String sectionName);
+  }
+
+  public static final int DEFAULT_CACHE_SIZE = 256;
+
+  private static final String TAG = "FastScrollRecyclerView";
+  private static final int NO_POSITION = -1;
+  // Approximate heap cost of one entry without the name: boxed key and the LinkedHashMap entry
+  private static final int ENTRY_BYTES = 56;
+
+  private static ExecutorService executor;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final AtomicInteger pendingPosition = new AtomicInteger(NO_POSITION);
+  private final AtomicBoolean loading = new AtomicBoolean();
+  private final FastScrollRecyclerView.AsyncSectionedAdapter adapter;
+  private final LruCache<Integer, String> cache;
+  private final Callback callback;
+
+  // Bumped when the data changes so that results computed for the old data are discarded
+  private volatile int generation;
+  private int requestedPosition = NO_POSITION;
+
+  private final Runnable loader = new Runnable() {
+
+    @Override public void run() {
+      boolean finished = false;
+      try {
+        loadPendingPositions();
+        finished = true;
+      } finally {
+        if (!finished) {
+          // Let the next request start a new load instead of waiting for this one forever
+          loading.set(false);
+        }
+      }
+    }
+  };
+
+  public AsyncSectionNameLoader(@NonNull FastScrollRecyclerView.AsyncSectionedAdapter adapter,
+                                @NonNull Callback callback) {
+    this(adapter, callback, DEFAULT_CACHE_SIZE);
+  }
+
+  public AsyncSectionNameLoader(@NonNull FastScrollRecyclerView.AsyncSectionedAdapter adapter,
+                                @NonNull Callback callback, int cacheSize) {
+    this.adapter = adapter;
+    this.callback = callback;
+    this.cache = new LruCache<>(cacheSize);
+  }
+
+  /**
+   * Returns the section name for the position if it is cached, or a placeholder while it is loaded in the background.
+   * Must be called on the UI thread.
+   */
+  @NonNull public String getSectionName(int position) {
+    requestedPosition = position;
+    String sectionName = cache.get(position);
+    if (sectionName != null) {
+      return sectionName;
+    }
+    pendingPosition.set(position);
+    if (loading.compareAndSet(false, true)) {
+      getExecutor().execute(loader);
+    }
+    return adapter.getPlaceholderSectionName(position);
+  }
+
+  /**
+   * Drops all cached names and any result that is still loading. Call when the adapter data changes.
+   */
+  public void invalidate() {
+    generation++;
+    pendingPosition.set(NO_POSITION);
+    requestedPosition = NO_POSITION;
+    cache.evictAll();
+  }
+
+  public int getCacheSize() {
+    return cache.size();
+  }
+
+  public int getHitCount() {
+    return cache.hitCount();
+  }
+
+  public int getMissCount() {
+    return cache.missCount();
+  }
+
+  /**
+   * Evicts the least recently used names until at most the given number are cached.
+   */
+  public void trimToSize(int maxSize) {
+    cache.trimToSize(Math.max(0, maxSize));
+  }
+
+  /**
+   * Returns the approximate memory used by the cached names, in bytes.
+   */
+  public long getRetainedBytes() {
+    long bytes = 0;
+    for (String name : cache.snapshot().values()) {
+      bytes += ENTRY_BYTES + Utilities.getStringBytes(name);
+    }
+    return bytes;
+  }
+
+  /**
+   * Loads the pending position until no request is left. Runs on the executor.
+   */
+  private void loadPendingPositions() {
+    while (true) {
+      final int position = pendingPosition.getAndSet(NO_POSITION);
+      if (position == NO_POSITION) {
+        loading.set(false);
+        // A request may have slipped in after the read above
+        if (pendingPosition.get() != NO_POSITION && loading.compareAndSet(false, true)) {
+          continue;
+        }
+        return;
+      }
+      final int requestGeneration = generation;
+      String name;
+      try {
+        name = adapter.loadSectionName(position);
+      } catch (RuntimeException e) {
+        Log.w(TAG, "Failed to load the section name at position " + position, e);
+        name = null;
+      }
+      final String sectionName = name;
+      handler.post(new Runnable() {
+
+        @Override public void run() {
+          onLoaded(requestGeneration, position, sectionName);
+        }
+      });
+    }
+  }
+
+  /**
+   * Called on the UI thread with the loaded name, or {@code null} if loading it failed.
+   */
+  /*package*/ void onLoaded(int requestGeneration, int position, String sectionName) {
+    if (requestGeneration != generation) {
+      return;
+    }
+    if (sectionName == null) {
+      // Cache the placeholder so the failed position is not loaded again for every move of the thumb
+      cache.put(position, adapter.getPlaceholderSectionName(position));
+      return;
+    }
+    cache.put(position, sectionName);
+    if (position == requestedPosition) {
+      callback.onSectionNameLoaded(position, sectionName);
+    }
+  }
+
+  private static synchronized Executor getExecutor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+        @Override public Thread newThread(@NonNull Runnable r) {
+          Thread thread = new Thread(r, "FastScrollSectionLoader");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.widget.SectionIndexer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Section and height index for a {@link FastScrollRecyclerView.SegmentedAdapter}, an adapter that concatenates
+ * several child adapters (headers, a pinned section, the main list...).
+ *
+ * <p>Every segment keeps its own {@link SectionIndex} and average row height. Segment start positions and heights
+ * are kept as prefix sums, so a lookup is a binary search over the segments followed by a lookup inside the segment:
+ * O(log segments + log n). Range updates of a child adapter patch its segment in place: a scanned section table goes
+ * through a {@link SectionIndexPatch}, and only the changed rows are measured again. Only a full data set change
+ * rebuilds the segment.</p>
+ *
+ * <p>The average row height of a segment counts every row once, however many frames it stays on screen. The rows
+ * that were measured are kept in a bit set per segment, one bit per row. Per-row heights are not kept, so rows that
+ * are changed or removed are taken out of the sum at the current average. Inserting or removing rows moves the bits
+ * of the measured rows after them, which costs O(measured rows after the update).</p>
+ */
+public class CompositeScrollIndex {
+
+  private final FastScrollRecyclerView.SegmentedAdapter adapter;
+
+  private Segment[] segments = new Segment[0];
+  private int[] startPositions = new int[1]; // startPositions[i] is the first position of segment i
+  private long[] startOffsets = new long[1]; // startOffsets[i] is the estimated height above segment i
+  private int offsetsFallbackHeight = -1;
+  private boolean positionsDirty = true;
+  private boolean offsetsDirty = true;
+  private SectionIndex mergedIndex;
+
+  public CompositeScrollIndex(@NonNull FastScrollRecyclerView.SegmentedAdapter adapter) {
+    this.adapter = adapter;
+    refresh();
+  }
+
+  /**
+   * Re-reads the list of segments. Call when child adapters are added or removed.
+   */
+  public void refresh() {
+    release();
+    int count = adapter.getSegmentCount();
+    segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment(adapter.getSegment(i));
+    }
+    startPositions = new int[count + 1];
+    startOffsets = new long[count + 1];
+    invalidatePositions();
+  }
+
+  /**
+   * Stops listening to the child adapters.
+   */
+  public void release() {
+    for (Segment segment : segments) {
+      segment.adapter.unregisterAdapterDataObserver(segment);
+    }
+  }
+
+  public int getSegmentCount() {
+    return segments.length;
+  }
+
+  public int getItemCount() {
+    updatePositions();
+    return startPositions[segments.length];
+  }
+
+  /**
+   * Returns the segment holding the position, or -1 if there are no items.
+   */
+  public int getSegmentForPosition(int position) {
+    updatePositions();
+    int itemCount = startPositions[segments.length];
+    if (itemCount == 0) {
+      return -1;
+    }
+    position = Math.max(0, Math.min(itemCount - 1, position));
+    // The last segment starting at or before the position. An empty segment shares its start with the segment
+    // after it, so it is never the last match.
+    int low = 0;
+    int high = segments.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (startPositions[mid] <= position) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  public int getSegmentStartPosition(int segment) {
+    updatePositions();
+    return startPositions[segment];
+  }
+
+  @NonNull public String getSectionNameForPosition(int position) {
+    int segment = getSegmentForPosition(position);
+    if (segment < 0) {
+      return "";
+    }
+    return segments[segment].getSectionIndex().getSectionNameForPosition(position - startPositions[segment]);
+  }
+
+  /**
+   * Returns the sections of all segments with their positions mapped to the concatenated adapter.
+   */
+  @NonNull public SectionIndex getSectionIndex() {
+    if (mergedIndex == null) {
+      updatePositions();
+      int count = 0;
+      for (Segment segment : segments) {
+        count += segment.getSectionIndex().getSectionCount();
+      }
+      String[] names = new String[count];
+      int[] positions = new int[count];
+      int merged = 0;
+      for (int i = 0; i < segments.length; i++) {
+        SectionIndex index = segments[i].getSectionIndex();
+        for (int section = 0; section < index.getSectionCount(); section++) {
+          String name = index.getSectionName(section);
+          // Fold a section continuing across segments
+          if (merged > 0 && names[merged - 1].equals(name)) {
+            continue;
+          }
+          names[merged] = name;
+          positions[merged] = startPositions[i] + index.getPositionForSection(section);
+          merged++;
+        }
+      }
+      mergedIndex = new SectionIndex(Arrays.copyOf(names, merged), Arrays.copyOf(positions, merged),
+          startPositions[segments.length]);
+    }
+    return mergedIndex;
+  }
+
+  /**
+   * Records the measured height of a laid out row, used to estimate the height of its segment. Only the first height
+   * recorded for a row counts until its segment changes.
+   */
+  public void recordRowHeight(int position, int height) {
+    int segment = getSegmentForPosition(position);
+    if (segment < 0 || height <= 0) {
+      return;
+    }
+    Segment s = segments[segment];
+    int row = position - startPositions[segment];
+    if (s.measured.get(row)) {
+      return;
+    }
+    s.measured.set(row);
+    long oldHeight = s.heightCount == 0 ? -1 : s.heightSum / s.heightCount;
+    s.heightSum += height;
+    s.heightCount++;
+    if (s.heightSum / s.heightCount != oldHeight) {
+      offsetsDirty = true;
+    }
+  }
+
+  /**
+   * Returns the average row height of the segment, or {@code fallbackHeight} if none of its rows were measured.
+   */
+  public int getRowHeight(int segment, int fallbackHeight) {
+    Segment s = segments[segment];
+    return s.heightCount == 0 ? fallbackHeight : (int) (s.heightSum / s.heightCount);
+  }
+
+  /**
+   * Returns the estimated height of all rows above the position.
+   */
+  public long getOffsetForPosition(int position, int fallbackHeight) {
+    int segment = getSegmentForPosition(position);
+    if (segment < 0) {
+      return 0;
+    }
+    updateOffsets(fallbackHeight);
+    return startOffsets[segment] + (long) (position - startPositions[segment]) * getRowHeight(segment, fallbackHeight);
+  }
+
+  /**
+   * Returns the estimated height of all rows.
+   */
+  public long getTotalHeight(int fallbackHeight) {
+    updateOffsets(fallbackHeight);
+    return startOffsets[segments.length];
+  }
+
+  /**
+   * Returns the position of the row at the estimated offset.
+   */
+  public int getPositionForOffset(long offset, int fallbackHeight) {
+    updateOffsets(fallbackHeight);
+    int count = segments.length;
+    if (count == 0 || startPositions[count] == 0) {
+      return 0;
+    }
+    // The last non-empty segment starting at or before the offset
+    int low = 0;
+    int high = count - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (startOffsets[mid] <= offset && startPositions[mid] < startPositions[count]) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    int segment = low;
+    while (segment < count - 1 && startPositions[segment] == startPositions[segment + 1]) {
+      segment++;
+    }
+    int rowHeight = Math.max(1, getRowHeight(segment, fallbackHeight));
+    int position = startPositions[segment] + (int) ((offset - startOffsets[segment]) / rowHeight);
+    return Math.max(0, Math.min(startPositions[count] - 1, position));
+  }
+
+  private void invalidatePositions() {
+    positionsDirty = true;
+    offsetsDirty = true;
+    mergedIndex = null;
+  }
+
+  private void updatePositions() {
+    if (positionsDirty) {
+      for (int i = 0; i < segments.length; i++) {
+        startPositions[i + 1] = startPositions[i] + segments[i].adapter.getItemCount();
+      }
+      positionsDirty = false;
+    }
+  }
+
+  private void updateOffsets(int fallbackHeight) {
+    updatePositions();
+    if (offsetsDirty || offsetsFallbackHeight != fallbackHeight) {
+      for (int i = 0; i < segments.length; i++) {
+        int rows = startPositions[i + 1] - startPositions[i];
+        startOffsets[i + 1] = startOffsets[i] + (long) rows * getRowHeight(i, fallbackHeight);
+      }
+      offsetsFallbackHeight = fallbackHeight;
+      offsetsDirty = false;
+    }
+  }
+
+  private final class Segment extends RecyclerView.AdapterDataObserver {
+
+    final RecyclerView.Adapter adapter;
+    final BitSet measured = new BitSet(); // the rows counted in the height
+    SectionIndex sectionIndex;
+    SectionIndexPatch sectionIndexPatch; // pending updates of a scanned section table
+    long heightSum;
+    int heightCount;
+
+    Segment(RecyclerView.Adapter adapter) {
+      this.adapter = adapter;
+      adapter.registerAdapterDataObserver(this);
+    }
+
+    SectionIndex getSectionIndex() {
+      if (sectionIndex == null) {
+        if (sectionIndexPatch != null) {
+          sectionIndex = sectionIndexPatch.resolve((FastScrollRecyclerView.SectionedAdapter) adapter);
+          sectionIndexPatch = null;
+        } else if (adapter instanceof FastScrollRecyclerView.SectionIndexProvider) {
+          sectionIndex = ((FastScrollRecyclerView.SectionIndexProvider) adapter).getSectionIndex();
+        } else if (adapter instanceof SectionIndexer) {
+          sectionIndex = SectionIndex.fromSectionIndexer((SectionIndexer) adapter, adapter.getItemCount());
+        } else if (adapter instanceof FastScrollRecyclerView.SectionedAdapter) {
+          sectionIndex = SectionIndex.build((FastScrollRecyclerView.SectionedAdapter) adapter, adapter.getItemCount());
+        } else {
+          sectionIndex = SectionIndex.EMPTY;
+        }
+      }
+      return sectionIndex;
+    }
+
+    // Updates only touch this segment; the prefix sums are O(segments)
+
+    @Override public void onChanged() {
+      sectionIndex = null;
+      sectionIndexPatch = null;
+      // The rows moved, they are measured again as they are laid out
+      measured.clear();
+      heightSum = 0;
+      heightCount = 0;
+      invalidatePositions();
+    }
+
+    @Override public void onItemRangeChanged(int positionStart, int itemCount) {
+      replace(positionStart, itemCount, itemCount);
+    }
+
+    @Override public void onItemRangeInserted(int positionStart, int itemCount) {
+      replace(positionStart, 0, itemCount);
+    }
+
+    @Override public void onItemRangeRemoved(int positionStart, int itemCount) {
+      replace(positionStart, itemCount, 0);
+    }
+
+    @Override public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      if (itemCount != 1) {
+        onChanged();
+        return;
+      }
+      SectionIndexPatch patch = getSectionIndexPatch();
+      if (patch != null) {
+        patch.move(fromPosition, toPosition);
+      }
+      sectionIndex = null;
+      boolean wasMeasured = measured.get(fromPosition);
+      measured.clear(fromPosition);
+      shiftRows(fromPosition + 1, -1);
+      shiftRows(toPosition, 1);
+      if (wasMeasured) {
+        measured.set(toPosition);
+      }
+      mergedIndex = null;
+    }
+
+    /**
+     * Replaces {@code removeCount} rows at the position with {@code insertCount} rows that were not measured yet.
+     */
+    private void replace(int position, int removeCount, int insertCount) {
+      if (removeCount <= 0 && insertCount <= 0) {
+        return;
+      }
+      SectionIndexPatch patch = getSectionIndexPatch();
+      if (patch != null) {
+        patch.replace(position, removeCount, insertCount);
+      }
+      sectionIndex = null;
+      forgetRows(position, position + removeCount);
+      shiftRows(position + removeCount, insertCount - removeCount);
+      if (removeCount != insertCount) {
+        invalidatePositions();
+      } else {
+        mergedIndex = null;
+        offsetsDirty = true;
+      }
+    }
+
+    /**
+     * Returns the patch of a section table scanned from the rows, or {@code null} if the table is built again.
+     */
+    private SectionIndexPatch getSectionIndexPatch() {
+      if (sectionIndexPatch == null && sectionIndex != null
+          && adapter instanceof FastScrollRecyclerView.SectionedAdapter
+          && !(adapter instanceof FastScrollRecyclerView.SectionIndexProvider)
+          && !(adapter instanceof SectionIndexer)) {
+        sectionIndexPatch = new SectionIndexPatch(sectionIndex);
+      }
+      return sectionIndexPatch;
+    }
+
+    /**
+     * Takes the measured rows in {@code [start, end)} out of the height at the current average, so they are
+     * measured again as they are laid out.
+     */
+    private void forgetRows(int start, int end) {
+      int forgotten = 0;
+      for (int row = measured.nextSetBit(start); row >= 0 && row < end; row = measured.nextSetBit(row + 1)) {
+        forgotten++;
+      }
+      if (forgotten == 0) {
+        return;
+      }
+      measured.clear(start, end);
+      long average = heightSum / heightCount;
+      heightCount -= forgotten;
+      heightSum = heightCount == 0 ? 0 : heightSum - average * forgotten;
+      offsetsDirty = true;
+    }
+
+    /**
+     * Moves the bits of the measured rows at or after {@code from} by {@code delta} rows.
+     */
+    private void shiftRows(int from, int delta) {
+      int length = measured.length();
+      if (delta == 0 || from >= length) {
+        return;
+      }
+      BitSet tail = measured.get(from, length);
+      measured.clear(Math.min(from, from + delta), length);
+      for (int row = tail.nextSetBit(0); row >= 0; row = tail.nextSetBit(row + 1)) {
+        measured.set(from + delta + row);
+      }
+    }
+  }
+
+}
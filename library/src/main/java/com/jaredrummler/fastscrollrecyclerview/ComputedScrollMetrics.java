@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Fallback {@link ScrollMetricsProvider} for layout managers without a dedicated provider. It scales the layout
+ * manager's own {@code computeVerticalScroll*()} values to pixels and jumps by adapter position.
+ */
+class ComputedScrollMetrics implements ScrollMetricsProvider {
+
+  private final FastScrollRecyclerView recyclerView;
+
+  ComputedScrollMetrics(FastScrollRecyclerView rv) {
+    this.recyclerView = rv;
+  }
+
+  @Override public int getScrollOffset() {
+    int extent = recyclerView.computeVerticalScrollExtent();
+    if (extent <= 0 || recyclerView.getChildCount() == 0) {
+      return -1;
+    }
+    return (int) ((long) recyclerView.computeVerticalScrollOffset() * recyclerView.getHeight() / extent);
+  }
+
+  @Override public int getScrollRange() {
+    int extent = recyclerView.computeVerticalScrollExtent();
+    if (extent <= 0) {
+      return 0;
+    }
+    return (int) Math.min(Integer.MAX_VALUE,
+        (long) recyclerView.computeVerticalScrollRange() * recyclerView.getHeight() / extent);
+  }
+
+  @Override public int getPositionAtOffset(int offset) {
+    RecyclerView.Adapter adapter = recyclerView.getAdapter();
+    int itemCount = adapter == null ? 0 : adapter.getItemCount();
+    int range = getScrollRange();
+    if (itemCount == 0 || range <= 0) {
+      return 0;
+    }
+    return Math.max(0, Math.min(itemCount - 1, (int) ((long) itemCount * offset / range)));
+  }
+
+  @Override public void scrollToOffset(int offset) {
+    recyclerView.scrollToPosition(getPositionAtOffset(offset));
+  }
+
+}
@@ -18,18 +18,18 @@
 
 package com.jaredrummler.fastscrollrecyclerview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.AnimatorSet;
 import android.animation.ArgbEvaluator;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
-import android.content.res.Resources;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Point;
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.support.annotation.ColorInt;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
@@ -39,17 +39,59 @@ public class FastScrollBar {
 
   private final static int MAX_TRACK_ALPHA = 30;
   private final static int SCROLL_BAR_VIS_DURATION = 150;
+  private final static int THUMB_REATTACH_DURATION = 150;
 
   private final Rect invalidateRect = new Rect();
   private final Rect tmpRect = new Rect();
 
   /*package*/ final Point thumbOffset = new Point(-1, -1);
+  // Where the scroll position of the list puts the thumb, differs from thumbOffset while the thumb is detached
+  private final Point attachedOffset = new Point(-1, -1);
   private final Path thumbPath = new Path();
+  private boolean thumbPathReleased; // rebuilt on the next draw
 
   /*package*/ FastScrollRecyclerView recyclerView;
-  private FastScrollPopup fastScrollPopup;
+  private FastScrollStyle style;
+  private FastScrollPopup fastScrollPopup; // created on the first drag
 
   private AnimatorSet scrollbarAnimator;
+  private ValueAnimator reattachAnimator;
+  private int detachedY;
+
+  // The latest thumb position the list has not jumped to yet, or -1
+  private float pendingProgress = -1;
+  private boolean jumpPosted;
+  private int popupTouchY;
+  private final Runnable deferredJump = new Runnable() {
+
+    @Override public void run() {
+      jumpPosted = false;
+      if (isDragging && pendingProgress >= 0) {
+        jumpToPendingProgress();
+        recyclerView.invalidate(fastScrollPopup.updateFastScrollerBounds(recyclerView, popupTouchY));
+      }
+    }
+  };
+
+  // Whether the current drag only previews the target and jumps on release or after the dwell time
+  private boolean previewScrub;
+  private final ScrubDwellTimer dwellTimer = new ScrubDwellTimer();
+  private final Runnable dwellJump = new Runnable() {
+
+    @Override public void run() {
+      if (!isDragging || pendingProgress < 0) {
+        dwellTimer.cancel();
+        return;
+      }
+      // Reposted instead of removed on every move, the thumb has to rest for the whole dwell time
+      long wait = dwellTimer.onCheck(SystemClock.uptimeMillis(), recyclerView.getScrubDwellTime());
+      if (wait > 0) {
+        recyclerView.postDelayed(this, wait);
+      } else {
+        jumpToPendingProgress();
+      }
+    }
+  };
 
   private int thumbInactiveColor;
   private int thumbActiveColor;
@@ -73,46 +115,126 @@ public class FastScrollBar {
   private boolean canThumbDetach;
   private boolean ignoreDragGesture;
   private boolean showThumbCurvature;
+  private int quality = RenderQualityController.QUALITY_FULL;
 
   // This is the offset from the top of the scrollbar when the user first starts touching.
   // To prevent jumping, this offset is applied as the user scrolls.
   private int touchOffset;
 
   public FastScrollBar(FastScrollRecyclerView rv, AttributeSet attrs) {
-    TypedArray ta = rv.getContext().obtainStyledAttributes(attrs, R.styleable.FastScrollRecyclerView);
-    Resources res = rv.getResources();
-    showThumbCurvature = ta.getBoolean(R.styleable.FastScrollRecyclerView_fastScrollThumbCurvatureEnabled, false);
-    thumbInactiveColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollThumbInactiveColor,
-        res.getColor(R.color.fastscroll_thumb_inactive_color));
-    thumbActiveColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollThumbActiveColor,
-        res.getColor(R.color.fastscroll_thumb_active_color));
-    int trackColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollTrackColor, Color.BLACK);
-    ta.recycle();
+    this(rv, FastScrollStyle.obtain(rv.getContext(), attrs, 0));
+  }
+
+  public FastScrollBar(FastScrollRecyclerView rv, FastScrollStyle style) {
     recyclerView = rv;
-    fastScrollPopup = new FastScrollPopup(rv, attrs);
     trackPaint = new Paint();
-    trackPaint.setColor(trackColor);
-    trackPaint.setAlpha(MAX_TRACK_ALPHA);
     thumbPaint = new Paint();
     thumbPaint.setAntiAlias(true);
-    thumbPaint.setColor(thumbInactiveColor);
     thumbPaint.setStyle(Paint.Style.FILL);
-    thumbWidth = thumbMinWidth = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_min_width);
-    thumbMaxWidth = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_max_width);
-    thumbHeight = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_height);
-    thumbCurvature = showThumbCurvature ? thumbMaxWidth - thumbMinWidth : 0;
-    touchInset = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_touch_inset);
+    thumbWidth = style.thumbMinWidth;
+    setStyle(style);
     if (rv.isFastScrollAlwaysEnabled()) {
       animateScrollbar(true);
     }
   }
 
+  /*package*/ void setStyle(FastScrollStyle style) {
+    this.style = style;
+    showThumbCurvature = style.thumbCurvatureEnabled;
+    thumbInactiveColor = style.thumbInactiveColor;
+    thumbActiveColor = style.thumbActiveColor;
+    trackPaint.setColor(style.trackColor);
+    trackPaint.setAlpha(MAX_TRACK_ALPHA);
+    thumbPaint.setColor(isDragging ? thumbActiveColor : thumbInactiveColor);
+    thumbMinWidth = style.thumbMinWidth;
+    thumbMaxWidth = style.thumbMaxWidth;
+    thumbWidth = Math.max(thumbMinWidth, Math.min(thumbWidth, thumbMaxWidth));
+    thumbHeight = style.thumbHeight;
+    touchInset = style.thumbTouchInset;
+    if (fastScrollPopup != null) {
+      fastScrollPopup.setStyle(style);
+    }
+    updateThumbPath();
+  }
+
+  /**
+   * Sets the rendering quality, one of the levels of {@link RenderQualityController}. Below full quality the thumb
+   * is a flat rect and its color is not animated; at the lowest level the popup is simplified as well.
+   */
+  /*package*/ void setQuality(int quality) {
+    if (this.quality == quality) {
+      return;
+    }
+    this.quality = quality;
+    if (fastScrollPopup != null) {
+      fastScrollPopup.setQuality(quality);
+    }
+    invalidateRect.set(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth,
+        thumbOffset.y + thumbHeight);
+    updateThumbPath();
+    recyclerView.invalidate(invalidateRect);
+  }
+
   public void setDetachThumbOnFastScroll() {
-    canThumbDetach = true;
+    setDetachThumbOnFastScroll(true);
+  }
+
+  /**
+   * Sets whether the thumb follows the finger instead of the list while it is dragged. Takes effect with the next
+   * drag.
+   */
+  public void setDetachThumbOnFastScroll(boolean detach) {
+    canThumbDetach = detach;
   }
 
+  /**
+   * Slides a detached thumb back to the scroll position of the list.
+   */
   public void reattachThumbToScroll() {
+    if (!isThumbDetached) {
+      return;
+    }
     isThumbDetached = false;
+    detachedY = thumbOffset.y;
+    reattachAnimator = ValueAnimator.ofFloat(0f, 1f);
+    reattachAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+
+      @Override public void onAnimationUpdate(ValueAnimator animator) {
+        moveReattachingThumb(animator.getAnimatedFraction());
+      }
+    });
+    reattachAnimator.addListener(new AnimatorListenerAdapter() {
+
+      @Override public void onAnimationEnd(Animator animation) {
+        if (reattachAnimator == animation) {
+          reattachAnimator = null;
+          moveReattachingThumb(1f);
+        }
+      }
+    });
+    reattachAnimator.setDuration(THUMB_REATTACH_DURATION);
+    reattachAnimator.start();
+  }
+
+  private void moveReattachingThumb(float fraction) {
+    if (attachedOffset.y >= 0) {
+      setThumbOffset(attachedOffset.x, Math.round(detachedY + (attachedOffset.y - detachedY) * fraction));
+    }
+  }
+
+  /**
+   * Called with the thumb position that matches the scroll position of the list. A detached thumb only takes the
+   * horizontal position, a reattaching thumb moves towards it.
+   */
+  /*package*/ void setAttachedThumbOffset(int x, int y) {
+    attachedOffset.set(x, y);
+    if (isThumbDetached) {
+      setThumbOffset(x, thumbOffset.y);
+    } else if (reattachAnimator != null) {
+      moveReattachingThumb(reattachAnimator.getAnimatedFraction());
+    } else {
+      setThumbOffset(x, y);
+    }
   }
 
   public void setThumbOffset(int x, int y) {
@@ -125,6 +247,9 @@ public class FastScrollBar {
     updateThumbPath();
     invalidateRect
         .union(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
+    if (recyclerView.debugHud != null) {
+      recyclerView.debugHud.recordDirtyRect(invalidateRect);
+    }
     recyclerView.invalidate(invalidateRect);
   }
 
@@ -140,6 +265,9 @@ public class FastScrollBar {
     updateThumbPath();
     invalidateRect
         .union(thumbOffset.x - thumbCurvature, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
+    if (recyclerView.debugHud != null) {
+      recyclerView.debugHud.recordDirtyRect(invalidateRect);
+    }
     recyclerView.invalidate(invalidateRect);
   }
 
@@ -153,6 +281,9 @@ public class FastScrollBar {
     trackWidth = width;
     updateThumbPath();
     invalidateRect.union(thumbOffset.x - thumbCurvature, 0, thumbOffset.x + thumbWidth, recyclerView.getHeight());
+    if (recyclerView.debugHud != null) {
+      recyclerView.debugHud.recordDirtyRect(invalidateRect);
+    }
     recyclerView.invalidate(invalidateRect);
   }
 
@@ -198,14 +329,29 @@ public class FastScrollBar {
   }
 
   public void setPopupBackgroundColor(@ColorInt int color) {
-    fastScrollPopup.setBackgroundColor(color);
+    style = style.buildUpon().setPopupBackgroundColor(color).build();
+    if (fastScrollPopup != null) {
+      fastScrollPopup.setBackgroundColor(color);
+    }
   }
 
   public void setPopupTextColor(@ColorInt int color) {
-    fastScrollPopup.setTextColor(color);
+    style = style.buildUpon().setPopupTextColor(color).build();
+    if (fastScrollPopup != null) {
+      fastScrollPopup.setTextColor(color);
+    }
   }
 
+  /**
+   * Returns the popup, creating it on first use. The popup is released while the UI is hidden, see
+   * {@link FastScrollRecyclerView#trimCaches(int)}, so colors should be set with the setters of the bar, which keep
+   * them for the next popup.
+   */
   public FastScrollPopup getFastScrollPopup() {
+    if (fastScrollPopup == null) {
+      fastScrollPopup = new FastScrollPopup(recyclerView, style);
+      fastScrollPopup.setQuality(quality);
+    }
     return fastScrollPopup;
   }
 
@@ -232,11 +378,19 @@ public class FastScrollBar {
             Math.abs(y - downY) > config.getScaledTouchSlop()) {
           recyclerView.getParent().requestDisallowInterceptTouchEvent(true);
           isDragging = true;
-          if (canThumbDetach) {
+          if (reattachAnimator != null) {
+            // Cleared first, so the end callback does not snap the thumb back to the list
+            ValueAnimator animator = reattachAnimator;
+            reattachAnimator = null;
+            animator.cancel();
+          }
+          previewScrub = recyclerView.getScrubMode() == FastScrollRecyclerView.SCRUB_MODE_PREVIEW;
+          if (canThumbDetach || previewScrub) {
+            // A preview scrub leaves the list where it is, so the thumb has to follow the finger
             isThumbDetached = true;
           }
           touchOffset += (lastY - downY);
-          fastScrollPopup.animateVisibility(true);
+          getFastScrollPopup().animateVisibility(true);
           animateScrollbar(true);
         }
         if (isDragging) {
@@ -244,9 +398,16 @@ public class FastScrollBar {
           int top = recyclerView.getBackgroundPadding().top;
           int bottom = recyclerView.getHeight() - recyclerView.getBackgroundPadding().bottom - thumbHeight;
           float boundedY = (float) Math.max(top, Math.min(bottom, y - touchOffset));
-          String sectionName = recyclerView.scrollToPositionAtProgress((boundedY - top) / (bottom - top));
-          fastScrollPopup.setSectionName(sectionName);
-          fastScrollPopup.animateVisibility(!sectionName.isEmpty());
+          if (isThumbDetached) {
+            // The thumb follows the finger on every frame, the list follows as its jump cost allows
+            setThumbOffset(thumbOffset.x, (int) boundedY);
+          }
+          if (previewScrub) {
+            previewProgress((boundedY - top) / (bottom - top));
+          } else {
+            scrubToProgress((boundedY - top) / (bottom - top));
+          }
+          popupTouchY = lastY;
           recyclerView.invalidate(fastScrollPopup.updateFastScrollerBounds(recyclerView, lastY));
           lastTouchY = boundedY;
         }
@@ -257,15 +418,143 @@ public class FastScrollBar {
         lastTouchY = 0;
         ignoreDragGesture = false;
         if (isDragging) {
+          if (pendingProgress >= 0) {
+            // Land exactly where the thumb was released
+            jumpToPendingProgress();
+          }
           isDragging = false;
+          if (dwellTimer.cancel()) {
+            recyclerView.removeCallbacks(dwellJump);
+          }
+          fastScrollPopup.hideRowPreview();
           fastScrollPopup.animateVisibility(false);
+          reattachThumbToScroll();
           recyclerView.hideScrollBar();
         }
         break;
     }
   }
 
+  private void scrubToProgress(float progress) {
+    pendingProgress = progress;
+    if (!isThumbDetached) {
+      jumpToPendingProgress();
+      return;
+    }
+    JumpRateController jumpRate = recyclerView.getJumpRateController();
+    long delay = jumpRate.getDelayNanos(System.nanoTime());
+    if (delay == 0) {
+      jumpToPendingProgress();
+    } else if (!jumpPosted) {
+      jumpRate.onJumpDeferred();
+      jumpPosted = true;
+      recyclerView.postDelayed(deferredJump, (delay + 999999) / 1000000);
+    }
+  }
+
+  /**
+   * Moves the drag so that the finger points at the progress, after rows were inserted or removed while the thumb is
+   * dragged. The next move continues from there instead of jumping to whatever row the old thumb position points at
+   * now.
+   */
+  /*package*/ void anchorDragAt(float progress) {
+    if (!isDragging) {
+      return;
+    }
+    int top = recyclerView.getBackgroundPadding().top;
+    int bottom = recyclerView.getHeight() - recyclerView.getBackgroundPadding().bottom - thumbHeight;
+    int thumbY = Math.round(top + progress * (bottom - top));
+    touchOffset = popupTouchY - thumbY;
+    lastTouchY = thumbY;
+    if (pendingProgress >= 0) {
+      pendingProgress = progress;
+    }
+    if (isThumbDetached) {
+      setThumbOffset(thumbOffset.x, thumbY);
+    }
+  }
+
+  /**
+   * Updates the popup for the thumb position without moving the list. The list jumps on release, or once the thumb
+   * rested for the dwell time.
+   */
+  private void previewProgress(float progress) {
+    pendingProgress = progress;
+    String sectionName = recyclerView.previewPositionAtProgress(progress);
+    FastScrollPopup popup = getFastScrollPopup();
+    popup.setSectionName(sectionName, recyclerView.getScrubSubsectionName());
+    popup.animateVisibility(!sectionName.isEmpty());
+    if (recyclerView.isScrubRowPreviewEnabled()) {
+      popup.showRowPreview(recyclerView.getScrubPosition());
+    }
+    long delay = dwellTimer.onMove(SystemClock.uptimeMillis(), recyclerView.getScrubDwellTime());
+    if (delay != ScrubDwellTimer.NONE) {
+      recyclerView.postDelayed(dwellJump, delay);
+    }
+  }
+
+  /**
+   * Frees what the bar can create again, for example while the UI is hidden: the popup, the animators and the thumb
+   * path. The state of the bar, such as its colors and the thumb position, is kept.
+   */
+  /*package*/ void releaseMemory() {
+    if (isDragging) {
+      return;
+    }
+    if (scrollbarAnimator != null) {
+      // Ended rather than cancelled, so the widths and colors land on their final values
+      scrollbarAnimator.end();
+      scrollbarAnimator = null;
+    }
+    if (reattachAnimator != null) {
+      reattachAnimator.end();
+    }
+    if (fastScrollPopup != null) {
+      fastScrollPopup.releaseRowPreview();
+      fastScrollPopup = null;
+    }
+    thumbPath.reset();
+    thumbPathReleased = true;
+  }
+
+  /**
+   * Drops the view holder of the row preview, see {@link FastScrollRecyclerView#setScrubRowPreviewEnabled(boolean)}.
+   */
+  /*package*/ void releaseRowPreview() {
+    if (fastScrollPopup != null) {
+      fastScrollPopup.releaseRowPreview();
+    }
+  }
+
+  private void jumpToPendingProgress() {
+    float progress = pendingProgress;
+    pendingProgress = -1;
+    if (jumpPosted) {
+      recyclerView.removeCallbacks(deferredJump);
+      jumpPosted = false;
+    }
+    long start = System.nanoTime();
+    String sectionName = recyclerView.scrollToPositionAtProgress(progress);
+    long time = System.nanoTime() - start;
+    JumpRateController jumpRate = recyclerView.getJumpRateController();
+    if (recyclerView.isLayoutRequested()) {
+      jumpRate.onJump(start, time);
+    } else {
+      // The list did not move, a paged jump may be waiting for its page
+      jumpRate.onJumpSkipped();
+    }
+    if (recyclerView.debugHud != null) {
+      recyclerView.debugHud.recordJump(time);
+    }
+    FastScrollPopup popup = getFastScrollPopup();
+    popup.setSectionName(sectionName, recyclerView.getScrubSubsectionName());
+    popup.animateVisibility(!sectionName.isEmpty());
+  }
+
   protected void draw(Canvas canvas) {
+    if (recyclerView.debugHud != null) {
+      recyclerView.debugHud.draw(canvas);
+    }
     if (thumbOffset.x < 0 || thumbOffset.y < 0) {
       return;
     }
@@ -274,10 +563,20 @@ public class FastScrollBar {
     if (trackPaint.getAlpha() > 0) {
       canvas.drawRect(thumbOffset.x, 0, thumbOffset.x + thumbWidth, recyclerView.getHeight(), trackPaint);
     }
-    canvas.drawPath(thumbPath, thumbPaint);
+    if (thumbPathReleased) {
+      updateThumbPath();
+    }
+    if (thumbCurvature == 0) {
+      canvas.drawRect(thumbOffset.x, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight,
+          thumbPaint);
+    } else {
+      canvas.drawPath(thumbPath, thumbPaint);
+    }
 
     // Draw the popup
-    fastScrollPopup.draw(canvas);
+    if (fastScrollPopup != null) {
+      fastScrollPopup.draw(canvas);
+    }
   }
 
   /**
@@ -294,7 +593,10 @@ public class FastScrollBar {
     ObjectAnimator thumbWidthAnim = ObjectAnimator.ofInt(this, "thumbWidth",
         isScrolling ? thumbMaxWidth : thumbMinWidth);
     scrollbarAnimator.playTogether(trackWidthAnim, thumbWidthAnim);
-    if (thumbActiveColor != thumbInactiveColor) {
+    if (thumbActiveColor != thumbInactiveColor && quality != RenderQualityController.QUALITY_FULL) {
+      thumbPaint.setColor(isScrolling ? thumbActiveColor : thumbInactiveColor);
+      recyclerView.invalidate(thumbOffset.x, thumbOffset.y, thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);
+    } else if (thumbActiveColor != thumbInactiveColor) {
       ValueAnimator colorAnimation = ValueAnimator
           .ofObject(new ArgbEvaluator(), thumbPaint.getColor(), isScrolling ? thumbActiveColor : thumbInactiveColor);
       colorAnimation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
@@ -316,7 +618,9 @@ public class FastScrollBar {
    * Updates the path for the thumb drawable.
    */
   private void updateThumbPath() {
-    thumbCurvature = showThumbCurvature ? thumbMaxWidth - thumbWidth : 0;
+    thumbPathReleased = false;
+    thumbCurvature = showThumbCurvature && quality == RenderQualityController.QUALITY_FULL
+        ? thumbMaxWidth - thumbWidth : 0;
     thumbPath.reset();
     thumbPath.moveTo(thumbOffset.x + thumbWidth, thumbOffset.y);                   // tr
     thumbPath.lineTo(thumbOffset.x + thumbWidth, thumbOffset.y + thumbHeight);     // br
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+
+import java.util.Locale;
+
+/**
+ * An overlay with the cost of the fast scroller, drawn by {@link FastScrollBar#draw(Canvas)} when enabled with
+ * {@link FastScrollRecyclerView#setDebugHudEnabled(boolean)}. It outlines the rects the scroll bar and popup
+ * invalidate, and lists the time of the thumb math and of jumps, the layouts per second while the thumb is dragged and
+ * the hit rates of the caches.
+ *
+ * <p>Every call into the HUD is guarded by a null check of the HUD, so while it is disabled it costs one field read
+ * per call site. It is switched at runtime rather than by a build type of the library, because apps link the release
+ * variant of the library.</p>
+ */
+/*package*/ final class FastScrollDebugHud {
+
+  private static final int MAX_DIRTY_RECTS = 16;
+  private static final long DIRTY_RECT_FADE_MS = 500;
+  private static final long WINDOW_MS = 1000;
+
+  private final FastScrollRecyclerView recyclerView;
+  private final Paint rectPaint = new Paint();
+  private final Paint textPaint = new Paint();
+  private final Paint backgroundPaint = new Paint();
+  private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+
+  // Ring buffer of recent dirty rects, preallocated so recording never allocates
+  private final Rect[] dirtyRects = new Rect[MAX_DIRTY_RECTS];
+  private final long[] dirtyTimes = new long[MAX_DIRTY_RECTS];
+  private int nextDirtyRect;
+
+  private long windowStart;
+  private long thumbNanos;
+  private long maxThumbNanos;
+  private long jumpNanos;
+  private long maxJumpNanos;
+  private int layouts;
+  private long shownMaxThumbNanos;
+  private long shownMaxJumpNanos;
+  private int layoutsPerSecond;
+
+  /*package*/ FastScrollDebugHud(FastScrollRecyclerView rv) {
+    recyclerView = rv;
+    float density = rv.getResources().getDisplayMetrics().density;
+    rectPaint.setStyle(Paint.Style.STROKE);
+    rectPaint.setStrokeWidth(density);
+    textPaint.setAntiAlias(true);
+    textPaint.setColor(Color.WHITE);
+    textPaint.setTextSize(11 * density);
+    backgroundPaint.setColor(0x99000000);
+    for (int i = 0; i < MAX_DIRTY_RECTS; i++) {
+      dirtyRects[i] = new Rect();
+    }
+  }
+
+  /*package*/ void recordDirtyRect(Rect rect) {
+    if (rect.isEmpty()) {
+      return;
+    }
+    dirtyRects[nextDirtyRect].set(rect);
+    dirtyTimes[nextDirtyRect] = SystemClock.uptimeMillis();
+    nextDirtyRect = (nextDirtyRect + 1) % MAX_DIRTY_RECTS;
+  }
+
+  /*package*/ void recordThumbUpdate(long nanos) {
+    rollWindow();
+    thumbNanos = nanos;
+    maxThumbNanos = Math.max(maxThumbNanos, nanos);
+  }
+
+  /*package*/ void recordJump(long nanos) {
+    rollWindow();
+    jumpNanos = nanos;
+    maxJumpNanos = Math.max(maxJumpNanos, nanos);
+  }
+
+  /*package*/ void recordLayout(boolean dragging) {
+    rollWindow();
+    if (dragging) {
+      layouts++;
+    }
+  }
+
+  /*package*/ void draw(Canvas canvas) {
+    rollWindow();
+    long now = SystemClock.uptimeMillis();
+    for (int i = 0; i < MAX_DIRTY_RECTS; i++) {
+      long age = now - dirtyTimes[i];
+      if (dirtyTimes[i] != 0 && age < DIRTY_RECT_FADE_MS) {
+        rectPaint.setColor(Color.RED);
+        rectPaint.setAlpha((int) (255 * (DIRTY_RECT_FADE_MS - age) / DIRTY_RECT_FADE_MS));
+        canvas.drawRect(dirtyRects[i], rectPaint);
+      }
+    }
+
+    String[] lines = {
+        String.format(Locale.US, "thumb %.2f ms (max %.2f)", thumbNanos / 1e6, shownMaxThumbNanos / 1e6),
+        String.format(Locale.US, "jump %.2f ms (max %.2f)", jumpNanos / 1e6, shownMaxJumpNanos / 1e6),
+        "drag layouts/s " + layoutsPerSecond,
+        "row heights " + getHitRate(recyclerView.metricsCache),
+        "section names " + getHitRate(recyclerView.sectionNameLoader),
+        "sticky headers " + getHitRate(recyclerView.getStickyHeaderDecoration()),
+    };
+    textPaint.getFontMetrics(fontMetrics);
+    float lineHeight = fontMetrics.descent - fontMetrics.ascent;
+    float width = 0;
+    for (String line : lines) {
+      width = Math.max(width, textPaint.measureText(line));
+    }
+    float padding = lineHeight / 2;
+    Rect backgroundPadding = recyclerView.getBackgroundPadding();
+    float left = backgroundPadding.left + padding;
+    float top = backgroundPadding.top + padding;
+    canvas.drawRect(left, top, left + width + 2 * padding, top + lines.length * lineHeight + 2 * padding,
+        backgroundPaint);
+    for (int i = 0; i < lines.length; i++) {
+      canvas.drawText(lines[i], left + padding, top + padding + i * lineHeight - fontMetrics.ascent, textPaint);
+    }
+    // Keep the numbers and the fading rects moving
+    ViewCompat.postInvalidateOnAnimation(recyclerView);
+  }
+
+  /**
+   * Publishes the maximums and the layout count of the last second and starts a new one.
+   */
+  private void rollWindow() {
+    long now = SystemClock.uptimeMillis();
+    if (now - windowStart < WINDOW_MS) {
+      return;
+    }
+    shownMaxThumbNanos = maxThumbNanos;
+    shownMaxJumpNanos = maxJumpNanos;
+    layoutsPerSecond = windowStart == 0 ? 0 : (int) (layouts * WINDOW_MS / (now - windowStart));
+    maxThumbNanos = 0;
+    maxJumpNanos = 0;
+    layouts = 0;
+    windowStart = now;
+  }
+
+  private static String getHitRate(ScrollMetricsCache cache) {
+    return cache == null ? "-" : getHitRate(cache.getHitCount(), cache.getMissCount());
+  }
+
+  private static String getHitRate(AsyncSectionNameLoader loader) {
+    return loader == null ? "-" : getHitRate(loader.getHitCount(), loader.getMissCount());
+  }
+
+  private static String getHitRate(StickySectionHeaderDecoration headers) {
+    return headers == null ? "-" : getHitRate(headers.getHitCount(), headers.getMissCount());
+  }
+
+  private static String getHitRate(int hits, int misses) {
+    int total = hits + misses;
+    return total == 0 ? "-" : String.format(Locale.US, "%d%% of %d", hits * 100 / total, total);
+  }
+
+}
@@ -21,7 +21,6 @@ package com.jaredrummler.fastscrollrecyclerview;
 import android.animation.Animator;
 import android.animation.ObjectAnimator;
 import android.content.res.Resources;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -32,7 +31,8 @@ import android.support.annotation.ColorInt;
 import android.util.AttributeSet;
 
 /**
- * The fast scroller popup that shows the section name the list will jump to.
+ * The fast scroller popup that shows the section name the list will jump to, and optionally the subsection name on a
+ * second line.
  */
 public class FastScrollPopup {
 
@@ -42,48 +42,94 @@ public class FastScrollPopup {
   private final Rect invalidateRect = new Rect();
   private final Rect tmpRect = new Rect();
   private final Rect textBounds = new Rect();
+  private final Rect subsectionTextBounds = new Rect();
 
   private FastScrollRecyclerView recyclerView;
   private Animator alphaAnimator;
   private Resources resources;
   private Drawable background;
   private Paint textPaint;
+  private Paint subsectionTextPaint;
   private String sectionName;
+  private String subsectionName;
   private int originalBackgroundSize;
   private float alpha;
   private boolean visible;
+  private int quality = RenderQualityController.QUALITY_FULL;
+  private final Paint bubblePaint = new Paint(); // the plain bubble drawn at the lowest quality
+  private ScrubRowPreview rowPreview; // created on the first preview scrub
 
   public FastScrollPopup(FastScrollRecyclerView rv, AttributeSet attrs) {
-    TypedArray ta = rv.getContext().obtainStyledAttributes(attrs, R.styleable.FastScrollRecyclerView);
+    this(rv, FastScrollStyle.obtain(rv.getContext(), attrs, 0));
+  }
+
+  public FastScrollPopup(FastScrollRecyclerView rv, FastScrollStyle style) {
     recyclerView = rv;
     resources = rv.getResources();
-    int bgColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollPopupBackgroundColor, Color.TRANSPARENT);
-    int textColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollPopupTextColor, Color.WHITE);
-    float textSize = ta.getDimension(R.styleable.FastScrollRecyclerView_fastScrollTextSize, resources.getDimensionPixelSize(R.dimen.fastscroll_popup_text_size));
-    originalBackgroundSize = (int) textSize + (int) ta.getDimension(R.styleable.FastScrollRecyclerView_fastScrollPopupPadding, resources.getDimensionPixelSize(R.dimen.fastscroll_popup_default_padding));
-    background = resources.getDrawable(R.drawable.fastscroll_popup_bg);
-    if (bgColor != Color.TRANSPARENT) {
+    textPaint = new Paint();
+    textPaint.setAntiAlias(true);
+    subsectionTextPaint = new Paint(textPaint);
+    setStyle(style);
+  }
+
+  /*package*/ void setStyle(FastScrollStyle style) {
+    background = style.newPopupBackground(resources);
+    if (style.popupBackgroundColor != Color.TRANSPARENT) {
       background = background.mutate();
-      background.setColorFilter(bgColor, PorterDuff.Mode.SRC_IN);
+      background.setColorFilter(style.popupBackgroundColor, PorterDuff.Mode.SRC_IN);
     }
+    bubblePaint.setColor(style.popupBackgroundColor != Color.TRANSPARENT
+        ? style.popupBackgroundColor : style.thumbActiveColor);
+    originalBackgroundSize = (int) style.popupTextSize + style.popupPadding;
     background.setBounds(0, 0, originalBackgroundSize, originalBackgroundSize);
-    textPaint = new Paint();
-    textPaint.setColor(textColor);
-    textPaint.setAntiAlias(true);
-    textPaint.setTextSize(textSize);
-    ta.recycle();
+    textPaint.setColor(style.popupTextColor);
+    textPaint.setTextSize(style.popupTextSize);
+    subsectionTextPaint.setColor(style.popupTextColor);
+    subsectionTextPaint.setTextSize(style.popupSubsectionTextSize);
+    // Re-measure the names with the new paints
+    if (sectionName != null) {
+      measureText(textPaint, sectionName, textBounds);
+    }
+    if (subsectionName != null) {
+      measureText(subsectionTextPaint, subsectionName, subsectionTextBounds);
+    }
   }
 
   /**
    * Sets the section name.
    */
   protected void setSectionName(String sectionName) {
+    setSectionName(sectionName, null);
+  }
+
+  /**
+   * Sets the section name and the subsection name shown below it. The text is only measured when it changes.
+   *
+   * @param subsectionName
+   *     the subsection name, or {@code null} or empty for a single line
+   */
+  protected void setSectionName(String sectionName, String subsectionName) {
     if (!sectionName.equals(this.sectionName)) {
       this.sectionName = sectionName;
-      textPaint.getTextBounds(sectionName, 0, sectionName.length(), textBounds);
-      // Update the width to use measureText since that is more accurate
-      textBounds.right = (int) (textBounds.left + textPaint.measureText(sectionName));
+      measureText(textPaint, sectionName, textBounds);
+    }
+    if (subsectionName != null && subsectionName.isEmpty()) {
+      subsectionName = null;
     }
+    if (subsectionName == null ? this.subsectionName != null : !subsectionName.equals(this.subsectionName)) {
+      this.subsectionName = subsectionName;
+      if (subsectionName != null) {
+        measureText(subsectionTextPaint, subsectionName, subsectionTextBounds);
+      } else {
+        subsectionTextBounds.setEmpty();
+      }
+    }
+  }
+
+  private static void measureText(Paint paint, String text, Rect bounds) {
+    paint.getTextBounds(text, 0, text.length(), bounds);
+    // Update the width to use measureText since that is more accurate
+    bounds.right = (int) (bounds.left + paint.measureText(text));
   }
 
   /**
@@ -93,18 +139,23 @@ public class FastScrollPopup {
    */
   protected Rect updateFastScrollerBounds(FastScrollRecyclerView rv, int lastTouchY) {
     invalidateRect.set(backgroundBounds);
+    if (rowPreview != null) {
+      invalidateRect.union(rowPreview.getBounds());
+    }
 
     if (isVisible()) {
       // Calculate the dimensions and position of the fast scroller popup
       int edgePadding = rv.getMaxScrollbarWidth();
       int bgPadding = (originalBackgroundSize - textBounds.height()) / 2;
-      int bgHeight = originalBackgroundSize;
-      int bgWidth = Math.max(originalBackgroundSize, textBounds.width() + (2 * bgPadding));
+      int bgHeight = originalBackgroundSize + getSubsectionHeight();
+      int textWidth = Math.max(textBounds.width(), subsectionTextBounds.width());
+      int bgWidth = Math.max(originalBackgroundSize, textWidth + (2 * bgPadding));
+      int scrollerWidth = (2 * rv.getMaxScrollbarWidth()) + rv.getSectionRailWidth();
       if (Utilities.isRtl(resources)) {
-        backgroundBounds.left = rv.getBackgroundPadding().left + (2 * rv.getMaxScrollbarWidth());
+        backgroundBounds.left = rv.getBackgroundPadding().left + scrollerWidth;
         backgroundBounds.right = backgroundBounds.left + bgWidth;
       } else {
-        backgroundBounds.right = rv.getWidth() - rv.getBackgroundPadding().right - (2 * rv.getMaxScrollbarWidth());
+        backgroundBounds.right = rv.getWidth() - rv.getBackgroundPadding().right - scrollerWidth;
         backgroundBounds.left = backgroundBounds.right - bgWidth;
       }
       backgroundBounds.top = lastTouchY - (int) (FAST_SCROLL_OVERLAY_Y_OFFSET_FACTOR * bgHeight);
@@ -117,9 +168,53 @@ public class FastScrollPopup {
 
     // Combine the old and new fast scroller bounds to create the full invalidate rect
     invalidateRect.union(backgroundBounds);
+    if (rowPreview != null) {
+      rowPreview.updateBounds(rv, backgroundBounds, Utilities.isRtl(resources));
+      invalidateRect.union(rowPreview.getBounds());
+    }
+    if (rv.debugHud != null) {
+      rv.debugHud.recordDirtyRect(invalidateRect);
+    }
     return invalidateRect;
   }
 
+  /**
+   * Shows the row at the adapter position beside the popup, see {@link ScrubRowPreview}. It is placed by the next
+   * {@link #updateFastScrollerBounds(FastScrollRecyclerView, int)}.
+   */
+  /*package*/ void showRowPreview(int position) {
+    if (rowPreview == null) {
+      rowPreview = new ScrubRowPreview(recyclerView);
+    }
+    rowPreview.bind(recyclerView, position);
+  }
+
+  /*package*/ void hideRowPreview() {
+    if (rowPreview != null) {
+      recyclerView.invalidate(rowPreview.getBounds());
+      rowPreview.unbind();
+    }
+  }
+
+  /**
+   * Drops the view holder of the row preview, for example when the adapter changed or memory is low.
+   */
+  /*package*/ void releaseRowPreview() {
+    if (rowPreview != null) {
+      hideRowPreview();
+      rowPreview.release();
+      rowPreview = null;
+    }
+  }
+
+  /**
+   * At {@link RenderQualityController#QUALITY_MINIMAL} the popup is a plain rect and is shown without fading.
+   */
+  /*package*/ void setQuality(int quality) {
+    this.quality = quality;
+    recyclerView.invalidate(backgroundBounds);
+  }
+
   /**
    * Animates the visibility of the fast scroller popup.
    */
@@ -129,6 +224,11 @@ public class FastScrollPopup {
       if (alphaAnimator != null) {
         alphaAnimator.cancel();
       }
+      if (quality == RenderQualityController.QUALITY_MINIMAL) {
+        alphaAnimator = null;
+        setAlpha(visible ? 1f : 0f);
+        return;
+      }
       alphaAnimator = ObjectAnimator.ofFloat(this, "alpha", visible ? 1f : 0f);
       alphaAnimator.setDuration(visible ? 200 : 150);
       alphaAnimator.start();
@@ -146,12 +246,22 @@ public class FastScrollPopup {
   }
 
   public void setBackgroundColor(@ColorInt int color) {
+    bubblePaint.setColor(color);
     background = background.mutate();
     background.setColorFilter(color, PorterDuff.Mode.SRC_IN);
   }
 
   public void setTextColor(@ColorInt int color) {
     textPaint.setColor(color);
+    subsectionTextPaint.setColor(color);
+  }
+
+  /**
+   * Returns the height the subsection line adds below the section name, including the gap between the lines.
+   */
+  private int getSubsectionHeight() {
+    int height = subsectionTextBounds.height();
+    return height == 0 ? 0 : height + height / 2;
   }
 
   public int getHeight() {
@@ -159,20 +269,49 @@ public class FastScrollPopup {
   }
 
   protected void draw(Canvas c) {
+    boolean trace = FastScrollTrace.isEnabled();
+    if (trace) {
+      FastScrollTrace.beginSection(FastScrollTrace.DRAW_POPUP);
+    }
+    try {
+      drawPopup(c);
+    } finally {
+      if (trace) {
+        FastScrollTrace.endSection();
+      }
+    }
+  }
+
+  private void drawPopup(Canvas c) {
     if (isVisible()) {
       // Draw the fast scroller popup
       int restoreCount = c.save(Canvas.MATRIX_SAVE_FLAG);
       c.translate(backgroundBounds.left, backgroundBounds.top);
       tmpRect.set(backgroundBounds);
       tmpRect.offsetTo(0, 0);
-      background.setBounds(tmpRect);
-      background.setAlpha((int) (alpha * 255));
-      background.draw(c);
+      if (quality == RenderQualityController.QUALITY_MINIMAL) {
+        bubblePaint.setAlpha((int) (alpha * 255));
+        c.drawRect(tmpRect, bubblePaint);
+      } else {
+        background.setBounds(tmpRect);
+        background.setAlpha((int) (alpha * 255));
+        background.draw(c);
+      }
       textPaint.setAlpha((int) (alpha * 255));
-      c.drawText(sectionName, (backgroundBounds.width() - textBounds.width()) / 2,
-          backgroundBounds.height() - (backgroundBounds.height() - textBounds.height()) / 2,
-          textPaint);
+      int textHeight = textBounds.height() + getSubsectionHeight();
+      int baseline = backgroundBounds.height() - (backgroundBounds.height() - textHeight) / 2 - getSubsectionHeight();
+      c.drawText(sectionName, (backgroundBounds.width() - textBounds.width()) / 2, baseline, textPaint);
+      if (subsectionName != null) {
+        subsectionTextPaint.setAlpha((int) (alpha * 255));
+        c.drawText(subsectionName, (backgroundBounds.width() - subsectionTextBounds.width()) / 2,
+            baseline + getSubsectionHeight(), subsectionTextPaint);
+      }
       c.restoreToCount(restoreCount);
+      if (rowPreview != null && alpha >= 1f) {
+        // Rows draw themselves opaque, so the preview appears once the popup has faded in
+        bubblePaint.setAlpha(255);
+        rowPreview.draw(c, bubblePaint);
+      }
     }
   }
 
@@ -19,18 +19,33 @@
 
 package com.jaredrummler.fastscrollrecyclerview;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import android.support.v4.os.ParcelableCompat;
+import android.support.v4.os.ParcelableCompatCreatorCallbacks;
+import android.support.v4.view.AbsSavedState;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.WindowManager;
+import android.widget.SectionIndexer;
 
 /**
  * A base {@link RecyclerView}, which does the following:
@@ -43,11 +58,65 @@ import android.view.View;
 public class FastScrollRecyclerView extends RecyclerView implements RecyclerView.OnItemTouchListener {
 
   private static final int SCROLL_DELTA_THRESHOLD_DP = 4;
-  private static final int DEFAULT_HIDE_DELAY = 1000;
+  // Upper bound for the section table kept in the saved state, the whole activity state must stay below the binder
+  // transaction limit.
+  private static final int MAX_SAVED_SECTION_BYTES = 32 * 1024;
+  // Larger adapters are scanned for their section table while the UI thread is idle, not while drawing
+  private static final int MAX_SYNC_SCAN_ITEMS = 4096;
+
+  /** Thumb space follows the content: a section holding half of the items takes half of the track. */
+  public static final int SECTION_SPACING_PROPORTIONAL = 0;
+  /**
+   * Every section takes the same share of the track, see {@link SectionScrubMapping}. For a
+   * {@link NestedSectionedAdapter} these are the top-level sections.
+   */
+  public static final int SECTION_SPACING_EQUAL = 1;
+
+  /** The list jumps while the thumb is dragged. */
+  public static final int SCRUB_MODE_LIVE = 0;
+  /**
+   * Dragging the thumb only updates the popup, the list jumps once when the thumb is released or has rested for the
+   * {@link #setScrubDwellTime(long) dwell time}.
+   */
+  public static final int SCRUB_MODE_PREVIEW = 1;
+  public static final long DEFAULT_SCRUB_DWELL_MILLIS = 300;
 
-  private final ScrollPositionState scrollPositionState = new ScrollPositionState();
   private final Rect backgroundPadding = new Rect();
-  /*package*/ FastScrollBar fastScrollBar;
+  private FastScrollStyle style;
+  /*package*/ FastScrollBar fastScrollBar; // created once the list can scroll and the bar is needed
+  /*package*/ FastScrollSectionRail sectionRail;
+  private StickySectionHeaderDecoration stickyHeaders;
+  private SectionIndex sectionIndex;
+  private HierarchicalSectionIndex hierarchicalIndex;
+  private SectionScrubMapping scrubMapping;
+  private SectionIndexPatch sectionIndexPatch;
+  private SectionIndexScan sectionIndexScan;
+  private CompositeScrollIndex compositeIndex;
+  // Assigned from setLayoutManager(), which may run inside the super constructor; no initializers
+  private ScrollMetricsProvider scrollMetricsProvider;
+  private ScrollMetricsProvider customScrollMetricsProvider;
+  /*package*/ AsyncSectionNameLoader sectionNameLoader;
+  /*package*/ ScrollMetricsCache metricsCache;
+  /*package*/ FastScrollDebugHud debugHud;
+  private RowPreMeasurer rowPreMeasurer;
+  private ViewTypeHeightModel viewTypeModel;
+  private IdleTaskScheduler idleScheduler;
+  private PagedJumpController pagedJumps;
+  private boolean pagedPollPosted;
+  private final JumpRateController jumpRate = new JumpRateController();
+  private boolean thumbDetachEnabled;
+  private int scrubMode = SCRUB_MODE_LIVE;
+  private long scrubDwellMillis = DEFAULT_SCRUB_DWELL_MILLIS;
+  private boolean scrubRowPreviewEnabled;
+  private RenderQualityController renderQuality;
+  private boolean adaptiveQualityEnabled = true;
+  private SavedState restoredState;
+  /*package*/ int restoredRowHeight = -1;
+  private float restoredThumbProgress = -1;
+  private int sectionSpacing;
+  private int fixedItemHeight;
+  private boolean fixedItemHeightCheckEnabled;
+  private int scrubPosition = NO_POSITION;
   /*package*/ boolean fastScrollAlwaysEnabled;
   private float deltaThreshold;
   private int hideDelay;
@@ -56,15 +125,150 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
   private int downY;
   private int lastY;
 
+  private final AdapterDataObserver dataObserver = new AdapterDataObserver() {
+
+    @Override public void onChanged() {
+      onAdapterDataChanged();
+      onPageDataChanged();
+    }
+
+    @Override public void onItemRangeChanged(int positionStart, int itemCount) {
+      indexUpdater.onChanged(positionStart, itemCount, null);
+      onPageDataChanged();
+    }
+
+    @Override public void onItemRangeInserted(int positionStart, int itemCount) {
+      indexUpdater.onInserted(positionStart, itemCount);
+      anchorDragTarget(positionStart, itemCount);
+      onPageDataChanged();
+    }
+
+    @Override public void onItemRangeRemoved(int positionStart, int itemCount) {
+      indexUpdater.onRemoved(positionStart, itemCount);
+      anchorDragTarget(positionStart, -itemCount);
+      onPageDataChanged();
+    }
+
+    @Override public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      if (itemCount == 1) {
+        indexUpdater.onMoved(fromPosition, toPosition);
+      } else {
+        onAdapterDataChanged();
+      }
+      onPageDataChanged();
+    }
+  };
+
+  /**
+   * Applies list updates to the position-indexed caches instead of dropping them.
+   */
+  private final ListUpdateCallback indexUpdater = new ListUpdateCallback() {
+
+    @Override public void onInserted(int position, int count) {
+      if (rowPreMeasurer != null) {
+        rowPreMeasurer.insert(position, count);
+      }
+      if (viewTypeModel != null) {
+        viewTypeModel.insert(position, count);
+      }
+      patchSectionIndex(position, 0, count);
+    }
+
+    @Override public void onRemoved(int position, int count) {
+      if (rowPreMeasurer != null) {
+        rowPreMeasurer.remove(position, count);
+      }
+      if (viewTypeModel != null) {
+        viewTypeModel.remove(position, count);
+      }
+      patchSectionIndex(position, count, 0);
+    }
+
+    @Override public void onMoved(int fromPosition, int toPosition) {
+      if (rowPreMeasurer != null) {
+        rowPreMeasurer.move(fromPosition, toPosition);
+      }
+      if (viewTypeModel != null) {
+        viewTypeModel.move(fromPosition, toPosition);
+      }
+      SectionIndexPatch patch = getSectionIndexPatch();
+      if (patch == null) {
+        onSectionDataChanged();
+        return;
+      }
+      patch.move(fromPosition, toPosition);
+      onSectionIndexPatched();
+    }
+
+    @Override public void onChanged(int position, int count, Object payload) {
+      if (rowPreMeasurer != null) {
+        rowPreMeasurer.change(position, count);
+      }
+      if (viewTypeModel != null) {
+        viewTypeModel.change(position, count);
+      }
+      // Page sections come from the page metadata, loading the rows of a page does not move them
+      if (!(getAdapter() instanceof PagedAdapter)) {
+        patchSectionIndex(position, count, count);
+      }
+    }
+  };
+
+  private final Runnable pagedPoll = new Runnable() {
+
+    @Override public void run() {
+      pagedPollPosted = false;
+      schedulePagedPoll();
+    }
+  };
+
+  private final SectionIndexScan.Callback scanCallback = new SectionIndexScan.Callback() {
+
+    @Override public void onSectionIndexScanned(SectionIndexScan scan, SectionIndex index) {
+      if (scan != sectionIndexScan) {
+        return;
+      }
+      sectionIndexScan = null;
+      if (sectionIndex == null) {
+        sectionIndex = index;
+        invalidate();
+      }
+    }
+  };
+
+  private final RenderQualityController.OnQualityChangedListener qualityListener =
+      new RenderQualityController.OnQualityChangedListener() {
+
+        @Override public void onQualityChanged(int quality) {
+          if (fastScrollBar != null && adaptiveQualityEnabled) {
+            fastScrollBar.setQuality(quality);
+          }
+        }
+      };
+
   final Runnable hide = new Runnable() {
 
     @Override public void run() {
-      if (!fastScrollBar.isDraggingThumb()) {
+      if (fastScrollBar != null && !fastScrollBar.isDraggingThumb()) {
         fastScrollBar.animateScrollbar(false);
       }
     }
   };
 
+  private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+
+    @Override public void onTrimMemory(int level) {
+      trimCaches(level);
+    }
+
+    @Override public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override public void onLowMemory() {
+      trimCaches(TRIM_MEMORY_COMPLETE);
+    }
+  };
+
   public FastScrollRecyclerView(Context context) {
     this(context, null);
   }
@@ -75,21 +279,50 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
 
   public FastScrollRecyclerView(Context context, AttributeSet attrs, int defStyleAttr) {
     super(context, attrs, defStyleAttr);
-    TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.FastScrollRecyclerView);
-    fastScrollAlwaysEnabled = ta.getBoolean(R.styleable.FastScrollRecyclerView_fastScrollAlwaysEnabled, false);
-    hideDelay = ta.getInt(R.styleable.FastScrollRecyclerView_fastScrollHideDelay, DEFAULT_HIDE_DELAY);
-    ta.recycle();
+    // Parsed once here and handed to every component
+    style = FastScrollStyle.obtain(context, attrs, defStyleAttr);
+    fastScrollAlwaysEnabled = style.alwaysEnabled;
+    hideDelay = style.hideDelay;
+    sectionSpacing = style.sectionSpacing;
+    fixedItemHeight = style.fixedItemHeight;
+    ApplicationInfo appInfo = context.getApplicationInfo();
+    fixedItemHeightCheckEnabled = appInfo != null && (appInfo.flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
     deltaThreshold = getResources().getDisplayMetrics().density * SCROLL_DELTA_THRESHOLD_DP;
-    fastScrollBar = new FastScrollBar(this, attrs);
-    fastScrollBar.setDetachThumbOnFastScroll();
+    if (style.sectionRailEnabled) {
+      sectionRail = new FastScrollSectionRail(this, style);
+    }
+    if (style.preMeasureEnabled) {
+      rowPreMeasurer = new RowPreMeasurer(this);
+    }
+    if (style.stickyHeadersEnabled) {
+      setStickyHeadersEnabled(true);
+    }
     addOnScrollListener(new OnScrollListener() {
 
       @Override public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (rowPreMeasurer != null && newState == SCROLL_STATE_IDLE
+            && ViewCompat.isAttachedToWindow(FastScrollRecyclerView.this)) {
+          rowPreMeasurer.start();
+        }
+        if (newState != SCROLL_STATE_IDLE) {
+          startQualityMonitoring();
+        } else if (renderQuality != null && (fastScrollBar == null || !fastScrollBar.isDraggingThumb())) {
+          renderQuality.stop();
+        }
+        if (pagedJumps != null && newState == SCROLL_STATE_DRAGGING) {
+          // The user took over, do not land on the old target when its page arrives
+          pagedJumps.cancel();
+        }
         if (fastScrollAlwaysEnabled) return;
         switch (newState) {
           case SCROLL_STATE_DRAGGING:
-            removeCallbacks(hide);
-            fastScrollBar.animateScrollbar(true);
+            if (idleScheduler != null) {
+              idleScheduler.cancelDeadline();
+            }
+            // Otherwise the bar is created by the next scroll update, already shown
+            if (fastScrollBar != null) {
+              fastScrollBar.animateScrollbar(true);
+            }
             break;
           case SCROLL_STATE_IDLE:
             hideScrollBar();
@@ -99,13 +332,136 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
 
       @Override public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
         lastDy = dy;
-        onUpdateScrollbar(dy);
+        updateScrollbar(dy);
       }
     });
   }
 
   public void reset() {
-    fastScrollBar.reattachThumbToScroll();
+    if (fastScrollBar != null) {
+      fastScrollBar.reattachThumbToScroll();
+    }
+  }
+
+  @Override public void setAdapter(Adapter adapter) {
+    Adapter oldAdapter = getAdapter();
+    if (oldAdapter != null) {
+      oldAdapter.unregisterAdapterDataObserver(dataObserver);
+    }
+    releaseCompositeScrollIndex();
+    super.setAdapter(adapter);
+    if (adapter != null) {
+      adapter.registerAdapterDataObserver(dataObserver);
+    }
+    sectionNameLoader = null;
+    releasePagedJumpController();
+    jumpRate.reset();
+    if (fastScrollBar != null) {
+      fastScrollBar.releaseRowPreview();
+    }
+    onAdapterDataChanged();
+  }
+
+  @Override public void swapAdapter(Adapter adapter, boolean removeAndRecycleExistingViews) {
+    Adapter oldAdapter = getAdapter();
+    if (oldAdapter != null) {
+      oldAdapter.unregisterAdapterDataObserver(dataObserver);
+    }
+    releaseCompositeScrollIndex();
+    super.swapAdapter(adapter, removeAndRecycleExistingViews);
+    if (adapter != null) {
+      adapter.registerAdapterDataObserver(dataObserver);
+    }
+    sectionNameLoader = null;
+    releasePagedJumpController();
+    jumpRate.reset();
+    if (fastScrollBar != null) {
+      fastScrollBar.releaseRowPreview();
+    }
+    onAdapterDataChanged();
+  }
+
+  @Override protected Parcelable onSaveInstanceState() {
+    SavedState state = new SavedState(super.onSaveInstanceState());
+    Adapter adapter = getAdapter();
+    state.itemCount = adapter != null ? adapter.getItemCount() : 0;
+    state.rowHeight = restoredRowHeight;
+    if (scrollMetricsProvider instanceof LinearScrollMetrics
+        && ((LinearScrollMetrics) scrollMetricsProvider).getRowHeight() > 0) {
+      state.rowHeight = ((LinearScrollMetrics) scrollMetricsProvider).getRowHeight();
+    }
+    state.backgroundPadding = new int[]{
+        backgroundPadding.left, backgroundPadding.top, backgroundPadding.right, backgroundPadding.bottom
+    };
+    int availableScrollBarHeight = getAvailableScrollBarHeight();
+    if (fastScrollBar != null && fastScrollBar.thumbOffset.y >= 0 && availableScrollBarHeight > 0) {
+      state.thumbProgress = (fastScrollBar.thumbOffset.y - backgroundPadding.top) / (float) availableScrollBarHeight;
+    }
+
+    // Only keep a table we had to scan for, and only while it is small enough to parcel safely
+    SectionIndex index = sectionIndex;
+    if (index == null && restoredState != null) {
+      index = restoredState.toSectionIndex();
+    }
+    if (index != null && isSectionIndexScanned(adapter)) {
+      state.setSections(index, adapter, MAX_SAVED_SECTION_BYTES);
+    }
+    return state;
+  }
+
+  @Override protected void onRestoreInstanceState(Parcelable state) {
+    if (!(state instanceof SavedState)) {
+      super.onRestoreInstanceState(state);
+      return;
+    }
+    SavedState savedState = (SavedState) state;
+    super.onRestoreInstanceState(savedState.getSuperState());
+    int[] padding = savedState.backgroundPadding;
+    if (padding != null && padding.length == 4) {
+      backgroundPadding.set(padding[0], padding[1], padding[2], padding[3]);
+    }
+    restoredRowHeight = savedState.rowHeight;
+    restoredThumbProgress = savedState.thumbProgress;
+    restoredState = savedState.sectionNames != null ? savedState : null;
+    sectionIndex = null;
+    cancelSectionIndexScan();
+  }
+
+  @Override protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      getContext().getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+    }
+    if (idleScheduler != null) {
+      idleScheduler.resume();
+    }
+    if (rowPreMeasurer != null) {
+      rowPreMeasurer.start();
+    }
+    WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+    float refreshRate = windowManager == null ? 0 : windowManager.getDefaultDisplay().getRefreshRate();
+    if (refreshRate > 0) {
+      jumpRate.setFrameNanos((long) (1e9 / refreshRate));
+      if (renderQuality != null) {
+        renderQuality.setFrameNanos(jumpRate.getFrameNanos());
+      }
+    }
+  }
+
+  @Override protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    if (renderQuality != null) {
+      renderQuality.stop();
+    }
+    if (rowPreMeasurer != null) {
+      rowPreMeasurer.stop();
+    }
+    if (idleScheduler != null) {
+      idleScheduler.release();
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      getContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+    }
   }
 
   @Override protected void onFinishInflate() {
@@ -131,6 +487,13 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
    */
   private boolean handleTouchEvent(MotionEvent ev) {
     int action = ev.getAction();
+    if (sectionRail != null && sectionRail.handleTouchEvent(ev)) {
+      if (pagedJumps != null && (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL)) {
+        // Rail jumps are paged scrubs too, request the target page without waiting for the debounce
+        pagedJumps.onScrubEnd();
+      }
+      return true;
+    }
     int x = (int) ev.getX();
     int y = (int) ev.getY();
     switch (action) {
@@ -138,22 +501,58 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
         // Keep track of the down positions
         downX = x;
         downY = lastY = y;
+        if (rowPreMeasurer != null) {
+          rowPreMeasurer.pause();
+        }
         if (shouldStopScroll(ev)) {
           stopScroll();
         }
-        fastScrollBar.handleTouchEvent(ev, downX, downY, lastY);
+        if (fastScrollBar == null && isNearScrollBarEdge(x) && canScrollContent()) {
+          createFastScrollBar();
+          onUpdateScrollbar(0);
+        }
+        if (fastScrollBar != null) {
+          fastScrollBar.handleTouchEvent(ev, downX, downY, lastY);
+        }
         break;
       case MotionEvent.ACTION_MOVE:
         lastY = y;
-        fastScrollBar.handleTouchEvent(ev, downX, downY, lastY);
+        if (fastScrollBar != null) {
+          fastScrollBar.handleTouchEvent(ev, downX, downY, lastY);
+          if (fastScrollBar.isDraggingThumb()) {
+            startQualityMonitoring();
+          }
+        }
         break;
       case MotionEvent.ACTION_UP:
       case MotionEvent.ACTION_CANCEL:
         onFastScrollCompleted();
-        fastScrollBar.handleTouchEvent(ev, downX, downY, lastY);
+        if (pagedJumps != null) {
+          pagedJumps.onScrubEnd();
+        }
+        if (fastScrollBar != null) {
+          fastScrollBar.handleTouchEvent(ev, downX, downY, lastY);
+        }
+        if (rowPreMeasurer != null) {
+          rowPreMeasurer.start();
+        }
+        if (renderQuality != null && getScrollState() == SCROLL_STATE_IDLE) {
+          renderQuality.stop();
+        }
         break;
     }
-    return fastScrollBar.isDraggingThumb();
+    return fastScrollBar != null && fastScrollBar.isDraggingThumb();
+  }
+
+  /**
+   * Returns whether the x coordinate is close enough to the scroll bar edge to grab the thumb.
+   */
+  private boolean isNearScrollBarEdge(int x) {
+    int reach = style.thumbMaxWidth - style.thumbTouchInset;
+    if (Utilities.isRtl(getResources())) {
+      return x < backgroundPadding.left + reach;
+    }
+    return x >= getWidth() - backgroundPadding.right - reach;
   }
 
   @Override public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
@@ -186,7 +585,7 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
    * Returns the scroll bar width when the user is scrolling.
    */
   public int getMaxScrollbarWidth() {
-    return fastScrollBar.getThumbMaxWidth();
+    return fastScrollBar != null ? fastScrollBar.getThumbMaxWidth() : style.thumbMaxWidth;
   }
 
   /**
@@ -207,237 +606,1267 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
    */
   protected int getAvailableScrollBarHeight() {
     int visibleHeight = getHeight() - backgroundPadding.top - backgroundPadding.bottom;
-    return visibleHeight - fastScrollBar.getThumbHeight();
+    return visibleHeight - (fastScrollBar != null ? fastScrollBar.getThumbHeight() : style.thumbHeight);
   }
 
-  public boolean isFastScrollAlwaysEnabled() {
-    return fastScrollAlwaysEnabled;
+  /**
+   * Applies a style to the scroll bar, the popup, the section rail and the sticky headers. The rail, the sticky
+   * headers and row pre-measuring are switched on or off as the style says.
+   */
+  public void setFastScrollStyle(@NonNull FastScrollStyle style) {
+    this.style = style;
+    hideDelay = style.hideDelay;
+    sectionSpacing = style.sectionSpacing;
+    fixedItemHeight = style.fixedItemHeight;
+    if (fastScrollBar != null) {
+      fastScrollBar.setStyle(style);
+    }
+    setSectionRailEnabled(style.sectionRailEnabled);
+    if (sectionRail != null) {
+      sectionRail.setStyle(style);
+    }
+    setStickyHeadersEnabled(style.stickyHeadersEnabled);
+    if (stickyHeaders != null) {
+      stickyHeaders.setStyle(style);
+    }
+    setRowPreMeasureEnabled(style.preMeasureEnabled);
+    if (fastScrollAlwaysEnabled != style.alwaysEnabled) {
+      fastScrollAlwaysEnabled = style.alwaysEnabled;
+      if (fastScrollAlwaysEnabled) {
+        if (idleScheduler != null) {
+          idleScheduler.cancelDeadline();
+        }
+        if (fastScrollBar != null) {
+          fastScrollBar.animateScrollbar(true);
+        }
+      } else {
+        hideScrollBar();
+      }
+    }
+    onUpdateScrollbar(0);
+    invalidate();
   }
 
-  protected void hideScrollBar() {
-    if (!fastScrollAlwaysEnabled) {
-      removeCallbacks(hide);
-      postDelayed(hide, hideDelay);
-    }
+  /**
+   * Returns the resolved style of the fast scroller.
+   */
+  @NonNull public FastScrollStyle getFastScrollStyle() {
+    return style;
   }
 
-  public void setThumbActiveColor(@ColorInt int color) {
-    fastScrollBar.setThumbActiveColor(color);
+  /**
+   * Shows or hides the section rail drawn beside the scroll bar. The rail lists every section of a
+   * {@link SectionedAdapter} and jumps to a section when touched.
+   */
+  public void setSectionRailEnabled(boolean enabled) {
+    if (enabled && sectionRail == null) {
+      sectionRail = new FastScrollSectionRail(this, style);
+    } else if (!enabled) {
+      sectionRail = null;
+    }
+    invalidate();
   }
 
-  public void setTrackInactiveColor(@ColorInt int color) {
-    fastScrollBar.setThumbInactiveColor(color);
+  public boolean isSectionRailEnabled() {
+    return sectionRail != null;
   }
 
-  public void setPopupBackgroundColor(@ColorInt int color) {
-    fastScrollBar.setPopupBackgroundColor(color);
+  public FastScrollSectionRail getSectionRail() {
+    return sectionRail;
   }
 
-  public void setPopupTextColor(@ColorInt int color) {
-    fastScrollBar.setPopupTextColor(color);
+  /*package*/ int getSectionRailWidth() {
+    return sectionRail != null ? sectionRail.getWidth() : 0;
   }
 
-  public FastScrollBar getFastScrollBar() {
-    return fastScrollBar;
+  /**
+   * Pins the header of the top-most section to the top of the list, see {@link StickySectionHeaderDecoration}.
+   */
+  public void setStickyHeadersEnabled(boolean enabled) {
+    if (enabled && stickyHeaders == null) {
+      stickyHeaders = new StickySectionHeaderDecoration(this, style);
+      addItemDecoration(stickyHeaders);
+    } else if (!enabled && stickyHeaders != null) {
+      removeItemDecoration(stickyHeaders);
+      stickyHeaders = null;
+    }
   }
 
-  @Override
-  public void draw(Canvas canvas) {
-    super.draw(canvas);
+  public boolean isStickyHeadersEnabled() {
+    return stickyHeaders != null;
+  }
 
-    // Draw the ScrollBar AFTER the ItemDecorations are drawn over
-    onUpdateScrollbar(0);
-    fastScrollBar.draw(canvas);
+  /**
+   * Returns the sticky header decoration, or {@code null} if sticky headers are not enabled.
+   */
+  public StickySectionHeaderDecoration getStickyHeaderDecoration() {
+    return stickyHeaders;
   }
 
   /**
-   * Updates the scrollbar thumb offset to match the visible scroll of the recycler view.  It does
-   * this by mapping the available scroll area of the recycler view to the available space for the
-   * scroll bar.
-   *
-   * @param scrollPosState
-   *     the current scroll position
-   * @param rowCount
-   *     the number of rows, used to calculate the total scroll height (assumes that
-   *     all rows are the same height)
+   * Returns the section table of the adapter. The table is built on first use and kept until the adapter reports a
+   * change. It comes from a {@link SectionIndexProvider}, the page names of a {@link PagedAdapter}, a
+   * {@link SectionIndexer} or by scanning a {@link SectionedAdapter}, in that order. Other adapters have an empty
+   * index.
    */
-  protected void synchronizeScrollBarThumbOffsetToViewScroll(ScrollPositionState scrollPosState, int rowCount) {
-    // Only show the scrollbar if there is height to be scrolled
-    int availableScrollBarHeight = getAvailableScrollBarHeight();
-    int availableScrollHeight = getAvailableScrollHeight(rowCount, scrollPosState.rowHeight);
-    if (availableScrollHeight <= 0) {
-      fastScrollBar.setThumbOffset(-1, -1);
-      return;
+  @NonNull public SectionIndex getSectionIndex() {
+    if (sectionIndex == null) {
+      Adapter adapter = getAdapter();
+      if (sectionIndexPatch != null) {
+        sectionIndex = sectionIndexPatch.resolve((SectionedAdapter) adapter);
+        sectionIndexPatch = null;
+      } else if (restoredState != null && adapter != null && restoredState.matches(adapter)) {
+        sectionIndex = restoredState.toSectionIndex();
+        restoredState = null;
+      } else if (adapter instanceof SectionIndexProvider) {
+        sectionIndex = ((SectionIndexProvider) adapter).getSectionIndex();
+      } else if (adapter instanceof PagedAdapter) {
+        sectionIndex = getPagedJumpController().buildSectionIndex(adapter.getItemCount());
+      } else if (adapter instanceof SegmentedAdapter) {
+        sectionIndex = getCompositeScrollIndex().getSectionIndex();
+      } else if (adapter instanceof NestedSectionedAdapter) {
+        sectionIndex = getHierarchicalSectionIndex().getSections();
+      } else if (adapter instanceof SectionIndexer) {
+        sectionIndex = SectionIndex.fromSectionIndexer((SectionIndexer) adapter, adapter.getItemCount());
+      } else if (adapter instanceof SectionedAdapter) {
+        sectionIndex = SectionIndex.build((SectionedAdapter) adapter, adapter.getItemCount());
+      } else {
+        sectionIndex = SectionIndex.EMPTY;
+      }
+      cancelSectionIndexScan();
     }
+    return sectionIndex;
+  }
 
-    // Calculate the current scroll position, the scrollY of the recycler view accounts for the
-    // view padding, while the scrollBarY is drawn right up to the background padding (ignoring
-    // padding)
-    int scrollY = getPaddingTop() +
-        Math.round(((scrollPosState.rowIndex - scrollPosState.rowTopOffset) * scrollPosState.rowHeight));
-    int scrollBarY =
-        backgroundPadding.top + (int) (((float) scrollY / availableScrollHeight) * availableScrollBarHeight);
+  /**
+   * Returns the section table for drawing and touch handling. The table of a large {@link SectionedAdapter} is not
+   * scanned on this call but while the UI thread is idle, {@link SectionIndex#EMPTY} is returned until it is ready.
+   */
+  @NonNull /*package*/ SectionIndex peekSectionIndex() {
+    if (sectionIndex != null) {
+      return sectionIndex;
+    }
+    Adapter adapter = getAdapter();
+    if (sectionIndexPatch != null || !isSectionIndexScanned(adapter) || adapter.getItemCount() <= MAX_SYNC_SCAN_ITEMS
+        || (restoredState != null && restoredState.matches(adapter))) {
+      return getSectionIndex();
+    }
+    if (sectionIndexScan == null) {
+      sectionIndexScan = new SectionIndexScan((SectionedAdapter) adapter, adapter.getItemCount(), scanCallback);
+      getIdleTaskScheduler().schedule(sectionIndexScan);
+    }
+    return SectionIndex.EMPTY;
+  }
 
-    // Calculate the position and size of the scroll bar
-    int scrollBarX;
-    if (Utilities.isRtl(getResources())) {
-      scrollBarX = backgroundPadding.left;
-    } else {
-      scrollBarX = getWidth() - backgroundPadding.right - fastScrollBar.getThumbWidth();
+  private void cancelSectionIndexScan() {
+    if (sectionIndexScan != null) {
+      getIdleTaskScheduler().cancel(sectionIndexScan);
+      sectionIndexScan = null;
     }
-    fastScrollBar.setThumbOffset(scrollBarX, scrollBarY);
   }
 
   /**
-   * <p>Maps the touch (from 0..1) to the adapter position that should be visible.</p>
-   *
-   * <p>Override in each subclass of this base class.</p>
+   * Returns the two-level section table of a {@link NestedSectionedAdapter}, or {@code null} for other adapters. The
+   * table is built with one pass over the adapter and kept until the data changes.
    */
-  public String scrollToPositionAtProgress(float touchFraction) {
-    int itemCount = getAdapter().getItemCount();
-    if (itemCount == 0) {
-      return "";
-    }
-    int spanCount = 1;
-    int rowCount = itemCount;
-    if (getLayoutManager() instanceof GridLayoutManager) {
-      spanCount = ((GridLayoutManager) getLayoutManager()).getSpanCount();
-      rowCount = (int) Math.ceil((double) rowCount / spanCount);
+  public HierarchicalSectionIndex getHierarchicalSectionIndex() {
+    if (hierarchicalIndex == null && getAdapter() instanceof NestedSectionedAdapter) {
+      hierarchicalIndex = HierarchicalSectionIndex.build((NestedSectionedAdapter) getAdapter(),
+          getAdapter().getItemCount());
     }
+    return hierarchicalIndex;
+  }
 
-    // Stop the scroller if it is scrolling
-    stopScroll();
+  /**
+   * Sets how the thumb track is shared between the sections. Can be switched at any time, the section table is not
+   * rebuilt.
+   *
+   * @param spacing
+   *     {@link #SECTION_SPACING_PROPORTIONAL} or {@link #SECTION_SPACING_EQUAL}
+   */
+  public void setSectionSpacing(int spacing) {
+    sectionSpacing = spacing;
+    onUpdateScrollbar(0);
+  }
 
-    getCurScrollState(scrollPositionState);
+  public int getSectionSpacing() {
+    return sectionSpacing;
+  }
 
-    float itemPos = itemCount * touchFraction;
+  /**
+   * Declares that every row of a linear or grid list is this many pixels high, so that the thumb and jumps are
+   * computed from the row index alone instead of measuring the visible rows. In a grid this is the height of a row
+   * of items. A {@link FixedItemSizeAdapter} overrides this. Pass 0 to measure the rows again.
+   */
+  public void setFixedItemHeight(int height) {
+    fixedItemHeight = Math.max(0, height);
+    onUpdateScrollbar(0);
+  }
 
-    int availableScrollHeight = getAvailableScrollHeight(rowCount, scrollPositionState.rowHeight);
+  /**
+   * Returns the declared row height, from a {@link FixedItemSizeAdapter} or {@link #setFixedItemHeight(int)}, or 0
+   * if the rows are measured.
+   */
+  public int getFixedItemHeight() {
+    Adapter adapter = getAdapter();
+    if (adapter instanceof FixedItemSizeAdapter) {
+      return ((FixedItemSizeAdapter) adapter).getFixedItemHeight();
+    }
+    return fixedItemHeight;
+  }
 
-    //The exact position of our desired item
-    int exactItemPos = (int) (availableScrollHeight * touchFraction);
+  /**
+   * Sets whether the visible rows are checked against the fixed item height, see {@link #setFixedItemHeight(int)}.
+   * A row with another height is logged as a warning. Enabled by default when the app is debuggable.
+   */
+  public void setFixedItemHeightCheckEnabled(boolean enabled) {
+    fixedItemHeightCheckEnabled = enabled;
+  }
 
-    //Scroll to the desired item. The offset used here is kind of hard to explain.
-    //If the position we wish to scroll to is, say, position 10.5, we scroll to position 10,
-    //and then offset by 0.5 * rowHeight. This is how we achieve smooth scrolling.
-    LinearLayoutManager layoutManager = ((LinearLayoutManager) getLayoutManager());
-    layoutManager.scrollToPositionWithOffset(spanCount * exactItemPos / scrollPositionState.rowHeight,
-        -(exactItemPos % scrollPositionState.rowHeight));
+  public boolean isFixedItemHeightCheckEnabled() {
+    return fixedItemHeightCheckEnabled;
+  }
 
-    if (!(getAdapter() instanceof SectionedAdapter)) {
-      return "";
+  /**
+   * Returns the mapping the track is split by when sections get equal thumb space, or {@code null} to follow the
+   * content. The mapping is kept as long as the section table does not change.
+   */
+  private SectionScrubMapping getEqualSpacingMapping() {
+    if (sectionSpacing != SECTION_SPACING_EQUAL) {
+      return null;
     }
-
-    int posInt = (int) ((touchFraction == 1) ? itemPos - 1 : itemPos);
-
-    SectionedAdapter sectionedAdapter = (SectionedAdapter) getAdapter();
-    return sectionedAdapter.getSectionName(posInt);
+    SectionIndex index = peekSectionIndex();
+    if (scrubMapping == null || !scrubMapping.isFor(index)) {
+      scrubMapping = new SectionScrubMapping(index);
+    }
+    return scrubMapping.getSectionCount() > 0 ? scrubMapping : null;
   }
 
   /**
-   * <p>Updates the bounds for the scrollbar.</p>
+   * Keeps the row the thumb points at under the finger while rows are inserted or removed during a drag, for example
+   * older messages loaded into a chat list. Without it the same thumb position would point at another row as soon as
+   * the content grows, and the popup and the jump target would shift under the finger.
    *
-   * <p>Override in each subclass of this base class.</p>
+   * @param delta
+   *     the number of inserted rows, or minus the number of removed rows
    */
-  public void onUpdateScrollbar(int dy) {
-    int rowCount = getAdapter().getItemCount();
-    if (getLayoutManager() instanceof GridLayoutManager) {
-      int spanCount = ((GridLayoutManager) getLayoutManager()).getSpanCount();
-      rowCount = (int) Math.ceil((double) rowCount / spanCount);
-    }
-    // Skip early if, there are no items.
-    if (rowCount == 0) {
-      fastScrollBar.setThumbOffset(-1, -1);
+  private void anchorDragTarget(int positionStart, int delta) {
+    if (fastScrollBar == null || !fastScrollBar.isDraggingThumb() || scrubPosition == NO_POSITION) {
       return;
     }
-
-    // Skip early if, there no child laid out in the container.
-    getCurScrollState(scrollPositionState);
-    if (scrollPositionState.rowIndex < 0) {
-      fastScrollBar.setThumbOffset(-1, -1);
+    Adapter adapter = getAdapter();
+    int itemCount = adapter == null ? 0 : adapter.getItemCount();
+    if (itemCount == 0) {
       return;
     }
+    if (positionStart <= scrubPosition) {
+      // A removed target is replaced by the row after the removed range
+      scrubPosition = Math.max(positionStart, scrubPosition + delta);
+    }
+    scrubPosition = Math.min(scrubPosition, itemCount - 1);
+    float progress = getProgressForPosition(scrubPosition);
+    if (progress >= 0) {
+      fastScrollBar.anchorDragAt(progress);
+    }
+  }
 
-    synchronizeScrollBarThumbOffsetToViewScroll(scrollPositionState, rowCount);
+  /**
+   * Returns the thumb progress that points at the adapter position, the inverse of
+   * {@link #scrollToPositionAtProgress(float)}, or -1 if the list has no geometry yet.
+   */
+  private float getProgressForPosition(int position) {
+    SectionScrubMapping equalSpacing = getEqualSpacingMapping();
+    if (equalSpacing != null) {
+      return equalSpacing.getProgressForPosition(position);
+    }
+    ScrollMetricsProvider metrics = scrollMetricsProvider;
+    int range = metrics == null ? 0 : metrics.getScrollRange();
+    if (range <= 0) {
+      return -1;
+    }
+    // The thumb at progress p points at the row at offset p * range, see jumpToProgress(). Rows run bottom-up in
+    // reverse layouts, so the search follows the order the provider maps them in.
+    boolean reverse = metrics.getPositionAtOffset(0) > metrics.getPositionAtOffset(range - 1);
+    int low = 0;
+    int high = range - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int midPosition = metrics.getPositionAtOffset(mid);
+      if (reverse ? midPosition <= position : midPosition >= position) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low / (float) range;
   }
 
   /**
-   * <p>Override in each subclass of this base class.</p>
+   * Returns the adapter position the fast scroller last jumped or pointed to.
    */
-  public void onFastScrollCompleted() {
+  /*package*/ int getScrubPosition() {
+    return scrubPosition;
   }
 
   /**
-   * Returns information about the item that the recycler view is currently scrolled to.
+   * Returns the subsection name for the position the fast scroller last jumped to, or {@code null} if the adapter has
+   * no subsections.
    */
-  protected void getCurScrollState(ScrollPositionState stateOut) {
-    stateOut.rowIndex = -1;
-    stateOut.rowTopOffset = -1;
-    stateOut.rowHeight = -1;
+  /*package*/ String getScrubSubsectionName() {
+    HierarchicalSectionIndex index = scrubPosition == NO_POSITION ? null : getHierarchicalSectionIndex();
+    return index == null ? null : index.getSubsectionNameForPosition(scrubPosition);
+  }
 
-    // Return early if there are no items
-    int rowCount = getAdapter().getItemCount();
-    if (rowCount == 0) {
-      return;
+  /**
+   * Jumps to the first row of a section picked on the section rail. The rows of a {@link PagedAdapter} go through
+   * the {@link PagedJumpController} like thumb jumps, so the page is debounced and requested the same way.
+   */
+  /*package*/ void scrollToSectionPosition(int position) {
+    PagedJumpController controller = getPagedJumpController();
+    if (controller != null) {
+      onPagedScrub(controller, position);
+    } else {
+      scrollToAdapterPosition(position);
     }
+  }
 
-    View child = getChildAt(0);
-    if (child == null) {
+  /**
+   * Scrolls so that the adapter position is at the top of the list.
+   */
+  /*package*/ void scrollToAdapterPosition(int position) {
+    LayoutManager layoutManager = getLayoutManager();
+    if (layoutManager instanceof LinearLayoutManager) {
+      ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, 0);
+    } else {
+      scrollToPosition(position);
+    }
+  }
+
+  /**
+   * Drops the section table so that it is rebuilt from the adapter the next time it is needed.
+   */
+  public void invalidateSectionIndex() {
+    sectionIndex = null;
+    sectionIndexPatch = null;
+    hierarchicalIndex = null;
+    cancelSectionIndexScan();
+    if (sectionRail != null || stickyHeaders != null) {
+      invalidate();
+    }
+  }
+
+  /**
+   * Sets the cache of measured row heights. Pass the same cache to every {@link FastScrollRecyclerView} showing the
+   * same data, for example the pages of a {@code ViewPager}, so that a view starts with an accurate thumb instead of
+   * rediscovering the row heights. The cache is only used when the adapter has stable IDs.
+   */
+  public void setScrollMetricsCache(ScrollMetricsCache cache) {
+    metricsCache = cache;
+  }
+
+  /**
+   * Returns the cache of measured row heights, creating one for this view if none was set.
+   */
+  @NonNull public ScrollMetricsCache getScrollMetricsCache() {
+    if (metricsCache == null) {
+      metricsCache = new ScrollMetricsCache();
+    }
+    return metricsCache;
+  }
+
+  /**
+   * Enables measuring the rows that are not laid out while the UI thread is idle, so that the thumb of a vertical
+   * linear list matches the real row heights. See {@link RowPreMeasurer}.
+   */
+  public void setRowPreMeasureEnabled(boolean enabled) {
+    if (enabled && rowPreMeasurer == null) {
+      rowPreMeasurer = new RowPreMeasurer(this);
+      if (ViewCompat.isAttachedToWindow(this)) {
+        rowPreMeasurer.start();
+      }
+    } else if (!enabled && rowPreMeasurer != null) {
+      rowPreMeasurer.stop();
+      rowPreMeasurer = null;
+    }
+  }
+
+  /**
+   * Enables estimating the rows that are not laid out from the mean height of their view type, instead of the average
+   * of the visible rows. Use it for vertical linear lists that mix view types of very different heights, such as
+   * headers, cards and ads. See {@link ViewTypeHeightModel}. Measured heights from a {@link RowPreMeasurer} take
+   * precedence.
+   */
+  public void setViewTypeHeightModelEnabled(boolean enabled) {
+    if (enabled && viewTypeModel == null) {
+      viewTypeModel = new ViewTypeHeightModel();
+    } else if (!enabled) {
+      viewTypeModel = null;
+    }
+    onUpdateScrollbar(0);
+  }
+
+  /**
+   * Returns the model of the view type heights, indexed for the current adapter, or {@code null} if it is not enabled
+   * or the adapter is too large to index.
+   */
+  public ViewTypeHeightModel getViewTypeHeightModel() {
+    return viewTypeModel != null && viewTypeModel.update(getAdapter()) ? viewTypeModel : null;
+  }
+
+  /**
+   * Returns the measurer of off-screen rows, or {@code null} if it is not enabled.
+   */
+  public RowPreMeasurer getRowPreMeasurer() {
+    return rowPreMeasurer;
+  }
+
+  /**
+   * Returns the loader used to resolve section names of an {@link AsyncSectionedAdapter}, or {@code null} if the
+   * adapter does not load section names asynchronously.
+   */
+  public AsyncSectionNameLoader getSectionNameLoader() {
+    if (sectionNameLoader == null && getAdapter() instanceof AsyncSectionedAdapter) {
+      sectionNameLoader = new AsyncSectionNameLoader((AsyncSectionedAdapter) getAdapter(),
+          new AsyncSectionNameLoader.Callback() {
+
+            @Override public void onSectionNameLoaded(int position, @NonNull String sectionName) {
+              if (fastScrollBar == null || !fastScrollBar.isDraggingThumb()) {
+                return;
+              }
+              FastScrollPopup popup = fastScrollBar.getFastScrollPopup();
+              popup.setSectionName(sectionName);
+              popup.animateVisibility(!sectionName.isEmpty());
+              invalidate(popup.updateFastScrollerBounds(FastScrollRecyclerView.this, lastY));
+            }
+          });
+    }
+    return sectionNameLoader;
+  }
+
+  /**
+   * Returns the callback that keeps the scroller's position-indexed caches, such as the section table, in sync with
+   * list updates. Range notifications from the adapter are already applied to it. Dispatch to it directly when the
+   * adapter is updated some other way, for example:
+   *
+   * <pre>
+   * diffResult.dispatchUpdatesTo(recyclerView.getListUpdateCallback());
+   * </pre>
+   *
+   * Each update costs O(sections); the sections of inserted and changed items are looked up once, the next time the
+   * section table is used.
+   */
+  @NonNull public ListUpdateCallback getListUpdateCallback() {
+    return indexUpdater;
+  }
+
+  private void patchSectionIndex(int position, int removeCount, int insertCount) {
+    SectionIndexPatch patch = getSectionIndexPatch();
+    if (patch == null) {
+      onSectionDataChanged();
       return;
     }
+    patch.replace(position, removeCount, insertCount);
+    onSectionIndexPatched();
+  }
+
+  private SectionIndexPatch getSectionIndexPatch() {
+    if (sectionIndexPatch == null) {
+      // Only a table we scanned ourselves is worth patching, a provided one is asked for again
+      if (sectionIndex == null || !isSectionIndexScanned(getAdapter())) {
+        return null;
+      }
+      sectionIndexPatch = new SectionIndexPatch(sectionIndex);
+    }
+    return sectionIndexPatch;
+  }
 
-    stateOut.rowIndex = getChildPosition(child);
-    if (getLayoutManager() instanceof GridLayoutManager) {
-      stateOut.rowIndex = stateOut.rowIndex / ((GridLayoutManager) getLayoutManager()).getSpanCount();
+  private void onSectionIndexPatched() {
+    sectionIndex = null;
+    restoredState = null;
+    cancelSectionIndexScan();
+    if (sectionNameLoader != null) {
+      sectionNameLoader.invalidate();
     }
-    stateOut.rowTopOffset = getLayoutManager().getDecoratedTop(child) / (float) child.getHeight();
-    stateOut.rowHeight = calculateRowHeight(child.getHeight());
+    if (sectionRail != null || stickyHeaders != null) {
+      invalidate();
+    }
+  }
+
+  private static boolean isSectionIndexScanned(Adapter adapter) {
+    return adapter instanceof SectionedAdapter && !(adapter instanceof SectionIndexProvider)
+        && !(adapter instanceof SegmentedAdapter) && !(adapter instanceof SectionIndexer)
+        && !(adapter instanceof NestedSectionedAdapter) && !(adapter instanceof PagedAdapter);
   }
 
   /**
-   * Calculates the row height based on the average of the visible children, to handle scrolling
-   * through children with different heights gracefully
+   * Returns the index over the child adapters of a {@link SegmentedAdapter}, or {@code null} for other adapters.
    */
-  protected int calculateRowHeight(int fallbackHeight) {
-    LayoutManager layoutManager = getLayoutManager();
+  public CompositeScrollIndex getCompositeScrollIndex() {
+    if (compositeIndex == null && getAdapter() instanceof SegmentedAdapter) {
+      compositeIndex = new CompositeScrollIndex((SegmentedAdapter) getAdapter());
+    }
+    return compositeIndex;
+  }
 
-    if (layoutManager instanceof LinearLayoutManager) {
-      final int firstVisiblePosition = ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
-      final int lastVisiblePosition = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+  /**
+   * Returns the controller that requests pages and lands jumps for a {@link PagedAdapter}, or {@code null} for other
+   * adapters. Use it to change the debounce or to land on placeholders.
+   */
+  public PagedJumpController getPagedJumpController() {
+    if (pagedJumps == null && getAdapter() instanceof PagedAdapter) {
+      pagedJumps = new PagedJumpController((PagedAdapter) getAdapter(), new PagedJumpController.Callback() {
 
-      if (lastVisiblePosition > firstVisiblePosition) {
-        final int height = getHeight();
-        final int paddingTop = getPaddingTop();
-        final int paddingBottom = getPaddingBottom();
+        @Override public void scrollToPosition(int position) {
+          scrollToAdapterPosition(position);
+        }
+      });
+    }
+    return pagedJumps;
+  }
 
-        // How many rows are visible, like 10.5f for 10 rows completely and one halfway visible
-        float visibleRows = 0f;
+  private void releasePagedJumpController() {
+    if (pagedJumps != null) {
+      pagedJumps.cancel();
+      pagedJumps = null;
+    }
+    removeCallbacks(pagedPoll);
+    pagedPollPosted = false;
+  }
 
-        for (int position = firstVisiblePosition; position <= lastVisiblePosition; position++) {
-          ViewHolder viewHolder = findViewHolderForLayoutPosition(position);
-          if (viewHolder == null || viewHolder.itemView == null) {
-            continue;
-          }
+  private void onPagedScrub(PagedJumpController controller, int position) {
+    controller.onScrub(position, SystemClock.uptimeMillis());
+    schedulePagedPoll();
+  }
 
-          final View itemView = viewHolder.itemView;
-          final int itemHeight = itemView.getHeight();
-          if (itemHeight == 0) {
-            continue;
-          }
+  /**
+   * Keeps one message posted while a page request waits for the debounce, however often the thumb moves.
+   */
+  private void schedulePagedPoll() {
+    if (pagedJumps == null || pagedPollPosted) {
+      return;
+    }
+    long delay = pagedJumps.poll(SystemClock.uptimeMillis());
+    if (delay >= 0) {
+      pagedPollPosted = true;
+      postDelayed(pagedPoll, delay);
+    }
+  }
+
+  private void onPageDataChanged() {
+    if (pagedJumps != null) {
+      pagedJumps.onDataChanged();
+    }
+  }
 
-          // Finds how much of the itemView is actually visible.
-          // This allows smooth changes of the scrollbar thumb height
-          final int visibleHeight = itemHeight
-              - Math.max(0, paddingBottom - layoutManager.getDecoratedTop(itemView)) // How much is cut at the top
-              - Math.max(0, paddingBottom + layoutManager.getDecoratedBottom(itemView) - height); // How much is cut at the bottom
+  private void releaseCompositeScrollIndex() {
+    if (compositeIndex != null) {
+      compositeIndex.release();
+      compositeIndex = null;
+    }
+  }
+
+  private void onAdapterDataChanged() {
+    if (rowPreMeasurer != null) {
+      rowPreMeasurer.invalidate();
+    }
+    if (viewTypeModel != null) {
+      viewTypeModel.invalidate();
+    }
+    onSectionDataChanged();
+  }
 
-          visibleRows += visibleHeight / (float) itemHeight;
+  /**
+   * Drops the section caches that cannot be patched. Measured row heights are kept.
+   */
+  private void onSectionDataChanged() {
+    invalidateSectionIndex();
+    if (sectionNameLoader != null) {
+      sectionNameLoader.invalidate();
+    }
+    if (compositeIndex != null
+        && compositeIndex.getSegmentCount() != ((SegmentedAdapter) getAdapter()).getSegmentCount()) {
+      compositeIndex.refresh();
+    }
+  }
+
+  public boolean isFastScrollAlwaysEnabled() {
+    return fastScrollAlwaysEnabled;
+  }
+
+  protected void hideScrollBar() {
+    if (!fastScrollAlwaysEnabled) {
+      getIdleTaskScheduler().scheduleDeadline(hideDelay);
+    }
+  }
+
+  /**
+   * Shrinks the caches of the scroller for a memory trim level of {@link ComponentCallbacks2}. The view calls this
+   * itself while it is attached. Everything dropped is rebuilt on demand. The tiers are:
+   *
+   * <ul>
+   * <li>{@code TRIM_MEMORY_RUNNING_MODERATE}: halve the row height cache and the async section name cache, and keep
+   * only two sticky header bitmaps.</li>
+   * <li>{@code TRIM_MEMORY_RUNNING_LOW}: keep a quarter of the row height cache and drop the cached section names,
+   * the header bitmaps and the section spacing mapping.</li>
+   * <li>{@code TRIM_MEMORY_UI_HIDDEN}: release the popup, the animators and the thumb path of the scroll bar. The
+   * bar itself and its settings are kept.</li>
+   * <li>{@code TRIM_MEMORY_BACKGROUND}: drop the section tables, clear the row height cache and free the pre-measured
+   * heights.</li>
+   * <li>{@code TRIM_MEMORY_MODERATE} and above: clear the shared {@link FastScrollStyle} cache as well.</li>
+   * </ul>
+   *
+   * <p>Nothing that the current fast scroll gesture needs is dropped while the thumb is dragged.</p>
+   *
+   * @param level
+   *     the trim level, such as {@link ComponentCallbacks2#TRIM_MEMORY_BACKGROUND}
+   */
+  public void trimCaches(int level) {
+    boolean dragging = fastScrollBar != null && fastScrollBar.isDraggingThumb();
+    // Shares of what is retained, not of the capacity, so a cache that is far from full shrinks too
+    int metricsBytes = metricsCache != null ? metricsCache.getRetainedBytes() : 0;
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+      if (metricsCache != null) {
+        metricsCache.trimToSize(metricsBytes / 2);
+      }
+      if (sectionNameLoader != null) {
+        sectionNameLoader.trimToSize(sectionNameLoader.getCacheSize() / 2);
+      }
+      if (stickyHeaders != null) {
+        stickyHeaders.trimToSize(2); // the pinned header and the one pushing it
+      }
+    }
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      if (metricsCache != null) {
+        metricsCache.trimToSize(metricsBytes / 4);
+      }
+      if (sectionNameLoader != null) {
+        sectionNameLoader.trimToSize(0);
+      }
+      if (stickyHeaders != null) {
+        stickyHeaders.trimToSize(0);
+      }
+      if (!dragging) {
+        scrubMapping = null;
+        if (fastScrollBar != null) {
+          fastScrollBar.releaseRowPreview();
         }
+      }
+    }
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN && !dragging && fastScrollBar != null) {
+      // The bar is public and may have been customized, only what it creates again is released
+      fastScrollBar.releaseMemory();
+    }
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+      if (!dragging && sectionIndexPatch == null) {
+        sectionIndex = null;
+        hierarchicalIndex = null;
+        cancelSectionIndexScan();
+      }
+      if (metricsCache != null) {
+        metricsCache.clear();
+      }
+      if (rowPreMeasurer != null) {
+        rowPreMeasurer.releaseMemory();
+      }
+      if (viewTypeModel != null) {
+        viewTypeModel.invalidate();
+      }
+    }
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+      FastScrollStyle.clearCache();
+    }
+    if (FastScrollTrace.isEnabled()) {
+      FastScrollTrace.setCounter(FastScrollTrace.COUNTER_RETAINED_BYTES, getRetainedCacheBytes());
+    }
+  }
+
+  /**
+   * Returns the approximate memory held by the caches of the scroller: row heights, pre-measured heights, section
+   * tables, async section names and sticky header bitmaps. A cache shared with other views is counted in full.
+   *
+   * @return the retained size in bytes
+   */
+  public long getRetainedCacheBytes() {
+    long bytes = 0;
+    if (metricsCache != null) {
+      bytes += metricsCache.getRetainedBytes();
+    }
+    if (rowPreMeasurer != null) {
+      bytes += rowPreMeasurer.getRetainedBytes();
+    }
+    if (viewTypeModel != null) {
+      bytes += viewTypeModel.getRetainedBytes();
+    }
+    if (hierarchicalIndex != null) {
+      bytes += hierarchicalIndex.getRetainedBytes();
+    } else if (sectionIndex != null) {
+      bytes += sectionIndex.getRetainedBytes();
+    }
+    if (sectionNameLoader != null) {
+      bytes += sectionNameLoader.getRetainedBytes();
+    }
+    if (stickyHeaders != null) {
+      bytes += stickyHeaders.getRetainedBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the scheduler running the deferred work of this view: the scroll bar hide and maintenance such as row
+   * pre-measuring. Other maintenance tasks can be queued on it too.
+   */
+  @NonNull public IdleTaskScheduler getIdleTaskScheduler() {
+    if (idleScheduler == null) {
+      idleScheduler = new IdleTaskScheduler();
+      idleScheduler.setDeadlineAction(hide);
+    }
+    return idleScheduler;
+  }
+
+  public void setThumbActiveColor(@ColorInt int color) {
+    style = style.buildUpon().setThumbActiveColor(color).build();
+    if (fastScrollBar != null) {
+      fastScrollBar.setThumbActiveColor(color);
+    }
+  }
+
+  public void setTrackInactiveColor(@ColorInt int color) {
+    style = style.buildUpon().setThumbInactiveColor(color).build();
+    if (fastScrollBar != null) {
+      fastScrollBar.setThumbInactiveColor(color);
+    }
+  }
+
+  public void setPopupBackgroundColor(@ColorInt int color) {
+    style = style.buildUpon().setPopupBackgroundColor(color).build();
+    if (fastScrollBar != null) {
+      fastScrollBar.setPopupBackgroundColor(color);
+    }
+  }
+
+  public void setPopupTextColor(@ColorInt int color) {
+    style = style.buildUpon().setPopupTextColor(color).build();
+    if (fastScrollBar != null) {
+      fastScrollBar.setPopupTextColor(color);
+    }
+  }
+
+  /**
+   * Returns the scroll bar, creating it on first use. The list creates it itself only once the content is taller
+   * than the view and the bar is shown or touched, so lists that are never fast scrolled do not allocate it.
+   */
+  public FastScrollBar getFastScrollBar() {
+    if (fastScrollBar == null) {
+      createFastScrollBar();
+    }
+    return fastScrollBar;
+  }
+
+  /*package*/ boolean hasFastScrollBar() {
+    return fastScrollBar != null;
+  }
+
+  private void createFastScrollBar() {
+    fastScrollBar = new FastScrollBar(this, style);
+    if (thumbDetachEnabled) {
+      fastScrollBar.setDetachThumbOnFastScroll();
+    }
+    if (renderQuality != null && adaptiveQualityEnabled) {
+      fastScrollBar.setQuality(renderQuality.getQuality());
+    }
+    if (getScrollState() == SCROLL_STATE_DRAGGING) {
+      fastScrollBar.animateScrollbar(true);
+    }
+  }
+
+  /**
+   * Returns whether the bar is needed while the list is at rest, in which case it is created as soon as the list can
+   * scroll. Otherwise it waits for a drag or a touch on the scroll bar edge.
+   */
+  private boolean isFastScrollBarNeeded() {
+    return fastScrollAlwaysEnabled || style.thumbMinWidth > 0 || getScrollState() == SCROLL_STATE_DRAGGING;
+  }
+
+  /**
+   * Returns whether the content is taller than the list.
+   */
+  private boolean canScrollContent() {
+    Adapter adapter = getAdapter();
+    ScrollMetricsProvider metrics = scrollMetricsProvider;
+    return adapter != null && metrics != null && adapter.getItemCount() > 0
+        && metrics.getScrollRange() - getVisibleHeight() > 0;
+  }
+
+  @Override
+  public void draw(Canvas canvas) {
+    FastScrollTrace.refresh();
+    super.draw(canvas);
+
+    // Draw the ScrollBar AFTER the ItemDecorations are drawn over
+    updateScrollbar(0);
+    if (sectionRail != null) {
+      sectionRail.draw(canvas);
+    }
+    if (fastScrollBar != null) {
+      fastScrollBar.draw(canvas);
+    }
+  }
+
+  private void updateScrollbar(int dy) {
+    if (debugHud != null) {
+      long start = System.nanoTime();
+      onUpdateScrollbar(dy);
+      debugHud.recordThumbUpdate(System.nanoTime() - start);
+    } else {
+      onUpdateScrollbar(dy);
+    }
+  }
+
+  @Override protected void onLayout(boolean changed, int l, int t, int r, int b) {
+    if (jumpRate.isAwaitingLayout()) {
+      // The rows of a jump are bound here, this is most of its cost
+      long start = System.nanoTime();
+      super.onLayout(changed, l, t, r, b);
+      jumpRate.onLayout(System.nanoTime() - start);
+      if (FastScrollTrace.isEnabled()) {
+        FastScrollTrace.setCounter(FastScrollTrace.COUNTER_JUMP_COST, jumpRate.getAverageCostNanos() / 1000);
+        FastScrollTrace.setCounter(FastScrollTrace.COUNTER_JUMP_INTERVAL, jumpRate.getMinIntervalNanos() / 1000);
+      }
+    } else {
+      super.onLayout(changed, l, t, r, b);
+    }
+    if (debugHud != null) {
+      debugHud.recordLayout(fastScrollBar != null && fastScrollBar.isDraggingThumb());
+    }
+  }
+
+  /**
+   * Sets whether the thumb follows the finger on every frame while it is dragged, instead of the scroll position of
+   * the list. The list then jumps as often as its layout cost allows, see {@link JumpRateController}, and the thumb
+   * slides back to the scroll position when it is released. Disabled by default.
+   */
+  public void setThumbDetachEnabled(boolean enabled) {
+    thumbDetachEnabled = enabled;
+    if (fastScrollBar != null) {
+      fastScrollBar.setDetachThumbOnFastScroll(enabled);
+    }
+  }
+
+  public boolean isThumbDetachEnabled() {
+    return thumbDetachEnabled;
+  }
+
+  /**
+   * Sets whether the list follows the thumb while it is dragged ({@link #SCRUB_MODE_LIVE}, the default), or whether
+   * dragging only updates the popup and the list jumps once at the end ({@link #SCRUB_MODE_PREVIEW}). A preview scrub
+   * costs one layout of the list instead of one per move, which keeps the popup responsive over rows that are
+   * expensive to bind. Takes effect with the next drag.
+   */
+  public void setScrubMode(int mode) {
+    scrubMode = mode;
+  }
+
+  public int getScrubMode() {
+    return scrubMode;
+  }
+
+  /**
+   * Sets how long the thumb has to rest in {@link #SCRUB_MODE_PREVIEW} before the list jumps to it without waiting for
+   * the release. 0 only jumps on release. Defaults to {@link #DEFAULT_SCRUB_DWELL_MILLIS}.
+   */
+  public void setScrubDwellTime(long millis) {
+    scrubDwellMillis = Math.max(0, millis);
+  }
+
+  public long getScrubDwellTime() {
+    return scrubDwellMillis;
+  }
+
+  /**
+   * Sets whether a {@link #SCRUB_MODE_PREVIEW} scrub shows a scaled down copy of the target row beside the popup. The
+   * row is bound into a single view holder created by the adapter, which is kept between scrubs. Disabled by default.
+   */
+  public void setScrubRowPreviewEnabled(boolean enabled) {
+    scrubRowPreviewEnabled = enabled;
+    if (!enabled && fastScrollBar != null) {
+      fastScrollBar.releaseRowPreview();
+    }
+  }
+
+  public boolean isScrubRowPreviewEnabled() {
+    return scrubRowPreviewEnabled;
+  }
+
+  /**
+   * Sets whether the scroll bar renders more cheaply while frames are dropped, see {@link RenderQualityController}.
+   * Enabled by default. When disabled, the scroll bar always renders at full quality.
+   */
+  public void setAdaptiveQualityEnabled(boolean enabled) {
+    adaptiveQualityEnabled = enabled;
+    if (!enabled && renderQuality != null) {
+      renderQuality.stop();
+    }
+    if (fastScrollBar != null) {
+      fastScrollBar.setQuality(enabled && renderQuality != null
+          ? renderQuality.getQuality() : RenderQualityController.QUALITY_FULL);
+    }
+  }
+
+  public boolean isAdaptiveQualityEnabled() {
+    return adaptiveQualityEnabled;
+  }
+
+  /**
+   * Returns the controller that watches the frames while the list scrolls and picks the rendering quality of the
+   * scroll bar. Use it to change the thresholds or to observe the quality.
+   */
+  @NonNull public RenderQualityController getRenderQualityController() {
+    if (renderQuality == null) {
+      renderQuality = new RenderQualityController();
+      renderQuality.setFrameNanos(jumpRate.getFrameNanos());
+      renderQuality.addOnQualityChangedListener(qualityListener);
+    }
+    return renderQuality;
+  }
+
+  private void startQualityMonitoring() {
+    if (adaptiveQualityEnabled) {
+      getRenderQualityController().start();
+    }
+  }
+
+  /**
+   * Returns the controller that spaces the jumps of the list while a detached thumb is dragged.
+   */
+  @NonNull public JumpRateController getJumpRateController() {
+    return jumpRate;
+  }
+
+  /**
+   * Shows an overlay with the invalidated rects and the cost of the fast scroller, see {@link FastScrollDebugHud}.
+   * Works in release builds too. Disabled by default.
+   */
+  public void setDebugHudEnabled(boolean enabled) {
+    if (enabled && debugHud == null) {
+      debugHud = new FastScrollDebugHud(this);
+      getFastScrollBar(); // the HUD is drawn by the scroll bar
+    } else if (!enabled) {
+      debugHud = null;
+    }
+    invalidate();
+  }
+
+  public boolean isDebugHudEnabled() {
+    return debugHud != null;
+  }
+
+  /**
+   * Updates the scrollbar thumb offset to match the visible scroll of the recycler view.  It does
+   * this by mapping the available scroll area of the recycler view to the available space for the
+   * scroll bar.
+   *
+   * @param scrollPosState
+   *     the current scroll position
+   * @param rowCount
+   *     the number of rows, used to calculate the total scroll height (assumes that
+   *     all rows are the same height)
+   */
+  protected void synchronizeScrollBarThumbOffsetToViewScroll(ScrollPositionState scrollPosState, int rowCount) {
+    // Only show the scrollbar if there is height to be scrolled
+    int availableScrollHeight = getAvailableScrollHeight(rowCount, scrollPosState.rowHeight);
+    if (availableScrollHeight <= 0) {
+      hideThumb();
+      return;
+    }
+
+    // Calculate the current scroll position, the scrollY of the recycler view accounts for the
+    // view padding, while the scrollBarY is drawn right up to the background padding (ignoring
+    // padding)
+    int scrollY = getPaddingTop() +
+        Math.round(((scrollPosState.rowIndex - scrollPosState.rowTopOffset) * scrollPosState.rowHeight));
+    setThumbOffsetAtProgress((float) scrollY / availableScrollHeight);
+  }
+
+  private void setThumbOffsetAtProgress(float progress) {
+    if (fastScrollBar == null) {
+      if (!isFastScrollBarNeeded()) {
+        return;
+      }
+      createFastScrollBar();
+    }
+    int scrollBarY = backgroundPadding.top + (int) (progress * getAvailableScrollBarHeight());
+    int scrollBarX;
+    if (Utilities.isRtl(getResources())) {
+      scrollBarX = backgroundPadding.left;
+    } else {
+      scrollBarX = getWidth() - backgroundPadding.right - fastScrollBar.getThumbWidth();
+    }
+    fastScrollBar.setAttachedThumbOffset(scrollBarX, scrollBarY);
+  }
+
+  private void hideThumb() {
+    if (fastScrollBar != null) {
+      fastScrollBar.setThumbOffset(-1, -1);
+    }
+  }
+
+  /**
+   * Returns the height of the area the list is drawn in.
+   */
+  private int getVisibleHeight() {
+    return getHeight() - backgroundPadding.top - backgroundPadding.bottom;
+  }
+
+  @Override public void setLayoutManager(LayoutManager layout) {
+    super.setLayoutManager(layout);
+    // Resolved once here, so the per frame thumb math never checks the layout manager type
+    scrollMetricsProvider = customScrollMetricsProvider != null
+        ? customScrollMetricsProvider : createScrollMetricsProvider(layout);
+  }
+
+  /**
+   * Sets the provider of the scroll geometry, replacing the one resolved from the layout manager. Pass {@code null}
+   * to go back to the built-in provider.
+   */
+  public void setScrollMetricsProvider(ScrollMetricsProvider provider) {
+    customScrollMetricsProvider = provider;
+    scrollMetricsProvider = provider != null ? provider : createScrollMetricsProvider(getLayoutManager());
+  }
+
+  /**
+   * Returns the provider of the scroll geometry, or {@code null} if no layout manager is set.
+   */
+  public ScrollMetricsProvider getScrollMetricsProvider() {
+    return scrollMetricsProvider;
+  }
+
+  /**
+   * Creates the scroll metrics for the layout manager. Layout managers implementing {@link ScrollMetricsProvider}
+   * are used directly.
+   */
+  protected ScrollMetricsProvider createScrollMetricsProvider(LayoutManager layout) {
+    if (layout instanceof ScrollMetricsProvider) {
+      return (ScrollMetricsProvider) layout;
+    } else if (layout instanceof GridLayoutManager) {
+      return new GridScrollMetrics(this, (GridLayoutManager) layout);
+    } else if (layout instanceof LinearLayoutManager) {
+      return new LinearScrollMetrics(this, (LinearLayoutManager) layout);
+    } else if (layout instanceof StaggeredGridLayoutManager) {
+      return new StaggeredGridScrollMetrics(this, (StaggeredGridLayoutManager) layout);
+    } else if (layout != null) {
+      return new ComputedScrollMetrics(this);
+    }
+    return null;
+  }
+
+  /**
+   * <p>Maps the touch (from 0..1) to the adapter position that should be visible.</p>
+   *
+   * <p>Override in each subclass of this base class.</p>
+   */
+  public String scrollToPositionAtProgress(float touchFraction) {
+    boolean trace = FastScrollTrace.isEnabled();
+    if (trace) {
+      FastScrollTrace.beginSection(FastScrollTrace.SCROLL_TO_PROGRESS);
+    }
+    try {
+      return jumpToProgress(touchFraction);
+    } finally {
+      if (trace) {
+        FastScrollTrace.endSection();
+      }
+    }
+  }
+
+  /**
+   * Maps the touch (from 0..1) to the adapter position like {@link #scrollToPositionAtProgress(float)}, without
+   * moving the list. Used while the thumb is dragged in {@link #SCRUB_MODE_PREVIEW}.
+   *
+   * @return the section name of the position
+   */
+  public String previewPositionAtProgress(float touchFraction) {
+    return jumpToProgress(touchFraction, false);
+  }
+
+  private String jumpToProgress(float touchFraction) {
+    return jumpToProgress(touchFraction, true);
+  }
+
+  private String jumpToProgress(float touchFraction, boolean jump) {
+    Adapter adapter = getAdapter();
+    ScrollMetricsProvider metrics = scrollMetricsProvider;
+    int itemCount = adapter == null ? 0 : adapter.getItemCount();
+    if (itemCount == 0 || metrics == null) {
+      return "";
+    }
+
+    // Stop the scroller if it is scrolling
+    stopScroll();
+
+    // A preview does not move the list, so it does not request pages either
+    PagedJumpController pagedJumpController = jump ? getPagedJumpController() : null;
+    SectionScrubMapping equalSpacing = getEqualSpacingMapping();
+    if (equalSpacing != null) {
+      scrubPosition = equalSpacing.getPositionForProgress(touchFraction);
+      if (pagedJumpController != null) {
+        onPagedScrub(pagedJumpController, scrubPosition);
+      } else if (jump) {
+        scrollToAdapterPosition(scrubPosition);
+      }
+      return getSectionNameForPosition(scrubPosition);
+    }
+
+    int visibleHeight = getVisibleHeight();
+    int scrollOffset = (int) (Math.max(0, metrics.getScrollRange() - visibleHeight) * touchFraction);
+    if (pagedJumpController != null) {
+      // Unloaded rows are not laid out until their page is there, the controller decides when to move
+      onPagedScrub(pagedJumpController, metrics.getPositionAtOffset(scrollOffset));
+    } else if (jump) {
+      metrics.scrollToOffset(scrollOffset);
+    }
+
+    // The popup names the item at the same fraction of the visible area as the thumb is of the track. The provider
+    // maps the offset, so this also holds for reverse layouts where the last row on screen is position 0.
+    scrubPosition = metrics.getPositionAtOffset(scrollOffset + (int) (visibleHeight * touchFraction));
+    return getSectionNameForPosition(scrubPosition);
+  }
+
+  /**
+   * Returns the section name shown in the popup for the adapter position.
+   */
+  private String getSectionNameForPosition(int position) {
+    boolean trace = FastScrollTrace.isEnabled();
+    if (trace) {
+      FastScrollTrace.beginSection(FastScrollTrace.SECTION_NAME);
+    }
+    try {
+      return resolveSectionName(position);
+    } finally {
+      if (trace) {
+        FastScrollTrace.endSection();
+      }
+    }
+  }
+
+  private String resolveSectionName(int position) {
+    Adapter adapter = getAdapter();
+
+    if (adapter instanceof PagedAdapter) {
+      return getPagedJumpController().getSectionName(position);
+    }
+
+    if (adapter instanceof SegmentedAdapter) {
+      return getCompositeScrollIndex().getSectionNameForPosition(position);
+    }
+
+    if (adapter instanceof NestedSectionedAdapter) {
+      return getHierarchicalSectionIndex().getSectionNameForPosition(position);
+    }
+
+    // Prefer the section table when the adapter supplies one, it never touches per-item data
+    if (adapter instanceof SectionIndexProvider || adapter instanceof SectionIndexer) {
+      return getSectionIndex().getSectionNameForPosition(position);
+    }
+
+    if (adapter instanceof AsyncSectionedAdapter) {
+      return getSectionNameLoader().getSectionName(position);
+    }
+
+    if (!(adapter instanceof SectionedAdapter)) {
+      return "";
+    }
+
+    SectionedAdapter sectionedAdapter = (SectionedAdapter) adapter;
+    return sectionedAdapter.getSectionName(position);
+  }
+
+  /**
+   * <p>Updates the bounds for the scrollbar.</p>
+   *
+   * <p>Override in each subclass of this base class.</p>
+   */
+  public void onUpdateScrollbar(int dy) {
+    boolean trace = FastScrollTrace.isEnabled();
+    if (trace) {
+      FastScrollTrace.beginSection(FastScrollTrace.UPDATE_SCROLLBAR);
+    }
+    try {
+      updateThumbOffset(dy);
+    } finally {
+      if (trace) {
+        FastScrollTrace.endSection();
+      }
+    }
+  }
 
-        return Math.round((height - (paddingTop + paddingBottom)) / visibleRows);
+  private void updateThumbOffset(int dy) {
+    Adapter adapter = getAdapter();
+    ScrollMetricsProvider metrics = scrollMetricsProvider;
+    // Skip early if, there are no items.
+    if (adapter == null || metrics == null || adapter.getItemCount() == 0) {
+      hideThumb();
+      return;
+    }
+
+    // Skip early if, there no child laid out in the container.
+    int scrollOffset = metrics.getScrollOffset();
+    if (scrollOffset < 0) {
+      if (restoredThumbProgress >= 0) {
+        // Keep the thumb where it was before the configuration change until the first layout
+        setThumbOffsetAtProgress(restoredThumbProgress);
+      } else {
+        hideThumb();
       }
+      return;
+    }
+    restoredThumbProgress = -1;
+
+    // Only show the scrollbar if there is height to be scrolled
+    int availableScrollHeight = metrics.getScrollRange() - getVisibleHeight();
+    if (availableScrollHeight <= 0) {
+      hideThumb();
+      return;
+    }
+
+    SectionScrubMapping equalSpacing = getEqualSpacingMapping();
+    View child = getChildAt(0);
+    if (equalSpacing != null && child != null && child.getHeight() > 0) {
+      // Place the thumb where dragging it would show the top row
+      float hidden = Math.max(0f, Math.min(1f, (getPaddingTop() - child.getTop()) / (float) child.getHeight()));
+      setThumbOffsetAtProgress(equalSpacing.getProgressForPosition(getChildLayoutPosition(child) + hidden));
+      return;
+    }
+    setThumbOffsetAtProgress(Math.max(0f, Math.min(1f, (float) scrollOffset / availableScrollHeight)));
+  }
+
+  /**
+   * <p>Override in each subclass of this base class.</p>
+   */
+  public void onFastScrollCompleted() {
+  }
+
+  /**
+   * Returns information about the item that the recycler view is currently scrolled to.
+   */
+  protected void getCurScrollState(ScrollPositionState stateOut) {
+    if (scrollMetricsProvider instanceof LinearScrollMetrics) {
+      ((LinearScrollMetrics) scrollMetricsProvider).getCurScrollState(stateOut);
+    } else {
+      stateOut.rowIndex = -1;
+      stateOut.rowTopOffset = -1;
+      stateOut.rowHeight = -1;
     }
+  }
 
+  /**
+   * Calculates the row height based on the average of the visible children, to handle scrolling
+   * through children with different heights gracefully. See
+   * {@link LinearScrollMetrics#calculateRowHeight(int)}.
+   */
+  protected int calculateRowHeight(int fallbackHeight) {
+    if (scrollMetricsProvider instanceof LinearScrollMetrics) {
+      return ((LinearScrollMetrics) scrollMetricsProvider).calculateRowHeight(fallbackHeight);
+    }
     return fallbackHeight;
   }
 
@@ -454,6 +1883,229 @@ public class FastScrollRecyclerView extends RecyclerView implements RecyclerView
     @NonNull String getSectionName(int position);
   }
 
+  /**
+   * Interface to implement in an adapter whose sections are nested, such as year and month or artist and album. The
+   * popup shows both names, and the sections are indexed once, see {@link HierarchicalSectionIndex}.
+   */
+  public interface NestedSectionedAdapter extends SectionedAdapter {
+
+    /**
+     * @param position
+     *     the item position
+     * @return the name of the subsection within the item's section
+     */
+    @NonNull String getSubsectionName(int position);
+  }
+
+  /**
+   * Interface to implement in an adapter that concatenates several child adapters, such as headers, a pinned section
+   * and the main list. Sections and row heights are then tracked per child adapter, see
+   * {@link CompositeScrollIndex}. Child adapters can implement any of the section interfaces.
+   */
+  public interface SegmentedAdapter {
+
+    /**
+     * @return the number of child adapters
+     */
+    int getSegmentCount();
+
+    /**
+     * @param segment
+     *     the index of the child adapter, in display order
+     * @return the child adapter
+     */
+    @NonNull RecyclerView.Adapter getSegment(int segment);
+  }
+
+  /**
+   * Interface to implement in your {@link RecyclerView.Adapter} when section names are expensive to compute. The
+   * popup shows a cached name or the placeholder right away and is updated once the name has been loaded on a
+   * background thread. See {@link AsyncSectionNameLoader}.
+   */
+  public interface AsyncSectionedAdapter {
+
+    /**
+     * Called on a background thread.
+     *
+     * @param position
+     *     the item position
+     * @return the section name for this item
+     */
+    @WorkerThread @NonNull String loadSectionName(int position);
+
+    /**
+     * Called on the UI thread while the section name is loading. Must be cheap, for example the last known name or
+     * an empty string to hide the popup.
+     *
+     * @param position
+     *     the item position
+     * @return the text to show until the section name is loaded
+     */
+    @NonNull String getPlaceholderSectionName(int position);
+  }
+
+  /**
+   * Interface to implement in your {@link RecyclerView.Adapter} when all rows have the same height, such as settings
+   * or log lines. The thumb and jumps are then computed from the row index alone. See
+   * {@link FastScrollRecyclerView#setFixedItemHeight(int)}.
+   */
+  public interface FixedItemSizeAdapter {
+
+    /**
+     * @return the height of every row in pixels, in a grid the height of a row of items, or 0 to measure the rows
+     */
+    int getFixedItemHeight();
+  }
+
+  /**
+   * Interface to implement in your {@link RecyclerView.Adapter} when the section boundaries are already known, for
+   * example from a {@code GROUP BY} query (see {@link SectionIndex#fromCursor}). The popup then resolves section
+   * names with a binary search over the index instead of reading every item.
+   */
+  public interface SectionIndexProvider {
+
+    /**
+     * @return the sections of the adapter. Call {@link FastScrollRecyclerView#invalidateSectionIndex()} when it
+     * changes without a change notification from the adapter.
+     */
+    @NonNull SectionIndex getSectionIndex();
+  }
+
+  /**
+   * Interface to implement in your {@link RecyclerView.Adapter} when the data is loaded in pages and unloaded rows
+   * are shown as placeholders. A fast scroll then never reads an unloaded row: section names come from the page
+   * metadata and pages are requested only once the thumb rests over them. See {@link PagedJumpController}.
+   */
+  public interface PagedAdapter {
+
+    /**
+     * @return the number of items in a page
+     */
+    int getPageSize();
+
+    /**
+     * @param page
+     *     the page index
+     * @return {@code true} if the items of the page are loaded
+     */
+    boolean isPageLoaded(int page);
+
+    /**
+     * Starts loading a page. Must not block; notify the adapter once the page is loaded.
+     *
+     * @param page
+     *     the page index
+     */
+    void requestPage(int page);
+
+    /**
+     * Called on the UI thread for pages that may not be loaded. Must be cheap, for example a name kept with the page
+     * count.
+     *
+     * @param page
+     *     the page index
+     * @return the section name of the page
+     */
+    @NonNull String getPageSectionName(int page);
+  }
+
+  /**
+   * The state saved across configuration changes. Caches are kept in primitive arrays and are only used again if
+   * they still match the adapter's item count and stable IDs.
+   *
+   * <p>The section table is only saved for adapters with stable IDs. Without them a list that was reordered but kept
+   * its size cannot be told apart from the saved one, so the table is scanned again instead.</p>
+   */
+  public static class SavedState extends AbsSavedState {
+
+    /*package*/ int itemCount;
+    /*package*/ int rowHeight = -1;
+    /*package*/ float thumbProgress = -1;
+    /*package*/ int[] backgroundPadding;
+    /*package*/ String[] sectionNames;
+    /*package*/ int[] sectionPositions;
+    /*package*/ long[] sectionIds; // stable ID of the first item of each section, or null
+
+    SavedState(Parcelable superState) {
+      super(superState);
+    }
+
+    SavedState(Parcel in, ClassLoader loader) {
+      // The state of RecyclerView is a support library class, the framework class loader cannot find it before API 23
+      super(in, loader != null ? loader : RecyclerView.class.getClassLoader());
+      itemCount = in.readInt();
+      rowHeight = in.readInt();
+      thumbProgress = in.readFloat();
+      backgroundPadding = in.createIntArray();
+      sectionNames = in.createStringArray();
+      sectionPositions = in.createIntArray();
+      sectionIds = in.createLongArray();
+    }
+
+    @Override public void writeToParcel(Parcel out, int flags) {
+      super.writeToParcel(out, flags);
+      out.writeInt(itemCount);
+      out.writeInt(rowHeight);
+      out.writeFloat(thumbProgress);
+      out.writeIntArray(backgroundPadding);
+      out.writeStringArray(sectionNames);
+      out.writeIntArray(sectionPositions);
+      out.writeLongArray(sectionIds);
+    }
+
+    /*package*/ void setSections(SectionIndex index, Adapter adapter, int maxBytes) {
+      int count = index.getSectionCount();
+      if (count == 0 || !adapter.hasStableIds()) {
+        return;
+      }
+      int bytes = 0;
+      for (int section = 0; section < count && bytes <= maxBytes; section++) {
+        // length prefix + UTF-16 chars + position + stable ID
+        bytes += 16 + 2 * index.getSectionName(section).length();
+      }
+      if (bytes > maxBytes) {
+        return;
+      }
+      sectionNames = new String[count];
+      sectionPositions = new int[count];
+      sectionIds = new long[count];
+      for (int section = 0; section < count; section++) {
+        sectionNames[section] = index.getSectionName(section);
+        sectionPositions[section] = index.getPositionForSection(section);
+        sectionIds[section] = adapter.getItemId(sectionPositions[section]);
+      }
+    }
+
+    /*package*/ boolean matches(Adapter adapter) {
+      if (sectionNames == null || sectionIds == null || adapter.getItemCount() != itemCount
+          || !adapter.hasStableIds()) {
+        return false;
+      }
+      for (int section = 0; section < sectionIds.length; section++) {
+        if (adapter.getItemId(sectionPositions[section]) != sectionIds[section]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /*package*/ SectionIndex toSectionIndex() {
+      return new SectionIndex(sectionNames, sectionPositions, itemCount);
+    }
+
+    public static final Creator<SavedState> CREATOR = ParcelableCompat.newCreator(
+        new ParcelableCompatCreatorCallbacks<SavedState>() {
+
+          @Override public SavedState createFromParcel(Parcel in, ClassLoader loader) {
+            return new SavedState(in, loader);
+          }
+
+          @Override public SavedState[] newArray(int size) {
+            return new SavedState[size];
+          }
+        });
+  }
+
   /**
    * The current scroll state of the recycler view.  We use this in onUpdateScrollbar()
    * and scrollToPositionAtProgress() to determine the scroll position of the recycler view so
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.annotation.ColorInt;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+
+/**
+ * A vertical rail of section labels (A-Z or any custom sections) drawn beside the {@link FastScrollBar}. Touching a
+ * label jumps straight to the first item of that section using the {@link SectionIndex} of the recycler view.
+ */
+public class FastScrollSectionRail {
+
+  private final Rect bounds = new Rect();
+  private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+
+  private FastScrollRecyclerView recyclerView;
+  private Paint textPaint;
+  private int railWidth;
+
+  // Glyph metrics cached for the current index, so drawing never measures text
+  private SectionIndex sectionIndex;
+  private float[] labelWidths = new float[0];
+  private float textHeight;
+
+  private boolean isTouching;
+  private int touchedSection = -1;
+
+  public FastScrollSectionRail(FastScrollRecyclerView rv, AttributeSet attrs) {
+    this(rv, FastScrollStyle.obtain(rv.getContext(), attrs, 0));
+  }
+
+  public FastScrollSectionRail(FastScrollRecyclerView rv, FastScrollStyle style) {
+    recyclerView = rv;
+    textPaint = new Paint();
+    textPaint.setAntiAlias(true);
+    setStyle(style);
+  }
+
+  /*package*/ void setStyle(FastScrollStyle style) {
+    railWidth = style.sectionRailWidth;
+    textPaint.setColor(style.sectionRailTextColor);
+    setTextSize(style.sectionRailTextSize);
+  }
+
+  public void setTextColor(@ColorInt int color) {
+    textPaint.setColor(color);
+    recyclerView.invalidate(bounds);
+  }
+
+  public void setTextSize(float textSize) {
+    textPaint.setTextSize(textSize);
+    updateTextHeight();
+    sectionIndex = null; // re-measure the labels on the next draw
+    recyclerView.invalidate(bounds);
+  }
+
+  public int getWidth() {
+    return railWidth;
+  }
+
+  public boolean isTouching() {
+    return isTouching;
+  }
+
+  /**
+   * Handles the touch event and jumps to the touched section.
+   *
+   * @return {@code true} if the rail owns the current gesture.
+   */
+  protected boolean handleTouchEvent(MotionEvent ev) {
+    int x = (int) ev.getX();
+    int y = (int) ev.getY();
+    switch (ev.getAction()) {
+      case MotionEvent.ACTION_DOWN:
+        if (getSectionIndex().getSectionCount() > 0 && bounds.contains(x, y)) {
+          isTouching = true;
+          recyclerView.getParent().requestDisallowInterceptTouchEvent(true);
+          recyclerView.stopScroll();
+          scrollToSectionAt(y);
+        }
+        break;
+      case MotionEvent.ACTION_MOVE:
+        if (isTouching) {
+          scrollToSectionAt(y);
+        }
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        if (isTouching) {
+          isTouching = false;
+          touchedSection = -1;
+          recyclerView.getFastScrollBar().getFastScrollPopup().animateVisibility(false);
+          recyclerView.hideScrollBar();
+          return true;
+        }
+        break;
+    }
+    return isTouching;
+  }
+
+  protected void draw(Canvas canvas) {
+    SectionIndex index = getSectionIndex();
+    int sectionCount = index.getSectionCount();
+    updateBounds();
+    if (sectionCount == 0 || bounds.height() <= 0) {
+      return;
+    }
+    if (index != sectionIndex) {
+      measureLabels(index);
+    }
+
+    // Skip labels when they do not all fit, touches still resolve to every section.
+    float slotHeight = bounds.height() / (float) sectionCount;
+    int step = Math.max(1, (int) Math.ceil(textHeight / slotHeight));
+    float centerX = bounds.exactCenterX();
+    float baselineOffset = (slotHeight - fontMetrics.ascent - fontMetrics.descent) / 2;
+    for (int section = 0; section < sectionCount; section += step) {
+      canvas.drawText(index.getSectionName(section), centerX - labelWidths[section] / 2,
+          bounds.top + section * slotHeight + baselineOffset, textPaint);
+    }
+  }
+
+  private void scrollToSectionAt(int y) {
+    SectionIndex index = getSectionIndex();
+    int sectionCount = index.getSectionCount();
+    int section = (int) ((y - bounds.top) / (bounds.height() / (float) sectionCount));
+    section = Math.max(0, Math.min(sectionCount - 1, section));
+    if (section == touchedSection) {
+      return;
+    }
+    touchedSection = section;
+
+    recyclerView.scrollToSectionPosition(index.getPositionForSection(section));
+
+    // Share the fast scroller popup for feedback
+    FastScrollPopup popup = recyclerView.getFastScrollBar().getFastScrollPopup();
+    popup.setSectionName(index.getSectionName(section));
+    popup.animateVisibility(true);
+    recyclerView.invalidate(popup.updateFastScrollerBounds(recyclerView, y));
+  }
+
+  private SectionIndex getSectionIndex() {
+    // Empty until the index of a large adapter was scanned in idle time
+    return recyclerView.peekSectionIndex();
+  }
+
+  private void updateBounds() {
+    Rect padding = recyclerView.getBackgroundPadding();
+    int edge = recyclerView.getMaxScrollbarWidth();
+    if (Utilities.isRtl(recyclerView.getResources())) {
+      bounds.left = padding.left + edge;
+      bounds.right = bounds.left + railWidth;
+    } else {
+      bounds.right = recyclerView.getWidth() - padding.right - edge;
+      bounds.left = bounds.right - railWidth;
+    }
+    bounds.top = padding.top + recyclerView.getPaddingTop();
+    bounds.bottom = recyclerView.getHeight() - padding.bottom - recyclerView.getPaddingBottom();
+  }
+
+  private void measureLabels(SectionIndex index) {
+    int sectionCount = index.getSectionCount();
+    if (labelWidths.length < sectionCount) {
+      labelWidths = new float[sectionCount];
+    }
+    for (int section = 0; section < sectionCount; section++) {
+      labelWidths[section] = textPaint.measureText(index.getSectionName(section));
+    }
+    sectionIndex = index;
+  }
+
+  private void updateTextHeight() {
+    textPaint.getFontMetrics(fontMetrics);
+    textHeight = fontMetrics.descent - fontMetrics.ascent;
+  }
+
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The resolved look and behavior of a {@link FastScrollRecyclerView} and its scroll bar, popup, section rail and
+ * sticky headers.
+ *
+ * <p>The styled attributes are read with a single {@code obtainStyledAttributes} call per view and every component
+ * takes its values from here. When the layout only sets a {@code style} (or nothing) and no fast scroll attribute
+ * directly, the result depends on the theme and the style resource only, and is shared by every view inflated with
+ * them, so lists in nested pagers resolve their style once. Styles are immutable; use a {@link Builder} to make one in
+ * code and {@link FastScrollRecyclerView#setFastScrollStyle(FastScrollStyle)} to apply it.</p>
+ */
+public final class FastScrollStyle {
+
+  public static final int DEFAULT_HIDE_DELAY = 1000;
+
+  // Resolved styles by theme, then by style resource and default style attribute
+  private static final Map<Resources.Theme, Map<Long, FastScrollStyle>> CACHE = new WeakHashMap<>();
+
+  /*package*/ final boolean alwaysEnabled;
+  /*package*/ final int hideDelay;
+  /*package*/ final boolean thumbCurvatureEnabled;
+  /*package*/ final int thumbActiveColor;
+  /*package*/ final int thumbInactiveColor;
+  /*package*/ final int trackColor;
+  /*package*/ final int thumbMinWidth;
+  /*package*/ final int thumbMaxWidth;
+  /*package*/ final int thumbHeight;
+  /*package*/ final int thumbTouchInset;
+  /*package*/ final int popupBackgroundColor;
+  /*package*/ final int popupTextColor;
+  /*package*/ final float popupTextSize;
+  /*package*/ final float popupSubsectionTextSize;
+  /*package*/ final int popupPadding;
+  /*package*/ final Drawable.ConstantState popupBackground;
+  /*package*/ final boolean sectionRailEnabled;
+  /*package*/ final int sectionRailTextColor;
+  /*package*/ final float sectionRailTextSize;
+  /*package*/ final int sectionRailWidth;
+  /*package*/ final boolean stickyHeadersEnabled;
+  /*package*/ final int stickyHeaderHeight;
+  /*package*/ final int stickyHeaderPadding;
+  /*package*/ final float stickyHeaderTextSize;
+  /*package*/ final int stickyHeaderTextColor;
+  /*package*/ final int stickyHeaderBackgroundColor;
+  /*package*/ final boolean preMeasureEnabled;
+  /*package*/ final int sectionSpacing;
+  /*package*/ final int fixedItemHeight;
+
+  private FastScrollStyle(Builder builder) {
+    alwaysEnabled = builder.alwaysEnabled;
+    hideDelay = builder.hideDelay;
+    thumbCurvatureEnabled = builder.thumbCurvatureEnabled;
+    thumbActiveColor = builder.thumbActiveColor;
+    thumbInactiveColor = builder.thumbInactiveColor;
+    trackColor = builder.trackColor;
+    thumbMinWidth = builder.thumbMinWidth;
+    thumbMaxWidth = builder.thumbMaxWidth;
+    thumbHeight = builder.thumbHeight;
+    thumbTouchInset = builder.thumbTouchInset;
+    popupBackgroundColor = builder.popupBackgroundColor;
+    popupTextColor = builder.popupTextColor;
+    popupTextSize = builder.popupTextSize;
+    popupSubsectionTextSize = builder.popupSubsectionTextSize;
+    popupPadding = builder.popupPadding;
+    popupBackground = builder.popupBackground;
+    sectionRailEnabled = builder.sectionRailEnabled;
+    sectionRailTextColor = builder.sectionRailTextColor;
+    sectionRailTextSize = builder.sectionRailTextSize;
+    sectionRailWidth = builder.sectionRailWidth;
+    stickyHeadersEnabled = builder.stickyHeadersEnabled;
+    stickyHeaderHeight = builder.stickyHeaderHeight;
+    stickyHeaderPadding = builder.stickyHeaderPadding;
+    stickyHeaderTextSize = builder.stickyHeaderTextSize;
+    stickyHeaderTextColor = builder.stickyHeaderTextColor;
+    stickyHeaderBackgroundColor = builder.stickyHeaderBackgroundColor;
+    preMeasureEnabled = builder.preMeasureEnabled;
+    sectionSpacing = builder.sectionSpacing;
+    fixedItemHeight = builder.fixedItemHeight;
+  }
+
+  /**
+   * Resolves the style of a view from its attributes and theme. The result is cached per theme and style resource
+   * unless the attributes set fast scroll values directly.
+   */
+  @NonNull public static FastScrollStyle obtain(@NonNull Context context, AttributeSet attrs, int defStyleAttr) {
+    Resources.Theme theme = context.getTheme();
+    boolean cacheable = theme != null && !hasFastScrollAttributes(attrs);
+    long key = ((long) (attrs != null ? attrs.getStyleAttribute() : 0) << 32) | (defStyleAttr & 0xFFFFFFFFL);
+    if (cacheable) {
+      synchronized (CACHE) {
+        Map<Long, FastScrollStyle> styles = CACHE.get(theme);
+        FastScrollStyle style = styles != null ? styles.get(key) : null;
+        if (style != null) {
+          return style;
+        }
+      }
+    }
+
+    Builder builder = new Builder(context);
+    TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.FastScrollRecyclerView, defStyleAttr, 0);
+    try {
+      builder.alwaysEnabled = ta.getBoolean(R.styleable.FastScrollRecyclerView_fastScrollAlwaysEnabled,
+          builder.alwaysEnabled);
+      builder.hideDelay = ta.getInt(R.styleable.FastScrollRecyclerView_fastScrollHideDelay, builder.hideDelay);
+      builder.thumbCurvatureEnabled = ta.getBoolean(R.styleable.FastScrollRecyclerView_fastScrollThumbCurvatureEnabled,
+          builder.thumbCurvatureEnabled);
+      builder.thumbInactiveColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollThumbInactiveColor,
+          builder.thumbInactiveColor);
+      builder.thumbActiveColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollThumbActiveColor,
+          builder.thumbActiveColor);
+      builder.trackColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollTrackColor, builder.trackColor);
+      builder.popupBackgroundColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollPopupBackgroundColor,
+          builder.popupBackgroundColor);
+      builder.popupTextColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollPopupTextColor,
+          builder.popupTextColor);
+      builder.popupTextSize = ta.getDimension(R.styleable.FastScrollRecyclerView_fastScrollTextSize,
+          builder.popupTextSize);
+      builder.popupPadding = (int) ta.getDimension(R.styleable.FastScrollRecyclerView_fastScrollPopupPadding,
+          builder.popupPadding);
+      builder.sectionRailEnabled = ta.getBoolean(R.styleable.FastScrollRecyclerView_fastScrollSectionRailEnabled,
+          builder.sectionRailEnabled);
+      builder.sectionRailTextColor = ta.getColor(R.styleable.FastScrollRecyclerView_fastScrollSectionRailTextColor,
+          builder.sectionRailTextColor);
+      builder.sectionRailTextSize = ta.getDimension(R.styleable.FastScrollRecyclerView_fastScrollSectionRailTextSize,
+          builder.sectionRailTextSize);
+      builder.preMeasureEnabled = ta.getBoolean(R.styleable.FastScrollRecyclerView_fastScrollPreMeasureEnabled,
+          builder.preMeasureEnabled);
+      builder.stickyHeadersEnabled = ta.getBoolean(
+          R.styleable.FastScrollRecyclerView_fastScrollStickyHeadersEnabled, builder.stickyHeadersEnabled);
+      builder.sectionSpacing = ta.getInt(R.styleable.FastScrollRecyclerView_fastScrollSectionSpacing,
+          builder.sectionSpacing);
+      builder.fixedItemHeight = ta.getDimensionPixelSize(R.styleable.FastScrollRecyclerView_fastScrollFixedItemHeight,
+          builder.fixedItemHeight);
+    } finally {
+      ta.recycle();
+    }
+    FastScrollStyle style = builder.build();
+
+    if (cacheable) {
+      synchronized (CACHE) {
+        Map<Long, FastScrollStyle> styles = CACHE.get(theme);
+        if (styles == null) {
+          styles = new HashMap<>();
+          CACHE.put(theme, styles);
+        }
+        styles.put(key, style);
+      }
+    }
+    return style;
+  }
+
+  /**
+   * Drops all cached styles, for example after a theme was changed with {@link Resources.Theme#applyStyle(int,
+   * boolean)}.
+   */
+  public static void clearCache() {
+    synchronized (CACHE) {
+      CACHE.clear();
+    }
+  }
+
+  private static boolean hasFastScrollAttributes(AttributeSet attrs) {
+    if (attrs == null) {
+      return false;
+    }
+    for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+      int attr = attrs.getAttributeNameResource(i);
+      for (int styleable : R.styleable.FastScrollRecyclerView) {
+        if (attr == styleable) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns a builder initialized with the values of this style.
+   */
+  @NonNull public Builder buildUpon() {
+    return new Builder(this);
+  }
+
+  /*package*/ Drawable newPopupBackground(Resources res) {
+    return popupBackground.newDrawable(res);
+  }
+
+  public boolean isAlwaysEnabled() {
+    return alwaysEnabled;
+  }
+
+  public int getHideDelay() {
+    return hideDelay;
+  }
+
+  @ColorInt public int getThumbActiveColor() {
+    return thumbActiveColor;
+  }
+
+  @ColorInt public int getThumbInactiveColor() {
+    return thumbInactiveColor;
+  }
+
+  @ColorInt public int getTrackColor() {
+    return trackColor;
+  }
+
+  @ColorInt public int getPopupBackgroundColor() {
+    return popupBackgroundColor;
+  }
+
+  @ColorInt public int getPopupTextColor() {
+    return popupTextColor;
+  }
+
+  public float getPopupTextSize() {
+    return popupTextSize;
+  }
+
+  public boolean isSectionRailEnabled() {
+    return sectionRailEnabled;
+  }
+
+  public boolean isStickyHeadersEnabled() {
+    return stickyHeadersEnabled;
+  }
+
+  public int getSectionSpacing() {
+    return sectionSpacing;
+  }
+
+  /**
+   * Returns the height every row of the list is declared to have, or 0 if rows are measured.
+   */
+  public int getFixedItemHeight() {
+    return fixedItemHeight;
+  }
+
+  /**
+   * Builds a {@link FastScrollStyle} in code. Values not set keep the library defaults, or the values of the style
+   * the builder was made from.
+   */
+  public static final class Builder {
+
+    private boolean alwaysEnabled;
+    private int hideDelay = DEFAULT_HIDE_DELAY;
+    private boolean thumbCurvatureEnabled;
+    private int thumbActiveColor;
+    private int thumbInactiveColor;
+    private int trackColor = Color.BLACK;
+    private int thumbMinWidth;
+    private int thumbMaxWidth;
+    private int thumbHeight;
+    private int thumbTouchInset;
+    private int popupBackgroundColor = Color.TRANSPARENT;
+    private int popupTextColor = Color.WHITE;
+    private float popupTextSize;
+    private float popupSubsectionTextSize;
+    private int popupPadding;
+    private Drawable.ConstantState popupBackground;
+    private boolean sectionRailEnabled;
+    private int sectionRailTextColor;
+    private float sectionRailTextSize;
+    private int sectionRailWidth;
+    private boolean stickyHeadersEnabled;
+    private int stickyHeaderHeight;
+    private int stickyHeaderPadding;
+    private float stickyHeaderTextSize;
+    private int stickyHeaderTextColor;
+    private int stickyHeaderBackgroundColor;
+    private boolean preMeasureEnabled;
+    private int sectionSpacing = FastScrollRecyclerView.SECTION_SPACING_PROPORTIONAL;
+    private int fixedItemHeight;
+
+    public Builder(@NonNull Context context) {
+      Resources res = context.getResources();
+      thumbActiveColor = res.getColor(R.color.fastscroll_thumb_active_color);
+      thumbInactiveColor = res.getColor(R.color.fastscroll_thumb_inactive_color);
+      thumbMinWidth = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_min_width);
+      thumbMaxWidth = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_max_width);
+      thumbHeight = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_height);
+      thumbTouchInset = res.getDimensionPixelSize(R.dimen.fastscroll_thumb_touch_inset);
+      popupTextSize = res.getDimensionPixelSize(R.dimen.fastscroll_popup_text_size);
+      popupSubsectionTextSize = res.getDimensionPixelSize(R.dimen.fastscroll_popup_subsection_text_size);
+      popupPadding = res.getDimensionPixelSize(R.dimen.fastscroll_popup_default_padding);
+      popupBackground = res.getDrawable(R.drawable.fastscroll_popup_bg).getConstantState();
+      sectionRailTextColor = res.getColor(R.color.fastscroll_section_rail_text_color);
+      sectionRailTextSize = res.getDimensionPixelSize(R.dimen.fastscroll_section_rail_text_size);
+      sectionRailWidth = res.getDimensionPixelSize(R.dimen.fastscroll_section_rail_width);
+      stickyHeaderHeight = res.getDimensionPixelSize(R.dimen.fastscroll_sticky_header_height);
+      stickyHeaderPadding = res.getDimensionPixelSize(R.dimen.fastscroll_sticky_header_padding);
+      stickyHeaderTextSize = res.getDimensionPixelSize(R.dimen.fastscroll_sticky_header_text_size);
+      stickyHeaderTextColor = res.getColor(R.color.fastscroll_sticky_header_text_color);
+      stickyHeaderBackgroundColor = res.getColor(R.color.fastscroll_sticky_header_background_color);
+    }
+
+    public Builder(@NonNull FastScrollStyle style) {
+      alwaysEnabled = style.alwaysEnabled;
+      hideDelay = style.hideDelay;
+      thumbCurvatureEnabled = style.thumbCurvatureEnabled;
+      thumbActiveColor = style.thumbActiveColor;
+      thumbInactiveColor = style.thumbInactiveColor;
+      trackColor = style.trackColor;
+      thumbMinWidth = style.thumbMinWidth;
+      thumbMaxWidth = style.thumbMaxWidth;
+      thumbHeight = style.thumbHeight;
+      thumbTouchInset = style.thumbTouchInset;
+      popupBackgroundColor = style.popupBackgroundColor;
+      popupTextColor = style.popupTextColor;
+      popupTextSize = style.popupTextSize;
+      popupSubsectionTextSize = style.popupSubsectionTextSize;
+      popupPadding = style.popupPadding;
+      popupBackground = style.popupBackground;
+      sectionRailEnabled = style.sectionRailEnabled;
+      sectionRailTextColor = style.sectionRailTextColor;
+      sectionRailTextSize = style.sectionRailTextSize;
+      sectionRailWidth = style.sectionRailWidth;
+      stickyHeadersEnabled = style.stickyHeadersEnabled;
+      stickyHeaderHeight = style.stickyHeaderHeight;
+      stickyHeaderPadding = style.stickyHeaderPadding;
+      stickyHeaderTextSize = style.stickyHeaderTextSize;
+      stickyHeaderTextColor = style.stickyHeaderTextColor;
+      stickyHeaderBackgroundColor = style.stickyHeaderBackgroundColor;
+      preMeasureEnabled = style.preMeasureEnabled;
+      sectionSpacing = style.sectionSpacing;
+      fixedItemHeight = style.fixedItemHeight;
+    }
+
+    public Builder setAlwaysEnabled(boolean alwaysEnabled) {
+      this.alwaysEnabled = alwaysEnabled;
+      return this;
+    }
+
+    public Builder setHideDelay(int hideDelay) {
+      this.hideDelay = hideDelay;
+      return this;
+    }
+
+    public Builder setThumbCurvatureEnabled(boolean enabled) {
+      this.thumbCurvatureEnabled = enabled;
+      return this;
+    }
+
+    public Builder setThumbActiveColor(@ColorInt int color) {
+      this.thumbActiveColor = color;
+      return this;
+    }
+
+    public Builder setThumbInactiveColor(@ColorInt int color) {
+      this.thumbInactiveColor = color;
+      return this;
+    }
+
+    public Builder setTrackColor(@ColorInt int color) {
+      this.trackColor = color;
+      return this;
+    }
+
+    public Builder setPopupBackgroundColor(@ColorInt int color) {
+      this.popupBackgroundColor = color;
+      return this;
+    }
+
+    public Builder setPopupTextColor(@ColorInt int color) {
+      this.popupTextColor = color;
+      return this;
+    }
+
+    public Builder setPopupTextSize(float textSize) {
+      this.popupTextSize = textSize;
+      return this;
+    }
+
+    public Builder setPopupPadding(int padding) {
+      this.popupPadding = padding;
+      return this;
+    }
+
+    public Builder setSectionRailEnabled(boolean enabled) {
+      this.sectionRailEnabled = enabled;
+      return this;
+    }
+
+    public Builder setSectionRailTextColor(@ColorInt int color) {
+      this.sectionRailTextColor = color;
+      return this;
+    }
+
+    public Builder setSectionRailTextSize(float textSize) {
+      this.sectionRailTextSize = textSize;
+      return this;
+    }
+
+    public Builder setStickyHeadersEnabled(boolean enabled) {
+      this.stickyHeadersEnabled = enabled;
+      return this;
+    }
+
+    public Builder setStickyHeaderTextColor(@ColorInt int color) {
+      this.stickyHeaderTextColor = color;
+      return this;
+    }
+
+    public Builder setStickyHeaderBackgroundColor(@ColorInt int color) {
+      this.stickyHeaderBackgroundColor = color;
+      return this;
+    }
+
+    public Builder setPreMeasureEnabled(boolean enabled) {
+      this.preMeasureEnabled = enabled;
+      return this;
+    }
+
+    public Builder setSectionSpacing(int spacing) {
+      this.sectionSpacing = spacing;
+      return this;
+    }
+
+    /**
+     * Declares that every row of the list has this height in pixels, see
+     * {@link FastScrollRecyclerView#setFixedItemHeight(int)}. Pass 0 to measure the rows.
+     */
+    public Builder setFixedItemHeight(int height) {
+      this.fixedItemHeight = Math.max(0, height);
+      return this;
+    }
+
+    @NonNull public FastScrollStyle build() {
+      return new FastScrollStyle(this);
+    }
+  }
+
+}
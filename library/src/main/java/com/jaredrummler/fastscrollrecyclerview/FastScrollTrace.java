@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.v4.os.TraceCompat;
+
+import java.lang.reflect.Method;
+
+/**
+ * Named trace sections and counters for the hot paths of the fast scroller, so that its work shows up by name in
+ * systrace and Perfetto captures instead of as anonymous time inside {@code RecyclerView} drawing and touch handling.
+ *
+ * <p>Every call site is guarded by {@link #isEnabled()}, which is only {@code true} while the platform is capturing a
+ * trace or a {@link Recorder} is installed. The platform is asked once per frame, from
+ * {@link FastScrollRecyclerView#draw(android.graphics.Canvas)}, so the guard is a field read and a capture started
+ * while the list is shown picks up the sections from the next frame on. Section names are constants, so tracing
+ * never builds strings. Sections are written with {@link TraceCompat} (API 18 and up) and counters with
+ * {@code Trace.setCounter} where the platform has it (API 29 and up). A different {@link Recorder} can be installed
+ * with {@link #setRecorder(Recorder)}, for example to collect the sections in tests.</p>
+ */
+public final class FastScrollTrace {
+
+  public static final String UPDATE_SCROLLBAR = "FastScroll:updateScrollbar";
+  public static final String CALCULATE_ROW_HEIGHT = "FastScroll:calculateRowHeight";
+  public static final String SCROLL_TO_PROGRESS = "FastScroll:scrollToPositionAtProgress";
+  public static final String SECTION_NAME = "FastScroll:sectionName";
+  public static final String DRAW_POPUP = "FastScroll:drawPopup";
+
+  /** The time the list may lag behind a detached thumb, in microseconds. */
+  public static final String COUNTER_JUMP_INTERVAL = "FastScroll:jumpIntervalUs";
+  /** The average cost of a jump including its layout, in microseconds. */
+  public static final String COUNTER_JUMP_COST = "FastScroll:jumpCostUs";
+  /** The number of row heights in the {@link ScrollMetricsCache}. */
+  public static final String COUNTER_ROW_HEIGHT_CACHE = "FastScroll:rowHeightCacheCount";
+  /** The memory held by the caches of the scroller after a trim. */
+  public static final String COUNTER_RETAINED_BYTES = "FastScroll:retainedCacheBytes";
+
+  /**
+   * Receives the trace events. Sections are strictly nested and always ended on the thread that began them.
+   */
+  public interface Recorder {
+
+    void beginSection(@NonNull String name);
+
+    void endSection();
+
+    void setCounter(@NonNull String name, long value);
+  }
+
+  private static final Recorder SYSTEM_RECORDER = new Recorder() {
+
+    private Method setCounter;
+    private boolean setCounterResolved;
+
+    @Override public void beginSection(@NonNull String name) {
+      TraceCompat.beginSection(name);
+    }
+
+    @Override public void endSection() {
+      TraceCompat.endSection();
+    }
+
+    @Override public void setCounter(@NonNull String name, long value) {
+      if (Build.VERSION.SDK_INT < 29) {
+        return;
+      }
+      if (!setCounterResolved) {
+        setCounterResolved = true;
+        try {
+          setCounter = Class.forName("android.os.Trace").getMethod("setCounter", String.class, long.class);
+        } catch (Exception ignored) {
+          // No counters on this platform
+        }
+      }
+      if (setCounter != null) {
+        try {
+          setCounter.invoke(null, name, value);
+        } catch (Exception ignored) {
+          setCounter = null;
+        }
+      }
+    }
+  };
+
+  // Trace.TRACE_TAG_APP, the tag of TraceCompat sections
+  private static final long TRACE_TAG_APP = 1L << 12;
+
+  private static volatile Recorder recorder = SYSTEM_RECORDER;
+  private static volatile boolean enabled;
+  private static Method isTagEnabled;
+  private static boolean isTagEnabledResolved;
+
+  private FastScrollTrace() {
+  }
+
+  /**
+   * Sends the trace events to the recorder instead of the platform tracer. Pass {@code null} to go back to the
+   * platform tracer.
+   */
+  public static void setRecorder(Recorder recorder) {
+    FastScrollTrace.recorder = recorder != null ? recorder : SYSTEM_RECORDER;
+    refresh();
+  }
+
+  /**
+   * Returns whether trace events are sent, as of the last {@link #refresh()}.
+   */
+  /*package*/ static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Asks the platform again whether it is capturing a trace. Called once per frame.
+   */
+  /*package*/ static void refresh() {
+    enabled = recorder != SYSTEM_RECORDER || isCapturing();
+  }
+
+  private static boolean isCapturing() {
+    if (Build.VERSION.SDK_INT < 18) {
+      return false;
+    }
+    if (!isTagEnabledResolved) {
+      isTagEnabledResolved = true;
+      try {
+        // Trace.isEnabled() is public from API 29, older platforms only have the tag check
+        isTagEnabled = Build.VERSION.SDK_INT >= 29
+            ? Class.forName("android.os.Trace").getMethod("isEnabled")
+            : Class.forName("android.os.Trace").getMethod("isTagEnabled", long.class);
+      } catch (Exception ignored) {
+        // No way to tell, trace nothing
+      }
+    }
+    if (isTagEnabled != null) {
+      try {
+        Object result = Build.VERSION.SDK_INT >= 29
+            ? isTagEnabled.invoke(null)
+            : isTagEnabled.invoke(null, TRACE_TAG_APP);
+        return Boolean.TRUE.equals(result);
+      } catch (Exception ignored) {
+        isTagEnabled = null;
+      }
+    }
+    return false;
+  }
+
+  /*package*/ static void beginSection(String name) {
+    recorder.beginSection(name);
+  }
+
+  /*package*/ static void endSection() {
+    recorder.endSection();
+  }
+
+  /*package*/ static void setCounter(String name, long value) {
+    recorder.setCounter(name, value);
+  }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.GridLayoutManager;
+
+/**
+ * {@link ScrollMetricsProvider} for a {@link GridLayoutManager}, where every row holds {@code spanCount} items.
+ */
+public class GridScrollMetrics extends LinearScrollMetrics {
+
+  private final GridLayoutManager gridLayoutManager;
+
+  public GridScrollMetrics(FastScrollRecyclerView rv, GridLayoutManager layoutManager) {
+    super(rv, layoutManager);
+    gridLayoutManager = layoutManager;
+  }
+
+  @Override protected int getSpanCount() {
+    return gridLayoutManager.getSpanCount();
+  }
+
+}
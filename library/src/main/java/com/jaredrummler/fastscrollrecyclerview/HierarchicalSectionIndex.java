@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * An immutable two-level section table, such as year and month or artist and album.
+ *
+ * <p>Sections and subsections are ranges of adapter positions, and every subsection lies inside one section. Because
+ * the ranges nest and do not overlap, each level is stored as a sorted table of start positions (a
+ * {@link SectionIndex}), and the children of a section are a contiguous run of subsections. Looking up either level
+ * for a position is a binary search: O(log n).</p>
+ */
+public final class HierarchicalSectionIndex {
+
+  /** An index without any sections. */
+  public static final HierarchicalSectionIndex EMPTY = new HierarchicalSectionIndex(SectionIndex.EMPTY,
+      SectionIndex.EMPTY);
+
+  private final SectionIndex sections;
+  private final SectionIndex subsections;
+  private final int[] firstSubsections; // the first subsection of each section, followed by the subsection count
+
+  /**
+   * @param sections
+   *     the top-level sections
+   * @param subsections
+   *     the subsections of all sections. A new subsection must start where each section starts.
+   */
+  public HierarchicalSectionIndex(@NonNull SectionIndex sections, @NonNull SectionIndex subsections) {
+    this.sections = sections;
+    this.subsections = subsections;
+    int count = sections.getSectionCount();
+    firstSubsections = new int[count + 1];
+    for (int section = 0; section < count; section++) {
+      int start = sections.getPositionForSection(section);
+      firstSubsections[section] = Math.max(0, subsections.getSectionForPosition(start));
+    }
+    firstSubsections[count] = subsections.getSectionCount();
+  }
+
+  /**
+   * Builds an index by asking the adapter for both names of every item once. A subsection ends wherever its name or
+   * the name of its section changes, so "January" under two different years becomes two subsections.
+   */
+  @NonNull public static HierarchicalSectionIndex build(@NonNull FastScrollRecyclerView.NestedSectionedAdapter adapter,
+                                                        int itemCount) {
+    if (itemCount <= 0) {
+      return EMPTY;
+    }
+    String[] names = new String[16];
+    int[] positions = new int[16];
+    String[] subnames = new String[16];
+    int[] subpositions = new int[16];
+    int count = 0;
+    int subcount = 0;
+    String last = null;
+    String lastSub = null;
+    for (int position = 0; position < itemCount; position++) {
+      String name = adapter.getSectionName(position);
+      String subname = adapter.getSubsectionName(position);
+      boolean newSection = !name.equals(last);
+      if (newSection) {
+        if (count == names.length) {
+          names = Arrays.copyOf(names, count * 2);
+          positions = Arrays.copyOf(positions, count * 2);
+        }
+        names[count] = name;
+        positions[count] = position;
+        count++;
+        last = name;
+      }
+      if (newSection || !subname.equals(lastSub)) {
+        if (subcount == subnames.length) {
+          subnames = Arrays.copyOf(subnames, subcount * 2);
+          subpositions = Arrays.copyOf(subpositions, subcount * 2);
+        }
+        subnames[subcount] = subname;
+        subpositions[subcount] = position;
+        subcount++;
+        lastSub = subname;
+      }
+    }
+    return new HierarchicalSectionIndex(
+        new SectionIndex(Arrays.copyOf(names, count), Arrays.copyOf(positions, count), itemCount),
+        new SectionIndex(Arrays.copyOf(subnames, subcount), Arrays.copyOf(subpositions, subcount), itemCount));
+  }
+
+  /**
+   * Returns the top-level sections.
+   */
+  @NonNull public SectionIndex getSections() {
+    return sections;
+  }
+
+  /**
+   * Returns the subsections of all sections, in adapter order.
+   */
+  @NonNull public SectionIndex getSubsections() {
+    return subsections;
+  }
+
+  public int getItemCount() {
+    return sections.getItemCount();
+  }
+
+  /**
+   * Returns the first subsection of the section.
+   */
+  public int getFirstSubsection(int section) {
+    return firstSubsections[section];
+  }
+
+  /**
+   * Returns the number of subsections in the section.
+   */
+  public int getSubsectionCount(int section) {
+    return firstSubsections[section + 1] - firstSubsections[section];
+  }
+
+  @NonNull public String getSectionNameForPosition(int position) {
+    return sections.getSectionNameForPosition(position);
+  }
+
+  @NonNull public String getSubsectionNameForPosition(int position) {
+    return subsections.getSectionNameForPosition(position);
+  }
+
+  /**
+   * Returns the approximate memory used by both levels, in bytes.
+   */
+  public long getRetainedBytes() {
+    return sections.getRetainedBytes() + subsections.getRetainedBytes() + firstSubsections.length * 4L;
+  }
+
+}
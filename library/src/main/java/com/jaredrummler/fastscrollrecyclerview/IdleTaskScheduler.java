@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs the deferrable work of a {@link FastScrollRecyclerView} on the UI thread, such as hiding the scroll bar,
+ * rebuilding indexes, trimming caches and pre-measuring rows.
+ *
+ * <p>The scroll bar hide is a single deadline. Moving it later, as every scroll and touch does, only updates a field;
+ * the one pending message notices the new deadline when it fires and waits for the rest. The message queue therefore
+ * holds at most one message for it, however often it is rescheduled.</p>
+ *
+ * <p>Maintenance tasks are {@link MessageQueue.IdleHandler}s queued here instead of on the looper. A single idle
+ * handler runs them in turn until the slice budget ({@link #DEFAULT_BUDGET_MS} by default) is spent. A task that
+ * returns {@code true} has more work and is queued again behind the others. What is left runs the next time the
+ * thread becomes idle. The scheduler never wakes the thread up right away for it, that would keep the thread busy
+ * until the queue drains; it posts a single wake-up {@link #WAKE_UP_DELAY_MS} later in case nothing else does. The
+ * time used is recorded and can be read with {@link #getTotalTimeNanos()} and related methods.</p>
+ *
+ * <p>This class is not thread safe and must only be used on the UI thread.</p>
+ */
+public final class IdleTaskScheduler implements MessageQueue.IdleHandler {
+
+  public static final int DEFAULT_BUDGET_MS = 4;
+  /** The delay of the wake-up posted while tasks remain, about one frame. */
+  public static final int WAKE_UP_DELAY_MS = 16;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable wakeUp = new Runnable() {
+
+    @Override public void run() {
+      // Nothing else to do, the message only gives the queue a chance to become idle again
+      wakeUpPosted = false;
+    }
+  };
+  private final ArrayDeque<MessageQueue.IdleHandler> tasks = new ArrayDeque<>();
+  private final Runnable deadlineCheck = new Runnable() {
+
+    @Override public void run() {
+      onDeadlineCheck();
+    }
+  };
+  private int budgetMs = DEFAULT_BUDGET_MS;
+  private boolean registered;
+  private boolean released;
+  private boolean wakeUpPosted;
+
+  private Runnable deadlineAction;
+  private long deadline; // uptime of the deadline, 0 when none
+  private long deadlineCheckTime; // uptime the pending check runs at, 0 when none is posted
+
+  private long totalTimeNanos;
+  private long maxSliceNanos;
+  private int sliceCount;
+  private int taskRunCount;
+
+  /**
+   * Sets the time the queued tasks may use each time the UI thread becomes idle.
+   */
+  public void setBudget(int millis) {
+    budgetMs = Math.max(1, millis);
+  }
+
+  /**
+   * Sets what runs when the deadline passes, see {@link #scheduleDeadline(long)}.
+   */
+  public void setDeadlineAction(Runnable action) {
+    deadlineAction = action;
+  }
+
+  /**
+   * Runs the deadline action after the delay, replacing a deadline that was set before.
+   */
+  public void scheduleDeadline(long delayMillis) {
+    deadline = SystemClock.uptimeMillis() + Math.max(0, delayMillis);
+    if (released) {
+      return;
+    }
+    if (deadlineCheckTime != 0 && deadlineCheckTime <= deadline) {
+      // The pending check comes first and will wait for the rest
+      return;
+    }
+    postDeadlineCheck(deadline);
+  }
+
+  /**
+   * Cancels the deadline. The pending message, if any, is left to run and finds nothing to do.
+   */
+  public void cancelDeadline() {
+    deadline = 0;
+  }
+
+  public boolean hasDeadline() {
+    return deadline != 0;
+  }
+
+  /**
+   * Queues a task to run when the UI thread is idle. A task that is already queued is not added again.
+   */
+  public void schedule(@NonNull MessageQueue.IdleHandler task) {
+    if (!tasks.contains(task)) {
+      tasks.add(task);
+    }
+    register();
+  }
+
+  /**
+   * Removes a queued task.
+   */
+  public void cancel(@NonNull MessageQueue.IdleHandler task) {
+    tasks.remove(task);
+    if (tasks.isEmpty()) {
+      unregister();
+    }
+  }
+
+  public boolean isScheduled(@NonNull MessageQueue.IdleHandler task) {
+    return tasks.contains(task);
+  }
+
+  public int getPendingTaskCount() {
+    return tasks.size();
+  }
+
+  /**
+   * Stops running tasks and waiting for the deadline, for example when the view is detached. Queued tasks and the
+   * deadline are kept until {@link #resume()}.
+   */
+  public void release() {
+    released = true;
+    deadlineCheckTime = 0;
+    handler.removeCallbacks(deadlineCheck);
+    handler.removeCallbacks(wakeUp);
+    wakeUpPosted = false;
+    unregister();
+  }
+
+  /**
+   * Runs the queued tasks again after {@link #release()}.
+   */
+  public void resume() {
+    released = false;
+    if (!tasks.isEmpty()) {
+      register();
+    }
+    if (deadline != 0 && deadlineCheckTime == 0) {
+      postDeadlineCheck(deadline);
+    }
+  }
+
+  /**
+   * Returns the time spent running tasks since the last {@link #resetStats()}.
+   */
+  public long getTotalTimeNanos() {
+    return totalTimeNanos;
+  }
+
+  /**
+   * Returns the longest time a single idle slice took.
+   */
+  public long getMaxSliceNanos() {
+    return maxSliceNanos;
+  }
+
+  /**
+   * Returns the number of idle slices tasks ran in.
+   */
+  public int getSliceCount() {
+    return sliceCount;
+  }
+
+  /**
+   * Returns the number of times a task was run.
+   */
+  public int getTaskRunCount() {
+    return taskRunCount;
+  }
+
+  public void resetStats() {
+    totalTimeNanos = 0;
+    maxSliceNanos = 0;
+    sliceCount = 0;
+    taskRunCount = 0;
+  }
+
+  @Override public boolean queueIdle() {
+    if (released || tasks.isEmpty()) {
+      registered = false;
+      return false;
+    }
+    long start = System.nanoTime();
+    long end = start + budgetMs * 1000000L;
+    // Every task gets at most one turn per slice, so a task that keeps returning true cannot starve the others
+    for (int i = tasks.size(); i > 0 && !tasks.isEmpty(); i--) {
+      MessageQueue.IdleHandler task = tasks.poll();
+      taskRunCount++;
+      if (task.queueIdle() && !tasks.contains(task)) {
+        tasks.add(task);
+      }
+      if (System.nanoTime() >= end) {
+        break;
+      }
+    }
+    long time = System.nanoTime() - start;
+    totalTimeNanos += time;
+    maxSliceNanos = Math.max(maxSliceNanos, time);
+    sliceCount++;
+
+    if (tasks.isEmpty() || released) {
+      registered = false;
+      return false;
+    }
+    postWakeUp(WAKE_UP_DELAY_MS);
+    return true;
+  }
+
+  private void register() {
+    if (!registered && !released) {
+      registered = true;
+      Looper.myQueue().addIdleHandler(this);
+      // The thread may be idle already, in which case it only runs idle handlers after the next message
+      postWakeUp(0);
+    }
+  }
+
+  private void postWakeUp(long delayMillis) {
+    if (!wakeUpPosted) {
+      wakeUpPosted = true;
+      handler.postDelayed(wakeUp, delayMillis);
+    }
+  }
+
+  private void unregister() {
+    if (registered) {
+      registered = false;
+      Looper.myQueue().removeIdleHandler(this);
+    }
+  }
+
+  private void postDeadlineCheck(long time) {
+    handler.removeCallbacks(deadlineCheck);
+    deadlineCheckTime = time;
+    handler.postAtTime(deadlineCheck, time);
+  }
+
+  private void onDeadlineCheck() {
+    deadlineCheckTime = 0;
+    if (deadline == 0) {
+      return;
+    }
+    if (SystemClock.uptimeMillis() < deadline) {
+      postDeadlineCheck(deadline);
+      return;
+    }
+    deadline = 0;
+    if (deadlineAction != null) {
+      deadlineAction.run();
+    }
+  }
+
+}
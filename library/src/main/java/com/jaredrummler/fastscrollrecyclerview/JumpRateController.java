@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+/**
+ * Limits how often a detached thumb moves the list, based on what the jumps of the list actually cost.
+ *
+ * <p>While the thumb is detached it follows the finger on every frame, and the list only jumps to the thumb when the
+ * controller allows it. The cost of a jump is the time of the jump call plus the layout that follows it, which is
+ * where the rows are bound. The controller keeps a moving average of that cost and spaces the jumps so that they use
+ * at most {@link #DEFAULT_MAX_LOAD} of the UI thread. A list that jumps within half a frame jumps on every frame; a
+ * list whose jumps take 40 ms jumps every 80 ms, so the thumb and the popup stay smooth.</p>
+ *
+ * <p>Times are passed in as {@link System#nanoTime()} values, so the controller can be driven without a view.</p>
+ */
+public final class JumpRateController {
+
+  public static final float DEFAULT_MAX_LOAD = 0.5f;
+  public static final long DEFAULT_FRAME_NANOS = 16666667L;
+
+  /** The longest time the list may lag behind the thumb, however slow its jumps are. */
+  private static final long MAX_INTERVAL_NANOS = 250000000L;
+
+  private long frameNanos = DEFAULT_FRAME_NANOS;
+  private float maxLoad = DEFAULT_MAX_LOAD;
+  private long averageCostNanos;
+  private long lastJumpTime;
+  private long pendingCostNanos;
+  private boolean awaitingLayout;
+  private int jumpCount;
+  private int deferredCount;
+
+  /**
+   * Sets the duration of a frame of the display, for example from its refresh rate.
+   */
+  public void setFrameNanos(long nanos) {
+    frameNanos = Math.max(1, nanos);
+  }
+
+  public long getFrameNanos() {
+    return frameNanos;
+  }
+
+  /**
+   * Sets the share of the UI thread that jumps may use, between 0 and 1.
+   */
+  public void setMaxLoad(float load) {
+    maxLoad = Math.max(0.05f, Math.min(1f, load));
+  }
+
+  public float getMaxLoad() {
+    return maxLoad;
+  }
+
+  /**
+   * Returns the time that has to pass between the start of two jumps, or 0 if the list can jump on every frame.
+   */
+  public long getMinIntervalNanos() {
+    long interval = (long) (averageCostNanos / maxLoad);
+    return interval <= frameNanos ? 0 : Math.min(interval, MAX_INTERVAL_NANOS);
+  }
+
+  /**
+   * Returns the time until the list may jump again, 0 if it may jump now.
+   *
+   * @param now
+   *     the current {@link System#nanoTime()}
+   */
+  public long getDelayNanos(long now) {
+    if (jumpCount == 0 && !awaitingLayout) {
+      return 0;
+    }
+    return Math.max(0, lastJumpTime + getMinIntervalNanos() - now);
+  }
+
+  /**
+   * Called when a jump had to wait for {@link #getDelayNanos(long)}.
+   */
+  public void onJumpDeferred() {
+    deferredCount++;
+  }
+
+  /**
+   * Called with the time of the jump call itself. The layout it requested is added by {@link #onLayout(long)}.
+   *
+   * @param start
+   *     the {@link System#nanoTime()} the jump started at
+   * @param nanos
+   *     the time the jump call took
+   */
+  public void onJump(long start, long nanos) {
+    lastJumpTime = start;
+    pendingCostNanos += nanos;
+    awaitingLayout = true;
+  }
+
+  /**
+   * Called when the last jump did not move the list, for example because a paged jump waits for its page. The jump is
+   * not measured, so the next unrelated layout is not billed to it.
+   */
+  public void onJumpSkipped() {
+    pendingCostNanos = 0;
+    awaitingLayout = false;
+  }
+
+  /**
+   * Called after each layout of the list. Completes the cost of the last jump if it is waiting for its layout.
+   */
+  public void onLayout(long nanos) {
+    if (!awaitingLayout) {
+      return;
+    }
+    long cost = pendingCostNanos + nanos;
+    averageCostNanos = jumpCount == 0 ? cost : (averageCostNanos * 3 + cost) / 4;
+    pendingCostNanos = 0;
+    awaitingLayout = false;
+    jumpCount++;
+  }
+
+  /**
+   * Returns whether a jump is waiting for its layout to be measured.
+   */
+  public boolean isAwaitingLayout() {
+    return awaitingLayout;
+  }
+
+  /**
+   * Returns the moving average of the cost of a jump, including its layout.
+   */
+  public long getAverageCostNanos() {
+    return averageCostNanos;
+  }
+
+  /**
+   * Returns the number of jumps that were measured.
+   */
+  public int getJumpCount() {
+    return jumpCount;
+  }
+
+  /**
+   * Returns the number of times a jump was held back to stay within the budget.
+   */
+  public int getDeferredCount() {
+    return deferredCount;
+  }
+
+  /**
+   * Forgets the measured cost, for example after the adapter or the layout manager changed.
+   */
+  public void reset() {
+    averageCostNanos = 0;
+    lastJumpTime = 0;
+    pendingCostNanos = 0;
+    awaitingLayout = false;
+    jumpCount = 0;
+    deferredCount = 0;
+  }
+
+}
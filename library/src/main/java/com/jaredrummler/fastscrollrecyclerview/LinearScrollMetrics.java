@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ * Copyright (C) 2016 Tim Malseed
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.View;
+
+/**
+ * {@link ScrollMetricsProvider} for a {@link LinearLayoutManager}. Rows above and below the visible area are assumed
+ * to have the average height of the visible rows, see {@link FastScrollRecyclerView#calculateRowHeight(int)}. When a
+ * {@link RowPreMeasurer} is enabled, the heights it measured are used instead. Otherwise a
+ * {@link ViewTypeHeightModel}, when enabled, estimates each row from the mean height of its view type.
+ *
+ * <p>With {@link LinearLayoutManager#setReverseLayout(boolean) reverseLayout} the rows are mapped bottom-up, so the
+ * thumb and jumps follow the screen, and jumps anchor the bottom of the row like the layout manager does. Offsets
+ * are kept relative to the top of the content, so messages added at the bottom of a chat leave the offset of the
+ * rows above unchanged.</p>
+ *
+ * <p>When the rows are declared to have a fixed height, see {@link FastScrollRecyclerView#getFixedItemHeight()}, the
+ * offsets are plain multiples of it and no child is visited. Debuggable apps check the declaration against the
+ * visible rows, see {@link FastScrollRecyclerView#setFixedItemHeightCheckEnabled(boolean)}.</p>
+ */
+public class LinearScrollMetrics implements ScrollMetricsProvider {
+
+  private static final String TAG = "FastScrollRecyclerView";
+
+  protected final FastScrollRecyclerView recyclerView;
+  protected final LinearLayoutManager layoutManager;
+  private final FastScrollRecyclerView.ScrollPositionState state = new FastScrollRecyclerView.ScrollPositionState();
+  private int warnedFixedItemHeight; // the declared height a mismatch was logged for
+
+  public LinearScrollMetrics(FastScrollRecyclerView rv, LinearLayoutManager layoutManager) {
+    this.recyclerView = rv;
+    this.layoutManager = layoutManager;
+    state.rowHeight = -1;
+  }
+
+  /**
+   * Returns the number of items in a row.
+   */
+  protected int getSpanCount() {
+    return 1;
+  }
+
+  /**
+   * Returns the row height of the last scroll state, or -1 if it was never computed.
+   */
+  public int getRowHeight() {
+    return state.rowHeight;
+  }
+
+  /**
+   * Returns whether the first adapter position is laid out at the bottom, as in
+   * {@link LinearLayoutManager#setReverseLayout(boolean)}. Offsets are always measured from the top of the screen.
+   */
+  protected boolean isReversed() {
+    return layoutManager.getReverseLayout();
+  }
+
+  @Override public int getScrollOffset() {
+    getCurScrollState(state);
+    if (state.rowIndex < 0) {
+      return -1;
+    }
+    // Scale the part of the top row that is scrolled off to the height the model gives the row, so that the offset
+    // stays continuous while the row scrolls by
+    long top = getVisualRowOffset(state.rowIndex, state.rowHeight);
+    long height = getVisualRowOffset(state.rowIndex + 1, state.rowHeight) - top;
+    return (int) (recyclerView.getPaddingTop() + top - Math.round(state.rowTopOffset * height));
+  }
+
+  @Override public int getScrollRange() {
+    int rowHeight = getRowHeightEstimate();
+    if (rowHeight <= 0) {
+      return 0;
+    }
+    return (int) Math.min(Integer.MAX_VALUE,
+        recyclerView.getPaddingTop() + getContentHeight(rowHeight) + recyclerView.getPaddingBottom());
+  }
+
+  @Override public int getPositionAtOffset(int offset) {
+    int rowHeight = getRowHeightEstimate();
+    int itemCount = getItemCount();
+    if (rowHeight <= 0 || itemCount == 0) {
+      return 0;
+    }
+    return Math.max(0, Math.min(itemCount - 1, getSpanCount() * getRowAtVisualOffset(offset, rowHeight)));
+  }
+
+  @Override public void scrollToOffset(int offset) {
+    int rowHeight = getRowHeightEstimate();
+    if (rowHeight <= 0 || getItemCount() == 0) {
+      return;
+    }
+    offset = Math.max(0, offset);
+    int row = getRowAtVisualOffset(offset, rowHeight);
+    int visualRow = isReversed() ? getRowCount() - 1 - row : row;
+    //The offset used here is kind of hard to explain.
+    //If the position we wish to scroll to is, say, position 10.5, we scroll to position 10,
+    //and then offset by 0.5 * rowHeight. This is how we achieve smooth scrolling.
+    if (isReversed()) {
+      // A reverse layout anchors the bottom of the row to the bottom of the list
+      long bottom = getVisualRowOffset(visualRow + 1, rowHeight);
+      int listHeight = recyclerView.getHeight() - recyclerView.getPaddingTop() - recyclerView.getPaddingBottom();
+      layoutManager.scrollToPositionWithOffset(getSpanCount() * row, (int) (listHeight - (bottom - offset)));
+    } else {
+      long top = getVisualRowOffset(visualRow, rowHeight);
+      layoutManager.scrollToPositionWithOffset(getSpanCount() * row, -(int) (offset - top));
+    }
+  }
+
+  /**
+   * Returns information about the item that the recycler view is currently scrolled to.
+   */
+  protected void getCurScrollState(FastScrollRecyclerView.ScrollPositionState stateOut) {
+    stateOut.rowIndex = -1;
+    stateOut.rowTopOffset = -1;
+    stateOut.rowHeight = -1;
+
+    // Return early if there are no items
+    if (getItemCount() == 0) {
+      return;
+    }
+
+    View child = layoutManager.getChildAt(0);
+    if (child == null || child.getHeight() == 0) {
+      return;
+    }
+
+    // The first child is the top most one, with a reverse layout it holds the last rows of the adapter
+    int row = layoutManager.getPosition(child) / getSpanCount();
+    stateOut.rowIndex = isReversed() ? getRowCount() - 1 - row : row;
+    stateOut.rowTopOffset = layoutManager.getDecoratedTop(child) / (float) child.getHeight();
+    int fixedHeight = recyclerView.getFixedItemHeight();
+    if (fixedHeight > 0) {
+      if (recyclerView.isFixedItemHeightCheckEnabled() && warnedFixedItemHeight != fixedHeight) {
+        checkFixedItemHeight(fixedHeight);
+      }
+      stateOut.rowHeight = fixedHeight;
+    } else {
+      stateOut.rowHeight = recyclerView.calculateRowHeight(child.getHeight());
+    }
+  }
+
+  /**
+   * Warns when a visible row, with its decorations, does not have the declared height, which would otherwise only
+   * show as a thumb that drifts from the content. Called while drawing, so it logs once per declared height rather
+   * than throwing.
+   */
+  private void checkFixedItemHeight(int fixedHeight) {
+    for (int i = 0, count = layoutManager.getChildCount(); i < count; i++) {
+      View child = layoutManager.getChildAt(i);
+      int height = layoutManager.getDecoratedMeasuredHeight(child);
+      if (height != fixedHeight && !child.isLayoutRequested()) {
+        Log.w(TAG, "Item at position " + layoutManager.getPosition(child) + " is " + height
+            + "px high, but the fixed item height is " + fixedHeight + "px");
+        warnedFixedItemHeight = fixedHeight;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Calculates the row height based on the average of the visible children, to handle scrolling
+   * through children with different heights gracefully. When the adapter has stable IDs the heights
+   * are recorded in the {@link ScrollMetricsCache}, and once it knows more rows than are visible
+   * its average is used instead.
+   */
+  protected int calculateRowHeight(int fallbackHeight) {
+    boolean trace = FastScrollTrace.isEnabled();
+    if (trace) {
+      FastScrollTrace.beginSection(FastScrollTrace.CALCULATE_ROW_HEIGHT);
+    }
+    try {
+      return measureRowHeight(fallbackHeight);
+    } finally {
+      if (trace) {
+        FastScrollTrace.endSection();
+      }
+    }
+  }
+
+  private int measureRowHeight(int fallbackHeight) {
+    RecyclerView.Adapter adapter = recyclerView.getAdapter();
+    ScrollMetricsCache cache = adapter != null && adapter.hasStableIds() ? recyclerView.getScrollMetricsCache() : null;
+    CompositeScrollIndex composite = recyclerView.getCompositeScrollIndex();
+    RowPreMeasurer measurer = getSpanCount() == 1 ? recyclerView.getRowPreMeasurer() : null;
+    ViewTypeHeightModel viewTypeModel = getViewTypeHeightModel();
+
+    final int firstVisiblePosition = layoutManager.findFirstVisibleItemPosition();
+    final int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+
+    if (lastVisiblePosition > firstVisiblePosition) {
+      final int height = recyclerView.getHeight();
+      final int paddingTop = recyclerView.getPaddingTop();
+      final int paddingBottom = recyclerView.getPaddingBottom();
+
+      // How many rows are visible, like 10.5f for 10 rows completely and one halfway visible
+      float visibleRows = 0f;
+
+      for (int position = firstVisiblePosition; position <= lastVisiblePosition; position++) {
+        RecyclerView.ViewHolder viewHolder = recyclerView.findViewHolderForLayoutPosition(position);
+        if (viewHolder == null || viewHolder.itemView == null) {
+          continue;
+        }
+
+        final View itemView = viewHolder.itemView;
+        final int itemHeight = itemView.getHeight();
+        if (itemHeight == 0) {
+          continue;
+        }
+        if (cache != null) {
+          cache.put(viewHolder.getItemId(), viewHolder.getItemViewType(), itemHeight);
+        }
+        if (composite != null) {
+          composite.recordRowHeight(position, itemHeight);
+        }
+        if (measurer != null) {
+          measurer.record(position, itemHeight);
+        }
+        if (viewTypeModel != null) {
+          viewTypeModel.record(position, viewHolder.getItemViewType(), itemHeight);
+        }
+
+        // Finds how much of the itemView is actually visible.
+        // This allows smooth changes of the scrollbar thumb height
+        final int visibleHeight = itemHeight
+            - Math.max(0, paddingBottom - layoutManager.getDecoratedTop(itemView)) // How much is cut at the top
+            - Math.max(0, paddingBottom + layoutManager.getDecoratedBottom(itemView) - height); // How much is cut at the bottom
+
+        visibleRows += visibleHeight / (float) itemHeight;
+      }
+
+      if (FastScrollTrace.isEnabled() && cache != null) {
+        FastScrollTrace.setCounter(FastScrollTrace.COUNTER_ROW_HEIGHT_CACHE, cache.getCount());
+      }
+      recyclerView.restoredRowHeight = -1;
+      if (cache != null && cache.getCount() > lastVisiblePosition - firstVisiblePosition + 1) {
+        return cache.getAverageHeight();
+      }
+      return Math.round((height - (paddingTop + paddingBottom)) / visibleRows);
+    }
+
+    // Until the visible rows can be averaged, the estimate from before a configuration change beats a single row
+    return recyclerView.restoredRowHeight > 0 ? recyclerView.restoredRowHeight : fallbackHeight;
+  }
+
+  /**
+   * Returns the number of rows of the adapter.
+   */
+  protected int getRowCount() {
+    int spanCount = getSpanCount();
+    return (getItemCount() + spanCount - 1) / spanCount;
+  }
+
+  protected int getItemCount() {
+    RecyclerView.Adapter adapter = recyclerView.getAdapter();
+    return adapter == null ? 0 : adapter.getItemCount();
+  }
+
+  private int getRowHeightEstimate() {
+    if (state.rowHeight <= 0) {
+      getCurScrollState(state);
+    }
+    return state.rowHeight;
+  }
+
+  /**
+   * Returns the height of the rows above the row in adapter order.
+   */
+  private long getRowOffset(int row, int rowHeight) {
+    RowPreMeasurer measurer = getRowPreMeasurer();
+    if (measurer != null) {
+      return measurer.getOffsetForPosition(row);
+    }
+    CompositeScrollIndex composite = getCompositeScrollIndex();
+    if (composite != null) {
+      return row >= getItemCount()
+          ? composite.getTotalHeight(rowHeight) : composite.getOffsetForPosition(row, rowHeight);
+    }
+    ViewTypeHeightModel viewTypeModel = getViewTypeHeightModel();
+    if (viewTypeModel != null) {
+      return viewTypeModel.getOffsetForPosition(row, rowHeight);
+    }
+    return (long) row * rowHeight;
+  }
+
+  /**
+   * Returns the height of the rows above the row as it appears on screen, where row 0 is the top most row.
+   */
+  private long getVisualRowOffset(int visualRow, int rowHeight) {
+    if (!isReversed()) {
+      return getRowOffset(visualRow, rowHeight);
+    }
+    return getContentHeight(rowHeight) - getRowOffset(getRowCount() - visualRow, rowHeight);
+  }
+
+  private long getContentHeight(int rowHeight) {
+    RowPreMeasurer measurer = getRowPreMeasurer();
+    if (measurer != null) {
+      return measurer.getTotalHeight();
+    }
+    CompositeScrollIndex composite = getCompositeScrollIndex();
+    if (composite != null) {
+      return composite.getTotalHeight(rowHeight);
+    }
+    ViewTypeHeightModel viewTypeModel = getViewTypeHeightModel();
+    if (viewTypeModel != null) {
+      return viewTypeModel.getTotalHeight(rowHeight);
+    }
+    return (long) getRowCount() * rowHeight;
+  }
+
+  /**
+   * Returns the row, in adapter order, shown at the offset from the top of the content.
+   */
+  private int getRowAtVisualOffset(long offset, int rowHeight) {
+    int rowCount = getRowCount();
+    if (isReversed()) {
+      // Measured from the bottom, the offset is just inside the row it falls in
+      offset = Math.max(0, getContentHeight(rowHeight) - offset - 1);
+    }
+    int row;
+    RowPreMeasurer measurer = getRowPreMeasurer();
+    CompositeScrollIndex composite = getCompositeScrollIndex();
+    ViewTypeHeightModel viewTypeModel = getViewTypeHeightModel();
+    if (measurer != null) {
+      row = measurer.getPositionForOffset(offset);
+    } else if (composite != null) {
+      row = composite.getPositionForOffset(offset, rowHeight);
+    } else if (viewTypeModel != null) {
+      row = viewTypeModel.getPositionForOffset(offset, rowHeight);
+    } else {
+      row = (int) Math.min(Integer.MAX_VALUE, offset / rowHeight);
+    }
+    return Math.max(0, Math.min(rowCount - 1, row));
+  }
+
+  private RowPreMeasurer getRowPreMeasurer() {
+    // Measured heights are per item, so they only describe rows of a single item
+    RowPreMeasurer measurer = getSpanCount() == 1 && recyclerView.getFixedItemHeight() <= 0
+        ? recyclerView.getRowPreMeasurer() : null;
+    return measurer != null && measurer.getMeasuredCount() > 0 ? measurer : null;
+  }
+
+  private ViewTypeHeightModel getViewTypeHeightModel() {
+    // Positions are items, so the model only describes rows of a single item
+    return getSpanCount() == 1 && recyclerView.getFixedItemHeight() <= 0
+        ? recyclerView.getViewTypeHeightModel() : null;
+  }
+
+  private CompositeScrollIndex getCompositeScrollIndex() {
+    // The per child adapter heights assume one item per row
+    return getSpanCount() == 1 && recyclerView.getFixedItemHeight() <= 0
+        ? recyclerView.getCompositeScrollIndex() : null;
+  }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Decides when a fast scroll over a {@link FastScrollRecyclerView.PagedAdapter} requests pages and when the list
+ * lands on the target.
+ *
+ * <p>Section names come from the page metadata, so unloaded rows are never read. While the thumb moves, the page
+ * under it is requested only once the thumb has rested there for the debounce time, so a drag across thousands of
+ * pages requests a few of them instead of all. Releasing the thumb requests the target page right away. By default the
+ * list only moves to rows whose page is loaded and lands on the target once its page arrives. With
+ * {@link #setLandOnPlaceholders(boolean)} it moves right away and shows the placeholders of the adapter until then.</p>
+ *
+ * <p>The controller holds no Android state and takes the time as an argument, so it can be driven by tests with an
+ * in-memory data source. It must only be used on one thread.</p>
+ */
+public final class PagedJumpController {
+
+  /**
+   * Moves the list.
+   */
+  public interface Callback {
+
+    /**
+     * Called to show the position at the top of the list.
+     */
+    void scrollToPosition(int position);
+  }
+
+  public static final long DEFAULT_DEBOUNCE_MS = 150;
+
+  private static final int NO_POSITION = -1;
+
+  private final FastScrollRecyclerView.PagedAdapter source;
+  private final Callback callback;
+  private long debounceMillis = DEFAULT_DEBOUNCE_MS;
+  private boolean landOnPlaceholders;
+
+  private int targetPosition = NO_POSITION;
+  private long lastScrubTime;
+  private boolean requestPending; // the target page still has to be requested
+  private boolean waiting; // the list has not landed on the target yet
+  private int requestedPage = NO_POSITION;
+
+  public PagedJumpController(@NonNull FastScrollRecyclerView.PagedAdapter source, @NonNull Callback callback) {
+    this.source = source;
+    this.callback = callback;
+  }
+
+  /**
+   * Sets how long the thumb has to rest over a page before it is requested.
+   */
+  public void setDebounce(long millis) {
+    debounceMillis = Math.max(0, millis);
+  }
+
+  public long getDebounce() {
+    return debounceMillis;
+  }
+
+  /**
+   * Sets whether the list moves to unloaded rows right away, showing placeholders until their page is loaded, instead
+   * of waiting for the page.
+   */
+  public void setLandOnPlaceholders(boolean landOnPlaceholders) {
+    this.landOnPlaceholders = landOnPlaceholders;
+  }
+
+  public boolean isLandOnPlaceholders() {
+    return landOnPlaceholders;
+  }
+
+  /**
+   * Returns the page holding the position.
+   */
+  public int getPage(int position) {
+    return position / Math.max(1, source.getPageSize());
+  }
+
+  /**
+   * Returns the section name of the page holding the position. Never reads the row itself.
+   */
+  @NonNull public String getSectionName(int position) {
+    return source.getPageSectionName(getPage(position));
+  }
+
+  /**
+   * Builds a section index from the page metadata. Consecutive pages with the same name are folded into one section.
+   */
+  @NonNull public SectionIndex buildSectionIndex(int itemCount) {
+    int pageSize = Math.max(1, source.getPageSize());
+    int pageCount = (itemCount + pageSize - 1) / pageSize;
+    String[] names = new String[16];
+    int[] positions = new int[16];
+    int count = 0;
+    String last = null;
+    for (int page = 0; page < pageCount; page++) {
+      String name = source.getPageSectionName(page);
+      if (!name.equals(last)) {
+        if (count == names.length) {
+          names = Arrays.copyOf(names, count * 2);
+          positions = Arrays.copyOf(positions, count * 2);
+        }
+        names[count] = name;
+        positions[count] = page * pageSize;
+        count++;
+        last = name;
+      }
+    }
+    return new SectionIndex(Arrays.copyOf(names, count), Arrays.copyOf(positions, count), itemCount);
+  }
+
+  /**
+   * Called each time the thumb moves to a new target.
+   *
+   * @param position
+   *     the position that should be shown at the top of the list
+   * @param now
+   *     the current time in milliseconds
+   */
+  public void onScrub(int position, long now) {
+    targetPosition = position;
+    lastScrubTime = now;
+    if (source.isPageLoaded(getPage(position))) {
+      requestPending = false;
+      land();
+    } else {
+      requestPending = true;
+      waiting = !landOnPlaceholders;
+      if (landOnPlaceholders) {
+        callback.scrollToPosition(position);
+      }
+    }
+  }
+
+  /**
+   * Called when the thumb is released. Requests the target page without waiting for the debounce.
+   */
+  public void onScrubEnd() {
+    if (requestPending) {
+      request();
+    }
+  }
+
+  /**
+   * Requests the target page once the thumb has rested long enough.
+   *
+   * @param now
+   *     the current time in milliseconds
+   * @return the time until this should be called again, or -1 if no request is pending
+   */
+  public long poll(long now) {
+    if (!requestPending) {
+      return -1;
+    }
+    long remaining = lastScrubTime + debounceMillis - now;
+    if (remaining > 0) {
+      return remaining;
+    }
+    request();
+    return -1;
+  }
+
+  /**
+   * Called when the adapter data changed, for example because a page was loaded. Lands on the target once its page
+   * is there.
+   */
+  public void onDataChanged() {
+    if (waiting && targetPosition != NO_POSITION && source.isPageLoaded(getPage(targetPosition))) {
+      requestPending = false;
+      land();
+    }
+  }
+
+  /**
+   * Forgets the target, for example when the adapter changes.
+   */
+  public void cancel() {
+    targetPosition = NO_POSITION;
+    requestPending = false;
+    waiting = false;
+    requestedPage = NO_POSITION;
+  }
+
+  /**
+   * Returns whether the list is waiting for the page of the target.
+   */
+  public boolean isWaiting() {
+    return waiting;
+  }
+
+  public boolean isRequestPending() {
+    return requestPending;
+  }
+
+  /**
+   * Returns the last target of the thumb, or -1 if there is none.
+   */
+  public int getTargetPosition() {
+    return targetPosition;
+  }
+
+  private void request() {
+    requestPending = false;
+    int page = getPage(targetPosition);
+    // The source is asked once per page in a row; a different target asks again
+    if (page != requestedPage && !source.isPageLoaded(page)) {
+      requestedPage = page;
+      source.requestPage(page);
+    }
+  }
+
+  private void land() {
+    waiting = false;
+    requestedPage = NO_POSITION;
+    callback.scrollToPosition(targetPosition);
+  }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lowers the rendering quality of the fast scroller while frames are dropped, and restores it once they are not.
+ *
+ * <p>While the list scrolls or the thumb is dragged, the controller watches the frame intervals reported by
+ * {@link Choreographer} (API 16 and up; older devices always render at full quality). When at least
+ * {@link #setDegradeFrames(int) degradeFrames} of the last {@link #WINDOW_FRAMES} frames are late, the quality steps
+ * down one level:</p>
+ *
+ * <ul>
+ * <li>{@link #QUALITY_FULL}: curved thumb, color tween of the thumb and faded popup.</li>
+ * <li>{@link #QUALITY_REDUCED}: flat rect thumb and no color tween.</li>
+ * <li>{@link #QUALITY_MINIMAL}: also a plain rect as popup bubble, shown and hidden without fading.</li>
+ * </ul>
+ *
+ * <p>After {@link #setRestoreFrames(int) restoreFrames} frames in a row are on time, it steps back up one level. A
+ * frame is late when its interval is more than {@link #setJankFactor(float) jankFactor} frame durations. Changes are
+ * reported to the {@link OnQualityChangedListener}s.</p>
+ *
+ * <p>This class is not thread safe and must only be used on the UI thread.</p>
+ */
+public final class RenderQualityController {
+
+  public static final int QUALITY_FULL = 0;
+  public static final int QUALITY_REDUCED = 1;
+  public static final int QUALITY_MINIMAL = 2;
+
+  public static final int WINDOW_FRAMES = 30;
+  public static final int DEFAULT_DEGRADE_FRAMES = 6;
+  public static final int DEFAULT_RESTORE_FRAMES = 120;
+  public static final float DEFAULT_JANK_FACTOR = 1.5f;
+
+  /** Intervals this long are pauses between gestures, not frames. */
+  private static final long MAX_FRAME_INTERVAL_NANOS = 250000000L;
+
+  /**
+   * Observes the quality level.
+   */
+  public interface OnQualityChangedListener {
+
+    /**
+     * @param quality
+     *     {@link #QUALITY_FULL}, {@link #QUALITY_REDUCED} or {@link #QUALITY_MINIMAL}
+     */
+    void onQualityChanged(int quality);
+  }
+
+  private final List<OnQualityChangedListener> listeners = new ArrayList<>();
+  private final boolean[] lateFrames = new boolean[WINDOW_FRAMES];
+  private int nextFrame;
+  private int lateCount;
+  private int onTimeRun;
+
+  private long frameNanos = JumpRateController.DEFAULT_FRAME_NANOS;
+  private float jankFactor = DEFAULT_JANK_FACTOR;
+  private int degradeFrames = DEFAULT_DEGRADE_FRAMES;
+  private int restoreFrames = DEFAULT_RESTORE_FRAMES;
+  private int quality = QUALITY_FULL;
+  private int lowestQuality = QUALITY_MINIMAL;
+
+  private FrameWatcher frameWatcher;
+
+  public void addOnQualityChangedListener(@NonNull OnQualityChangedListener listener) {
+    if (!listeners.contains(listener)) {
+      listeners.add(listener);
+    }
+  }
+
+  public void removeOnQualityChangedListener(@NonNull OnQualityChangedListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Sets the duration of a frame of the display.
+   */
+  public void setFrameNanos(long nanos) {
+    frameNanos = Math.max(1, nanos);
+  }
+
+  /**
+   * Sets how many frame durations a frame may take before it counts as late.
+   */
+  public void setJankFactor(float factor) {
+    jankFactor = Math.max(1f, factor);
+  }
+
+  /**
+   * Sets how many of the last {@link #WINDOW_FRAMES} frames have to be late to lower the quality.
+   */
+  public void setDegradeFrames(int frames) {
+    degradeFrames = Math.max(1, Math.min(WINDOW_FRAMES, frames));
+  }
+
+  /**
+   * Sets how many frames in a row have to be on time to raise the quality.
+   */
+  public void setRestoreFrames(int frames) {
+    restoreFrames = Math.max(1, frames);
+  }
+
+  /**
+   * Sets the lowest level the quality may drop to. {@link #QUALITY_FULL} keeps full quality.
+   */
+  public void setLowestQuality(int quality) {
+    lowestQuality = Math.max(QUALITY_FULL, Math.min(QUALITY_MINIMAL, quality));
+    if (this.quality > lowestQuality) {
+      setQuality(lowestQuality);
+    }
+  }
+
+  public int getQuality() {
+    return quality;
+  }
+
+  /**
+   * Records the interval between two frames.
+   */
+  public void onFrame(long intervalNanos) {
+    if (intervalNanos <= 0 || intervalNanos > MAX_FRAME_INTERVAL_NANOS) {
+      return;
+    }
+    boolean late = intervalNanos > frameNanos * jankFactor;
+    if (lateFrames[nextFrame]) {
+      lateCount--;
+    }
+    lateFrames[nextFrame] = late;
+    nextFrame = (nextFrame + 1) % WINDOW_FRAMES;
+    if (late) {
+      lateCount++;
+      onTimeRun = 0;
+      if (lateCount >= degradeFrames && quality < lowestQuality) {
+        setQuality(quality + 1);
+      }
+    } else if (++onTimeRun >= restoreFrames && quality > QUALITY_FULL) {
+      setQuality(quality - 1);
+    }
+  }
+
+  /**
+   * Starts watching the frames, for example when the list starts to scroll. Does nothing before API 16.
+   */
+  public void start() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      if (frameWatcher == null) {
+        frameWatcher = new FrameWatcher(this);
+      }
+      frameWatcher.start();
+    }
+  }
+
+  /**
+   * Stops watching the frames. The quality is kept until frames are watched again.
+   */
+  public void stop() {
+    if (frameWatcher != null) {
+      frameWatcher.stop();
+    }
+  }
+
+  private void setQuality(int quality) {
+    this.quality = quality;
+    // Every level is judged on its own frames
+    for (int i = 0; i < WINDOW_FRAMES; i++) {
+      lateFrames[i] = false;
+    }
+    lateCount = 0;
+    onTimeRun = 0;
+    for (int i = listeners.size() - 1; i >= 0; i--) {
+      listeners.get(i).onQualityChanged(quality);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private static final class FrameWatcher implements Choreographer.FrameCallback {
+
+    private final RenderQualityController controller;
+    private long lastFrameTime;
+    private boolean running;
+
+    FrameWatcher(RenderQualityController controller) {
+      this.controller = controller;
+    }
+
+    void start() {
+      if (!running) {
+        running = true;
+        lastFrameTime = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+      }
+    }
+
+    void stop() {
+      if (running) {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+      }
+    }
+
+    @Override public void doFrame(long frameTimeNanos) {
+      if (!running) {
+        return;
+      }
+      if (lastFrameTime != 0) {
+        controller.onFrame(frameTimeNanos - lastFrameTime);
+      }
+      lastFrameTime = frameTimeNanos;
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+  }
+
+}
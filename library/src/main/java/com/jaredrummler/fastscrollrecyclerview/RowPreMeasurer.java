@@ -0,0 +1,492 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Arrays;
+
+/**
+ * Measures the rows that are not laid out while the UI thread is idle, so the thumb of a vertical
+ * {@link android.support.v7.widget.LinearLayoutManager} list converges to exact positions instead of the average of
+ * the visible rows.
+ *
+ * <p>Work is done in chunks of at most {@link #DEFAULT_IDLE_BUDGET_MS} inside a {@link MessageQueue.IdleHandler}:
+ * each row is bound to a recycled view holder from the {@link RecyclerView.RecycledViewPool}, measured against the
+ * current width and returned to the pool. Measuring pauses while the list is touched or scrolling. Heights are kept
+ * per position in two Fenwick trees (sum and count), so offsets mixing measured and estimated rows are O(log n). This
+ * costs about 16 bytes per item, so lists with more than {@link #DEFAULT_MAX_ITEMS} items are not measured and the
+ * thumb falls back to the average row height.</p>
+ *
+ * <p>This class is not thread safe and must only be used on the UI thread.</p>
+ */
+public class RowPreMeasurer implements MessageQueue.IdleHandler {
+
+  /**
+   * Listener for the progress of the measuring.
+   */
+  public interface Listener {
+
+    /**
+     * Called after each chunk of rows has been measured.
+     *
+     * @param measurer
+     *     the measurer, see {@link #getProgress()} and {@link #getCoverage()}
+     */
+    void onPreMeasureProgress(RowPreMeasurer measurer);
+  }
+
+  public static final int DEFAULT_IDLE_BUDGET_MS = 4;
+  public static final int DEFAULT_MAX_ITEMS = 256 * 1024;
+
+  private final FastScrollRecyclerView recyclerView;
+  private final int maxItems;
+  private Listener listener;
+  private int idleBudgetMs = DEFAULT_IDLE_BUDGET_MS;
+
+  private int[] heights = new int[0]; // 0 for rows that were not measured yet, with room to grow
+  private int size;
+  private long[] heightTree = new long[1];
+  private int[] countTree = new int[1];
+  private boolean treesDirty;
+  private long totalHeight;
+  private int measuredCount;
+  private int nextPosition;
+
+  private boolean scheduled;
+  private boolean paused;
+
+  public RowPreMeasurer(FastScrollRecyclerView recyclerView) {
+    this(recyclerView, DEFAULT_MAX_ITEMS);
+  }
+
+  /**
+   * @param maxItems
+   *     the largest adapter that is measured
+   */
+  public RowPreMeasurer(FastScrollRecyclerView recyclerView, int maxItems) {
+    this.recyclerView = recyclerView;
+    this.maxItems = maxItems;
+  }
+
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Sets the time the measurer may use each time the UI thread becomes idle.
+   */
+  public void setIdleBudget(int millis) {
+    idleBudgetMs = Math.max(1, millis);
+  }
+
+  /**
+   * Starts or resumes measuring the next time the UI thread is idle.
+   */
+  public void start() {
+    paused = false;
+    int itemCount = getItemCount();
+    if (!scheduled && nextPosition < itemCount && itemCount <= maxItems) {
+      scheduled = true;
+      recyclerView.getIdleTaskScheduler().schedule(this);
+    }
+  }
+
+  /**
+   * Stops measuring until {@link #start()} is called. Measured heights are kept.
+   */
+  public void pause() {
+    paused = true;
+  }
+
+  /**
+   * Stops measuring and removes the idle handler.
+   */
+  public void stop() {
+    paused = true;
+    if (scheduled) {
+      scheduled = false;
+      recyclerView.getIdleTaskScheduler().cancel(this);
+    }
+  }
+
+  /**
+   * Drops all measured heights and starts over. Call when the adapter data changes.
+   */
+  public void invalidate() {
+    reset(0);
+    if (!paused) {
+      start();
+    }
+  }
+
+  /**
+   * Stops measuring and frees the measured heights, for example when memory is low. Measuring starts over with the
+   * next {@link #start()}.
+   */
+  public void releaseMemory() {
+    stop();
+    freeHeights();
+  }
+
+  /**
+   * Returns the approximate memory used by the measured heights, in bytes.
+   */
+  public long getRetainedBytes() {
+    return heights.length * 4L + heightTree.length * 8L + countTree.length * 4L;
+  }
+
+  /**
+   * Shifts the measured heights for items inserted at the position. The new items are measured next.
+   */
+  public void insert(int position, int count) {
+    if (count <= 0 || position < 0 || position > size) {
+      return;
+    }
+    if (size + count > maxItems) {
+      // Too large to measure, see ensureSize()
+      freeHeights();
+      return;
+    }
+    if (size + count > heights.length) {
+      heights = Arrays.copyOf(heights, Math.max(size + count, size + (size >> 1)));
+    }
+    System.arraycopy(heights, position, heights, position + count, size - position);
+    Arrays.fill(heights, position, position + count, 0);
+    size += count;
+    treesDirty = true;
+    nextPosition = Math.min(nextPosition, position);
+    if (!paused) {
+      start();
+    }
+  }
+
+  /**
+   * Shifts the measured heights for items removed at the position.
+   */
+  public void remove(int position, int count) {
+    count = Math.min(count, size - position);
+    if (count <= 0 || position < 0) {
+      return;
+    }
+    for (int i = position; i < position + count; i++) {
+      forget(i);
+    }
+    System.arraycopy(heights, position + count, heights, position, size - position - count);
+    Arrays.fill(heights, size - count, size, 0);
+    size -= count;
+    treesDirty = true;
+    if (nextPosition > position) {
+      nextPosition = Math.max(position, nextPosition - count);
+    }
+  }
+
+  /**
+   * Moves the measured height of an item.
+   */
+  public void move(int fromPosition, int toPosition) {
+    if (fromPosition < 0 || fromPosition >= size || toPosition < 0 || toPosition >= size) {
+      return;
+    }
+    int height = heights[fromPosition];
+    if (fromPosition < toPosition) {
+      System.arraycopy(heights, fromPosition + 1, heights, fromPosition, toPosition - fromPosition);
+    } else {
+      System.arraycopy(heights, toPosition, heights, toPosition + 1, fromPosition - toPosition);
+    }
+    heights[toPosition] = height;
+    treesDirty = true;
+  }
+
+  /**
+   * Forgets the heights of changed items so they are measured again.
+   */
+  public void change(int position, int count) {
+    count = Math.min(count, size - position);
+    if (count <= 0 || position < 0) {
+      return;
+    }
+    for (int i = position; i < position + count; i++) {
+      forget(i);
+    }
+    treesDirty = true;
+    nextPosition = Math.min(nextPosition, position);
+    if (!paused) {
+      start();
+    }
+  }
+
+  @Override public boolean queueIdle() {
+    RecyclerView.Adapter adapter = recyclerView.getAdapter();
+    int width = recyclerView.getWidth() - recyclerView.getPaddingLeft() - recyclerView.getPaddingRight();
+    if (paused || adapter == null || width <= 0 || recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) {
+      // Resumed by start(), once the list is idle again
+      scheduled = false;
+      return false;
+    }
+    int itemCount = adapter.getItemCount();
+    if (!ensureSize(itemCount)) {
+      scheduled = false;
+      return false;
+    }
+
+    int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+    long deadline = SystemClock.uptimeMillis() + idleBudgetMs;
+    while (nextPosition < itemCount && SystemClock.uptimeMillis() < deadline) {
+      if (heights[nextPosition] == 0) {
+        measure(adapter, nextPosition, widthSpec);
+      }
+      nextPosition++;
+    }
+
+    if (listener != null) {
+      listener.onPreMeasureProgress(this);
+    }
+    recyclerView.onUpdateScrollbar(0);
+    if (nextPosition >= itemCount) {
+      scheduled = false;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Records the height of a row, for example one that is laid out.
+   */
+  public void record(int position, int height) {
+    if (height <= 0 || position < 0) {
+      return;
+    }
+    if (!ensureSize(getItemCount()) || position >= size) {
+      return;
+    }
+    int old = heights[position];
+    if (old == height) {
+      return;
+    }
+    heights[position] = height;
+    totalHeight += height - old;
+    if (old == 0) {
+      measuredCount++;
+    }
+    if (!treesDirty) {
+      for (int i = position + 1; i <= size; i += i & -i) {
+        heightTree[i] += height - old;
+        if (old == 0) {
+          countTree[i]++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the fraction of the list the measurer has gone through, from 0 to 1.
+   */
+  public float getProgress() {
+    int itemCount = size;
+    return itemCount == 0 ? 1f : Math.min(1f, nextPosition / (float) itemCount);
+  }
+
+  /**
+   * Returns the fraction of the rows with a known height, measured here or laid out, from 0 to 1.
+   */
+  public float getCoverage() {
+    int itemCount = size;
+    return itemCount == 0 ? 1f : measuredCount / (float) itemCount;
+  }
+
+  public int getMeasuredCount() {
+    return measuredCount;
+  }
+
+  /**
+   * Returns whether the height of every row is known.
+   */
+  public boolean isComplete() {
+    return measuredCount == size;
+  }
+
+  /**
+   * Returns the average height of the measured rows, or -1 if none were measured.
+   */
+  public int getAverageHeight() {
+    return measuredCount == 0 ? -1 : Math.round(totalHeight / (float) measuredCount);
+  }
+
+  /**
+   * Returns the height of all rows above the position. Rows that were not measured yet count with the average height.
+   */
+  public long getOffsetForPosition(int position) {
+    buildTrees();
+    position = Math.max(0, Math.min(size, position));
+    long sum = 0;
+    int count = 0;
+    for (int i = position; i > 0; i -= i & -i) {
+      sum += heightTree[i];
+      count += countTree[i];
+    }
+    return sum + (long) (position - count) * Math.max(0, getAverageHeight());
+  }
+
+  /**
+   * Returns the height of all rows.
+   */
+  public long getTotalHeight() {
+    return getOffsetForPosition(size);
+  }
+
+  /**
+   * Returns the position of the row at the offset, see {@link #getOffsetForPosition(int)}.
+   */
+  public int getPositionForOffset(long offset) {
+    buildTrees();
+    int itemCount = size;
+    if (itemCount == 0) {
+      return 0;
+    }
+    long averageHeight = Math.max(0, getAverageHeight());
+    // Descend the trees to the last position whose offset is at or before the target
+    int position = 0;
+    long sum = 0;
+    int count = 0;
+    for (int step = Integer.highestOneBit(itemCount); step > 0; step >>= 1) {
+      int next = position + step;
+      if (next > itemCount) {
+        continue;
+      }
+      long nextSum = sum + heightTree[next];
+      int nextCount = count + countTree[next];
+      if (nextSum + (next - nextCount) * averageHeight <= offset) {
+        position = next;
+        sum = nextSum;
+        count = nextCount;
+      }
+    }
+    return Math.min(itemCount - 1, position);
+  }
+
+  private void measure(RecyclerView.Adapter adapter, int position, int widthSpec) {
+    int viewType = adapter.getItemViewType(position);
+    RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+    RecyclerView.ViewHolder holder = pool.getRecycledView(viewType);
+    if (holder == null) {
+      holder = adapter.createViewHolder(recyclerView, viewType);
+    }
+    adapter.bindViewHolder(holder, position);
+
+    View itemView = holder.itemView;
+    ViewGroup.LayoutParams lp = itemView.getLayoutParams();
+    int childWidthSpec = ViewGroup.getChildMeasureSpec(widthSpec, 0,
+        lp != null ? lp.width : ViewGroup.LayoutParams.MATCH_PARENT);
+    int childHeightSpec = lp != null && lp.height >= 0
+        ? View.MeasureSpec.makeMeasureSpec(lp.height, View.MeasureSpec.EXACTLY)
+        : View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    itemView.measure(childWidthSpec, childHeightSpec);
+    int height = itemView.getMeasuredHeight();
+
+    record(position, height);
+    if (adapter.hasStableIds()) {
+      recyclerView.getScrollMetricsCache().put(holder.getItemId(), viewType, height);
+    }
+    CompositeScrollIndex composite = recyclerView.getCompositeScrollIndex();
+    if (composite != null) {
+      composite.recordRowHeight(position, height);
+    }
+    // Lets the adapter cancel image loads and release listeners started by the bind, as a recycled row would
+    adapter.onViewRecycled(holder);
+    pool.putRecycledView(holder);
+  }
+
+  /**
+   * @return {@code false} if the list is too large to measure
+   */
+  private boolean ensureSize(int itemCount) {
+    if (itemCount > maxItems) {
+      if (heights.length > 0) {
+        freeHeights();
+      }
+      return false;
+    }
+    if (size != itemCount) {
+      // The data changed without a notification, the positions mean nothing anymore
+      reset(itemCount);
+    }
+    return true;
+  }
+
+  private void freeHeights() {
+    reset(0);
+    heightTree = new long[1];
+    countTree = new int[1];
+  }
+
+  private void reset(int itemCount) {
+    heights = new int[itemCount];
+    size = itemCount;
+    totalHeight = 0;
+    measuredCount = 0;
+    nextPosition = 0;
+    treesDirty = true;
+  }
+
+  private void forget(int position) {
+    int height = heights[position];
+    if (height != 0) {
+      heights[position] = 0;
+      totalHeight -= height;
+      measuredCount--;
+    }
+  }
+
+  /**
+   * Rebuilds the trees after insertions or removals in O(n), once for a whole batch of updates.
+   */
+  private void buildTrees() {
+    if (!treesDirty) {
+      return;
+    }
+    if (heightTree.length < size + 1) {
+      heightTree = new long[heights.length + 1];
+      countTree = new int[heights.length + 1];
+    } else {
+      Arrays.fill(heightTree, 0, size + 1, 0);
+      Arrays.fill(countTree, 0, size + 1, 0);
+    }
+    for (int i = 1; i <= size; i++) {
+      int height = heights[i - 1];
+      heightTree[i] += height;
+      countTree[i] += height != 0 ? 1 : 0;
+      int parent = i + (i & -i);
+      if (parent <= size) {
+        heightTree[parent] += heightTree[i];
+        countTree[parent] += countTree[i];
+      }
+    }
+    treesDirty = false;
+  }
+
+  private int getItemCount() {
+    RecyclerView.Adapter adapter = recyclerView.getAdapter();
+    return adapter == null ? 0 : adapter.getItemCount();
+  }
+
+}
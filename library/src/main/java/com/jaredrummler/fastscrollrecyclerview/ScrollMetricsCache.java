@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v4.util.LruCache;
+import android.util.SparseArray;
+
+/**
+ * Remembers measured row heights by the adapter's stable ID and view type.
+ *
+ * <p>Because heights follow IDs rather than positions, the cache stays valid when the data set is reordered or
+ * filtered, and one cache can be shared by several {@link FastScrollRecyclerView}s that show the same data (see
+ * {@link FastScrollRecyclerView#setScrollMetricsCache(ScrollMetricsCache)}). The cache is bounded in bytes and
+ * evicts the least recently measured rows first.</p>
+ *
+ * <p>This class is not thread safe and must only be used on the UI thread.</p>
+ */
+public class ScrollMetricsCache {
+
+  public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+  // Approximate heap cost of one entry: boxed key, boxed value and the LinkedHashMap entry.
+  private static final int ENTRY_BYTES = 80;
+
+  private final SparseArray<long[]> viewTypeTotals = new SparseArray<>(); // {sum, count} per view type
+  private final LruCache<Long, Long> heights;
+  private long totalHeight;
+  private int count;
+
+  public ScrollMetricsCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * @param maxBytes
+   *     the approximate maximum memory used by the cache
+   */
+  public ScrollMetricsCache(int maxBytes) {
+    heights = new LruCache<Long, Long>(Math.max(ENTRY_BYTES, maxBytes)) {
+
+      @Override protected int sizeOf(Long key, Long value) {
+        return ENTRY_BYTES;
+      }
+
+      @Override protected void entryRemoved(boolean evicted, Long key, Long oldValue, Long newValue) {
+        // A plain remove() here would resolve to LruCache.remove(key)
+        removeTotals(oldValue);
+      }
+    };
+  }
+
+  /**
+   * Records the measured height of a row.
+   *
+   * @param id
+   *     the stable ID of the item
+   * @param viewType
+   *     the view type of the item
+   * @param height
+   *     the measured height in pixels
+   */
+  public void put(long id, int viewType, int height) {
+    if (height <= 0) {
+      return;
+    }
+    long value = pack(viewType, height);
+    // The replaced value is subtracted in entryRemoved(). Not looked up first, so the hit rate only counts reads.
+    heights.put(id, value);
+    addTotals(value);
+  }
+
+  /**
+   * Returns the measured height of the row, or -1 if it is unknown or was measured with another view type.
+   */
+  public int getHeight(long id, int viewType) {
+    Long value = heights.get(id);
+    if (value == null || unpackViewType(value) != viewType) {
+      return -1;
+    }
+    return unpackHeight(value);
+  }
+
+  /**
+   * Returns the average height of all rows in the cache, or -1 if the cache is empty.
+   */
+  public int getAverageHeight() {
+    return count == 0 ? -1 : Math.round(totalHeight / (float) count);
+  }
+
+  /**
+   * Returns the average height of the cached rows of the view type, or -1 if none are cached.
+   */
+  public int getAverageHeight(int viewType) {
+    long[] totals = viewTypeTotals.get(viewType);
+    if (totals == null || totals[1] == 0) {
+      return -1;
+    }
+    return Math.round(totals[0] / (float) totals[1]);
+  }
+
+  /**
+   * Returns the number of rows in the cache.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the approximate memory used by the cache, in bytes.
+   */
+  public int getRetainedBytes() {
+    return heights.size();
+  }
+
+  /**
+   * Evicts the least recently measured rows until the cache uses at most the given memory.
+   */
+  public void trimToSize(int maxBytes) {
+    heights.trimToSize(Math.max(0, maxBytes));
+  }
+
+  public int getMaxBytes() {
+    return heights.maxSize();
+  }
+
+  /**
+   * Returns the number of lookups that found a height.
+   */
+  public int getHitCount() {
+    return heights.hitCount();
+  }
+
+  /**
+   * Returns the number of lookups that did not find a height.
+   */
+  public int getMissCount() {
+    return heights.missCount();
+  }
+
+  public void clear() {
+    heights.evictAll();
+    viewTypeTotals.clear();
+    totalHeight = 0;
+    count = 0;
+  }
+
+  private void addTotals(long value) {
+    int viewType = unpackViewType(value);
+    int height = unpackHeight(value);
+    long[] totals = viewTypeTotals.get(viewType);
+    if (totals == null) {
+      totals = new long[2];
+      viewTypeTotals.put(viewType, totals);
+    }
+    totals[0] += height;
+    totals[1]++;
+    totalHeight += height;
+    count++;
+  }
+
+  private void removeTotals(long value) {
+    int viewType = unpackViewType(value);
+    int height = unpackHeight(value);
+    long[] totals = viewTypeTotals.get(viewType);
+    if (totals != null) {
+      totals[0] -= height;
+      totals[1]--;
+    }
+    totalHeight -= height;
+    count--;
+  }
+
+  private static long pack(int viewType, int height) {
+    return ((long) viewType << 32) | (height & 0xFFFFFFFFL);
+  }
+
+  private static int unpackViewType(long value) {
+    return (int) (value >>> 32);
+  }
+
+  private static int unpackHeight(long value) {
+    return (int) value;
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+/**
+ * Supplies the scroll geometry the fast scroller needs to place the thumb and to jump.
+ *
+ * <p>All values are in pixels of the (possibly estimated) content, where offset 0 shows the top of the list. A
+ * provider is resolved once when the layout manager is set: {@link LinearScrollMetrics},
+ * {@link GridScrollMetrics} and {@link StaggeredGridScrollMetrics} are built in. A custom layout manager that knows
+ * its exact geometry can implement this interface itself, or one can be set with
+ * {@link FastScrollRecyclerView#setScrollMetricsProvider(ScrollMetricsProvider)}.</p>
+ */
+public interface ScrollMetricsProvider {
+
+  /**
+   * @return the offset of the top of the visible area into the content, or -1 if nothing is laid out
+   */
+  int getScrollOffset();
+
+  /**
+   * @return the height of the whole content, including the vertical padding of the recycler view
+   */
+  int getScrollRange();
+
+  /**
+   * @param offset
+   *     an offset into the content
+   * @return the adapter position of the item at the offset
+   */
+  int getPositionAtOffset(int offset);
+
+  /**
+   * Scrolls the list so that the top of the visible area is at the offset into the content.
+   *
+   * @param offset
+   *     an offset into the content
+   */
+  void scrollToOffset(int offset);
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+/**
+ * Decides when a preview scrub is committed, see {@link FastScrollRecyclerView#SCRUB_MODE_PREVIEW}: the list jumps
+ * once the thumb rested for the dwell time. The scroll bar posts a single check and posts it again for the remaining
+ * time when the thumb moved in between, instead of removing and posting a callback on every move.
+ *
+ * <p>Times are {@link android.os.SystemClock#uptimeMillis()} values passed in, so the timer can be driven without a
+ * view.</p>
+ */
+/*package*/ final class ScrubDwellTimer {
+
+  /*package*/ static final long NONE = -1;
+
+  private long lastMoveTime;
+  private boolean checkPosted;
+
+  /**
+   * Called on every move of a preview scrub.
+   *
+   * @return the delay to post a check after, or {@link #NONE} if a check is posted already or the dwell time is 0
+   */
+  /*package*/ long onMove(long now, long dwellMillis) {
+    if (dwellMillis <= 0) {
+      return NONE;
+    }
+    lastMoveTime = now;
+    if (checkPosted) {
+      return NONE;
+    }
+    checkPosted = true;
+    return dwellMillis;
+  }
+
+  /**
+   * Called when the posted check runs.
+   *
+   * @return 0 if the scrub is committed now, otherwise the delay to post the next check after
+   */
+  /*package*/ long onCheck(long now, long dwellMillis) {
+    long wait = lastMoveTime + dwellMillis - now;
+    checkPosted = wait > 0;
+    return checkPosted ? wait : 0;
+  }
+
+  /**
+   * Called when the scrub ends or is committed by a release.
+   *
+   * @return whether a posted check has to be removed
+   */
+  /*package*/ boolean cancel() {
+    boolean posted = checkPosted;
+    checkPosted = false;
+    return posted;
+  }
+
+}
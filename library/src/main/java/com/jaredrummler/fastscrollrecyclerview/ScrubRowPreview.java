@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A scaled down copy of the row the thumb points at, drawn next to the popup while the list waits for the scrub to be
+ * committed, see {@link FastScrollRecyclerView#SCRUB_MODE_PREVIEW}.
+ *
+ * <p>The row is bound into a single view holder that is kept for the next scrub. It is only created again when the
+ * view type changes, and only bound again when the position changes, so a scrub over many rows costs one bind per
+ * row that is passed and no layout of the list. A holder that is replaced or released is passed to
+ * {@link RecyclerView.Adapter#onViewRecycled(RecyclerView.ViewHolder)} first, so the adapter can free what it
+ * loaded into it. Rows of a {@link FastScrollRecyclerView.PagedAdapter} page that is not loaded are not previewed,
+ * they would only show their placeholders.</p>
+ */
+/*package*/ final class ScrubRowPreview {
+
+  /*package*/ static final float SCALE = 0.5f;
+  private static final int FRAME_DP = 2;
+
+  private final Rect bounds = new Rect(); // the frame, in the coordinates of the list
+  private final int frameWidth;
+  private RecyclerView.ViewHolder holder;
+  private RecyclerView.Adapter holderAdapter; // the adapter the holder was created by
+  private int holderViewType;
+  private int boundPosition = RecyclerView.NO_POSITION;
+
+  /*package*/ ScrubRowPreview(FastScrollRecyclerView rv) {
+    frameWidth = (int) (FRAME_DP * rv.getResources().getDisplayMetrics().density);
+  }
+
+  /**
+   * Binds the row at the position, unless it is bound already.
+   */
+  /*package*/ void bind(FastScrollRecyclerView rv, int position) {
+    RecyclerView.Adapter adapter = rv.getAdapter();
+    int width = rv.getWidth() - rv.getPaddingLeft() - rv.getPaddingRight();
+    if (adapter == null || width <= 0 || position < 0 || position >= adapter.getItemCount()
+        || !isPageLoaded(adapter, position)) {
+      unbind();
+      return;
+    }
+    if (position == boundPosition && adapter == holderAdapter) {
+      return;
+    }
+    int viewType = adapter.getItemViewType(position);
+    if (holder == null || holderViewType != viewType || adapter != holderAdapter) {
+      release();
+      holder = adapter.createViewHolder(rv, viewType);
+      holderAdapter = adapter;
+      holderViewType = viewType;
+    }
+    adapter.bindViewHolder(holder, position);
+    boundPosition = position;
+
+    View itemView = holder.itemView;
+    ViewGroup.LayoutParams lp = itemView.getLayoutParams();
+    int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+    int childWidthSpec = ViewGroup.getChildMeasureSpec(widthSpec, 0,
+        lp != null ? lp.width : ViewGroup.LayoutParams.MATCH_PARENT);
+    int childHeightSpec = lp != null && lp.height >= 0
+        ? View.MeasureSpec.makeMeasureSpec(lp.height, View.MeasureSpec.EXACTLY)
+        : View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    itemView.measure(childWidthSpec, childHeightSpec);
+    itemView.layout(0, 0, itemView.getMeasuredWidth(), itemView.getMeasuredHeight());
+  }
+
+  /**
+   * Hides the preview. The view holder is kept for the next scrub.
+   */
+  /*package*/ void unbind() {
+    boundPosition = RecyclerView.NO_POSITION;
+    bounds.setEmpty();
+  }
+
+  /**
+   * Hides the preview and hands the view holder back to its adapter.
+   */
+  /*package*/ void release() {
+    unbind();
+    if (holder != null) {
+      holderAdapter.onViewRecycled(holder);
+      holder = null;
+      holderAdapter = null;
+    }
+  }
+
+  /*package*/ boolean isBound() {
+    return boundPosition != RecyclerView.NO_POSITION;
+  }
+
+  /**
+   * Places the preview beside the popup, on the side facing the content, and centered on it vertically.
+   */
+  /*package*/ void updateBounds(FastScrollRecyclerView rv, Rect popupBounds, boolean rtl) {
+    if (!isBound() || popupBounds.isEmpty()) {
+      bounds.setEmpty();
+      return;
+    }
+    View itemView = holder.itemView;
+    int width = (int) (itemView.getMeasuredWidth() * SCALE) + 2 * frameWidth;
+    int height = Math.min((int) (itemView.getMeasuredHeight() * SCALE), rv.getHeight() / 2) + 2 * frameWidth;
+    int gap = frameWidth * 2;
+    if (rtl) {
+      bounds.left = popupBounds.right + gap;
+      bounds.right = Math.min(rv.getWidth(), bounds.left + width);
+    } else {
+      bounds.right = popupBounds.left - gap;
+      bounds.left = Math.max(0, bounds.right - width);
+    }
+    bounds.top = popupBounds.centerY() - height / 2;
+    bounds.top = Math.max(0, Math.min(bounds.top, rv.getHeight() - height));
+    bounds.bottom = bounds.top + height;
+  }
+
+  private static boolean isPageLoaded(RecyclerView.Adapter adapter, int position) {
+    if (!(adapter instanceof FastScrollRecyclerView.PagedAdapter)) {
+      return true;
+    }
+    FastScrollRecyclerView.PagedAdapter pagedAdapter = (FastScrollRecyclerView.PagedAdapter) adapter;
+    return pagedAdapter.isPageLoaded(position / Math.max(1, pagedAdapter.getPageSize()));
+  }
+
+  /*package*/ Rect getBounds() {
+    return bounds;
+  }
+
+  /*package*/ void draw(Canvas c, Paint framePaint) {
+    if (bounds.isEmpty()) {
+      return;
+    }
+    int restoreCount = c.save();
+    c.drawRect(bounds, framePaint);
+    c.clipRect(bounds.left + frameWidth, bounds.top + frameWidth, bounds.right - frameWidth,
+        bounds.bottom - frameWidth);
+    c.translate(bounds.left + frameWidth, bounds.top + frameWidth);
+    c.scale(SCALE, SCALE);
+    holder.itemView.draw(c);
+    c.restoreToCount(restoreCount);
+  }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.widget.SectionIndexer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable lookup table of sections. Each section is stored as its name and the adapter position of its first
+ * item, so finding where a section starts is O(1) and finding the section of a position is a binary search over the
+ * section starts.
+ */
+public final class SectionIndex {
+
+  /** An index without any sections. */
+  public static final SectionIndex EMPTY = new SectionIndex(new String[0], new int[0], 0);
+
+  private final String[] names;
+  private final int[] positions;
+  private final int itemCount;
+
+  /**
+   * @param names
+   *     the section names, in adapter order
+   * @param positions
+   *     the first adapter position of each section, sorted ascending
+   * @param itemCount
+   *     the number of items covered by the index
+   */
+  public SectionIndex(@NonNull String[] names, @NonNull int[] positions, int itemCount) {
+    if (names.length != positions.length) {
+      throw new IllegalArgumentException("names and positions must have the same length");
+    }
+    this.names = names;
+    this.positions = positions;
+    this.itemCount = itemCount;
+  }
+
+  /**
+   * Builds an index by asking the adapter for the section name of every item once. Consecutive items sharing a
+   * section name are folded into a single section.
+   */
+  @NonNull public static SectionIndex build(@NonNull FastScrollRecyclerView.SectionedAdapter adapter, int itemCount) {
+    if (itemCount <= 0) {
+      return EMPTY;
+    }
+    Builder builder = new Builder();
+    for (int position = 0; position < itemCount; position++) {
+      builder.add(position, adapter.getSectionName(position));
+    }
+    return builder.build(itemCount);
+  }
+
+  /**
+   * Builds an index from an existing {@link SectionIndexer} without touching any per-item data. Sections are
+   * converted to names with {@link String#valueOf(Object)}.
+   */
+  @NonNull public static SectionIndex fromSectionIndexer(@NonNull SectionIndexer indexer, int itemCount) {
+    Object[] sections = indexer.getSections();
+    if (sections == null || sections.length == 0 || itemCount <= 0) {
+      return EMPTY;
+    }
+    String[] names = new String[sections.length];
+    int[] positions = new int[sections.length];
+    int last = 0;
+    for (int section = 0; section < sections.length; section++) {
+      names[section] = String.valueOf(sections[section]);
+      // Keep the table sorted even if the indexer reports positions out of range
+      last = Math.max(last, Math.min(itemCount - 1, indexer.getPositionForSection(section)));
+      positions[section] = last;
+    }
+    return new SectionIndex(names, positions, itemCount);
+  }
+
+  /**
+   * Builds an index from a list of section names and their first adapter positions, for example the result of a
+   * {@code GROUP BY} query.
+   */
+  @NonNull public static SectionIndex fromSections(@NonNull List<String> names, @NonNull List<Integer> positions,
+                                                   int itemCount) {
+    int count = names.size();
+    String[] nameArray = names.toArray(new String[count]);
+    int[] positionArray = new int[positions.size()];
+    for (int i = 0; i < positionArray.length; i++) {
+      positionArray[i] = positions.get(i);
+    }
+    return new SectionIndex(nameArray, positionArray, itemCount);
+  }
+
+  /**
+   * Builds an index from a cursor holding one row per section, in adapter order, such as:
+   *
+   * <pre>
+   * SELECT substr(name, 1, 1) AS section, COUNT(*) AS size FROM contacts GROUP BY section ORDER BY section
+   * </pre>
+   *
+   * The start position of each section is the sum of the sizes of the sections before it. The cursor is not
+   * closed.
+   *
+   * @param cursor
+   *     the cursor with one row per section
+   * @param nameColumn
+   *     the column holding the section name
+   * @param sizeColumn
+   *     the column holding the number of items in the section
+   */
+  @NonNull public static SectionIndex fromCursor(@NonNull Cursor cursor, @NonNull String nameColumn,
+                                                 @NonNull String sizeColumn) {
+    int count = cursor.getCount();
+    if (count <= 0) {
+      return EMPTY;
+    }
+    int nameIndex = cursor.getColumnIndexOrThrow(nameColumn);
+    int sizeIndex = cursor.getColumnIndexOrThrow(sizeColumn);
+    String[] names = new String[count];
+    int[] positions = new int[count];
+    int position = 0;
+    for (int section = 0; section < count && cursor.moveToPosition(section); section++) {
+      String name = cursor.getString(nameIndex);
+      names[section] = name == null ? "" : name;
+      positions[section] = position;
+      position += cursor.getInt(sizeIndex);
+    }
+    return new SectionIndex(names, positions, position);
+  }
+
+  public int getSectionCount() {
+    return names.length;
+  }
+
+  public int getItemCount() {
+    return itemCount;
+  }
+
+  @NonNull public String getSectionName(int section) {
+    return names[section];
+  }
+
+  /**
+   * Returns the first adapter position of the section.
+   */
+  public int getPositionForSection(int section) {
+    return positions[section];
+  }
+
+  /**
+   * Returns the section that contains the adapter position, or -1 if the index is empty.
+   */
+  public int getSectionForPosition(int position) {
+    if (positions.length == 0) {
+      return -1;
+    }
+    // Find the last section starting at or before the position. Empty sections share their start position with
+    // the next section, so the last match wins.
+    int low = 0;
+    int high = positions.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (positions[mid] <= position) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the section name for the adapter position, or an empty string if the index is empty.
+   */
+  @NonNull public String getSectionNameForPosition(int position) {
+    int section = getSectionForPosition(position);
+    return section < 0 ? "" : names[section];
+  }
+
+  /**
+   * Returns the approximate memory used by the table, counting each name as if it was not shared, in bytes.
+   */
+  public long getRetainedBytes() {
+    long bytes = positions.length * 4L + names.length * 4L;
+    for (String name : names) {
+      bytes += Utilities.getStringBytes(name);
+    }
+    return bytes;
+  }
+
+  /**
+   * Collects the sections of items added in adapter order, folding consecutive items sharing a section name.
+   */
+  /*package*/ static final class Builder {
+
+    private String[] names = new String[16];
+    private int[] positions = new int[16];
+    private int count;
+    private String last;
+
+    /*package*/ void add(int position, String name) {
+      if (name.equals(last)) {
+        return;
+      }
+      if (count == names.length) {
+        names = Arrays.copyOf(names, count * 2);
+        positions = Arrays.copyOf(positions, count * 2);
+      }
+      names[count] = name;
+      positions[count] = position;
+      count++;
+      last = name;
+    }
+
+    /*package*/ SectionIndex build(int itemCount) {
+      return new SectionIndex(Arrays.copyOf(names, count), Arrays.copyOf(positions, count), itemCount);
+    }
+  }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * A {@link SectionIndex} being patched by list updates.
+ *
+ * <p>Updates are applied to the runs of sections in place: the runs touched by the update are replaced by at most
+ * two new runs, and the starts of the runs after it are shifted. An update therefore costs one binary search and one
+ * pass over the int starts that follow it, without allocating, no matter how large the list is. Inserted and changed
+ * items are kept as runs with an unknown name; they are resolved in one pass by
+ * {@link #resolve(FastScrollRecyclerView.SectionedAdapter)} once the whole batch has been applied and the adapter
+ * positions are final.</p>
+ */
+final class SectionIndexPatch {
+
+  private String[] names; // null for items whose section is not known yet
+  private int[] starts;
+  private int count;
+  private int itemCount;
+
+  SectionIndexPatch(SectionIndex index) {
+    count = index.getSectionCount();
+    itemCount = index.getItemCount();
+    names = new String[count + 2];
+    starts = new int[count + 2];
+    for (int section = 0; section < count; section++) {
+      names[section] = index.getSectionName(section);
+      starts[section] = index.getPositionForSection(section);
+    }
+  }
+
+  /**
+   * Replaces {@code removeCount} items at {@code position} with {@code insertCount} items of an unknown section.
+   */
+  void replace(int position, int removeCount, int insertCount) {
+    replace(position, removeCount, insertCount, null);
+  }
+
+  /**
+   * Moves the item at {@code fromPosition} to {@code toPosition}, keeping its section.
+   */
+  void move(int fromPosition, int toPosition) {
+    String name = fromPosition < itemCount ? names[sectionAt(fromPosition)] : null;
+    replace(fromPosition, 1, 0, null);
+    replace(toPosition, 0, 1, name);
+  }
+
+  /**
+   * Builds the patched index, asking the adapter only for the items whose section is unknown.
+   */
+  SectionIndex resolve(FastScrollRecyclerView.SectionedAdapter adapter) {
+    if (itemCount <= 0) {
+      return SectionIndex.EMPTY;
+    }
+    Runs runs = new Runs(count + 8);
+    for (int section = 0; section < count; section++) {
+      if (names[section] != null) {
+        runs.append(starts[section], names[section]);
+        continue;
+      }
+      int end = section + 1 < count ? starts[section + 1] : itemCount;
+      for (int position = starts[section]; position < end; position++) {
+        runs.append(position, adapter.getSectionName(position));
+      }
+    }
+    return new SectionIndex(Arrays.copyOf(runs.names, runs.count), Arrays.copyOf(runs.starts, runs.count), itemCount);
+  }
+
+  private void replace(int position, int removeCount, int insertCount, String insertName) {
+    position = Math.max(0, Math.min(itemCount, position));
+    removeCount = Math.max(0, Math.min(itemCount - position, removeCount));
+    int end = position + removeCount;
+    int shift = insertCount - removeCount;
+
+    // Sections starting before the update are kept, they still hold at least their first item
+    int kept = countStartsBefore(position);
+    String previous = kept > 0 ? names[kept - 1] : null;
+    boolean hasPrevious = kept > 0;
+
+    // The update leaves at most two runs: the inserted items, and the rest of the section holding the first item
+    // after the removed range. Each folds into the run before it when the names match.
+    String insertRunName = null;
+    boolean insertRun = false;
+    if (insertCount > 0 && !(hasPrevious && equal(previous, insertName))) {
+      insertRun = true;
+      insertRunName = insertName;
+      previous = insertName;
+      hasPrevious = true;
+    }
+    String resumedRunName = null;
+    boolean resumedRun = false;
+    int tail = count;
+    if (end < itemCount) {
+      int resumed = sectionAt(end);
+      if (!(hasPrevious && equal(previous, names[resumed]))) {
+        resumedRun = true;
+        resumedRunName = names[resumed];
+      }
+      tail = resumed + 1;
+    }
+
+    // Move the following sections into place and shift their starts
+    int middle = (insertRun ? 1 : 0) + (resumedRun ? 1 : 0);
+    int newCount = kept + middle + count - tail;
+    if (newCount > names.length) {
+      names = Arrays.copyOf(names, newCount + 8);
+      starts = Arrays.copyOf(starts, newCount + 8);
+    }
+    System.arraycopy(names, tail, names, kept + middle, count - tail);
+    System.arraycopy(starts, tail, starts, kept + middle, count - tail);
+    for (int section = kept + middle; section < newCount; section++) {
+      starts[section] += shift;
+    }
+    int section = kept;
+    if (insertRun) {
+      names[section] = insertRunName;
+      starts[section] = position;
+      section++;
+    }
+    if (resumedRun) {
+      names[section] = resumedRunName;
+      starts[section] = position + insertCount;
+    }
+    for (int unused = newCount; unused < count; unused++) {
+      names[unused] = null;
+    }
+    count = newCount;
+    itemCount += shift;
+  }
+
+  /**
+   * Returns the number of sections starting before the position.
+   */
+  private int countStartsBefore(int position) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (starts[mid] < position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int sectionAt(int position) {
+    int low = 0;
+    int high = count - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (starts[mid] <= position) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * Growable section runs which fold neighbours with the same name.
+   */
+  private static final class Runs {
+
+    String[] names;
+    int[] starts;
+    int count;
+
+    Runs(int capacity) {
+      names = new String[Math.max(4, capacity)];
+      starts = new int[names.length];
+    }
+
+    void append(int start, String name) {
+      if (count > 0) {
+        String last = names[count - 1];
+        if (last == null ? name == null : last.equals(name)) {
+          return;
+        }
+        if (starts[count - 1] == start) {
+          // The previous run ended up empty
+          count--;
+          if (count > 0 && (names[count - 1] == null ? name == null : names[count - 1].equals(name))) {
+            return;
+          }
+        }
+      }
+      if (count == names.length) {
+        names = Arrays.copyOf(names, count * 2);
+        starts = Arrays.copyOf(starts, count * 2);
+      }
+      names[count] = name;
+      starts[count] = start;
+      count++;
+    }
+  }
+
+}
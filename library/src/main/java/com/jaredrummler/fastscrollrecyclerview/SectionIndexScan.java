@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.MessageQueue;
+
+/**
+ * Scans a {@link FastScrollRecyclerView.SectionedAdapter} for its {@link SectionIndex} while the UI thread is idle, a
+ * slice of rows at a time, so that the first frame showing the section rail or sticky headers of a large list does
+ * not ask every row for its section name.
+ *
+ * <p>This class is not thread safe and must only be used on the UI thread.</p>
+ */
+/*package*/ final class SectionIndexScan implements MessageQueue.IdleHandler {
+
+  /*package*/ interface Callback {
+
+    /**
+     * Called once all rows were scanned.
+     */
+    void onSectionIndexScanned(SectionIndexScan scan, SectionIndex index);
+  }
+
+  private static final long BUDGET_NANOS = IdleTaskScheduler.DEFAULT_BUDGET_MS * 1000000L;
+  private static final int ROWS_PER_CHECK = 64; // rows scanned between two reads of the clock
+
+  private final FastScrollRecyclerView.SectionedAdapter adapter;
+  private final int itemCount;
+  private final Callback callback;
+  private final SectionIndex.Builder builder = new SectionIndex.Builder();
+  private int nextPosition;
+
+  /**
+   * @param itemCount
+   *     the number of items to scan. Cancel the scan when the adapter changes.
+   */
+  /*package*/ SectionIndexScan(FastScrollRecyclerView.SectionedAdapter adapter, int itemCount, Callback callback) {
+    this.adapter = adapter;
+    this.itemCount = itemCount;
+    this.callback = callback;
+  }
+
+  /*package*/ int getScannedCount() {
+    return nextPosition;
+  }
+
+  @Override public boolean queueIdle() {
+    long end = System.nanoTime() + BUDGET_NANOS;
+    while (nextPosition < itemCount) {
+      builder.add(nextPosition, adapter.getSectionName(nextPosition));
+      nextPosition++;
+      if (nextPosition % ROWS_PER_CHECK == 0 && System.nanoTime() >= end) {
+        return true;
+      }
+    }
+    callback.onSectionIndexScanned(this, builder.build(itemCount));
+    return false;
+  }
+
+}
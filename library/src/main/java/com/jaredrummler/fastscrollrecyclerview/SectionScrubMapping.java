@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Maps thumb progress to adapter positions in section space: every non-empty section of a {@link SectionIndex} gets
+ * the same share of the track, and within a section the position is interpolated linearly. A section holding 90% of
+ * the rows then takes no more of the track than any other section.
+ *
+ * <p>The section starts in position space and in track space are precomputed as cumulative arrays, so both
+ * directions are a binary search over the sections and never call the adapter.</p>
+ */
+public final class SectionScrubMapping {
+
+  private final SectionIndex index;
+  private final int[] positions; // first position of each non-empty section, followed by the item count
+  private final float[] progress; // track start of each non-empty section, followed by 1
+  private final int count;
+
+  public SectionScrubMapping(@NonNull SectionIndex index) {
+    this.index = index;
+    int sectionCount = index.getSectionCount();
+    int itemCount = index.getItemCount();
+    int[] starts = new int[sectionCount + 1];
+    int nonEmpty = 0;
+    for (int section = 0; section < sectionCount; section++) {
+      int start = index.getPositionForSection(section);
+      int end = section + 1 < sectionCount ? index.getPositionForSection(section + 1) : itemCount;
+      // An empty section has nothing to scroll to, so it gets no share of the track
+      if (end > start) {
+        starts[nonEmpty++] = start;
+      }
+    }
+    starts[nonEmpty] = itemCount;
+    count = nonEmpty;
+    positions = new int[count + 1];
+    progress = new float[count + 1];
+    System.arraycopy(starts, 0, positions, 0, count + 1);
+    for (int section = 0; section <= count; section++) {
+      progress[section] = count == 0 ? 0f : section / (float) count;
+    }
+  }
+
+  /**
+   * Returns whether the mapping was built from the index.
+   */
+  public boolean isFor(SectionIndex index) {
+    return this.index == index;
+  }
+
+  /**
+   * Returns the number of sections that share the track.
+   */
+  public int getSectionCount() {
+    return count;
+  }
+
+  /**
+   * Returns the adapter position at the progress (from 0..1).
+   */
+  public int getPositionForProgress(float progress) {
+    if (count == 0) {
+      return 0;
+    }
+    progress = Math.max(0f, Math.min(1f, progress));
+    int section = search(this.progress, progress);
+    float share = this.progress[section + 1] - this.progress[section];
+    float within = share > 0f ? (progress - this.progress[section]) / share : 0f;
+    int start = positions[section];
+    int end = positions[section + 1];
+    return Math.min(end - 1, start + (int) (within * (end - start)));
+  }
+
+  /**
+   * Returns the progress (from 0..1) of the position, the inverse of {@link #getPositionForProgress(float)}.
+   *
+   * @param position
+   *     the adapter position, a fraction selects a point inside the item
+   */
+  public float getProgressForPosition(float position) {
+    if (count == 0) {
+      return 0f;
+    }
+    int section = search(positions, (int) position);
+    int start = positions[section];
+    int end = positions[section + 1];
+    float within = Math.max(0f, Math.min(1f, (position - start) / (end - start)));
+    return progress[section] + within * (progress[section + 1] - progress[section]);
+  }
+
+  /**
+   * Returns the last section starting at or before the value.
+   */
+  private int search(int[] starts, int value) {
+    int low = 0;
+    int high = count - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (starts[mid] <= value) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private int search(float[] starts, float value) {
+    int low = 0;
+    int high = count - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (starts[mid] <= value) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+}
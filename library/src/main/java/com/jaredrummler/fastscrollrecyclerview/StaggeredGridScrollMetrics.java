@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+
+/**
+ * {@link ScrollMetricsProvider} for a {@link StaggeredGridLayoutManager}. Items are assumed to be spread evenly over
+ * the spans with the average height of the laid out items.
+ */
+public class StaggeredGridScrollMetrics implements ScrollMetricsProvider {
+
+  private final FastScrollRecyclerView recyclerView;
+  private final StaggeredGridLayoutManager layoutManager;
+  private int[] spanPositions;
+  private int rowHeight = -1;
+
+  public StaggeredGridScrollMetrics(FastScrollRecyclerView rv, StaggeredGridLayoutManager layoutManager) {
+    this.recyclerView = rv;
+    this.layoutManager = layoutManager;
+  }
+
+  @Override public int getScrollOffset() {
+    int spanCount = layoutManager.getSpanCount();
+    if (spanPositions == null || spanPositions.length != spanCount) {
+      spanPositions = new int[spanCount];
+    }
+    layoutManager.findFirstVisibleItemPositions(spanPositions);
+    int firstPosition = Integer.MAX_VALUE;
+    for (int position : spanPositions) {
+      if (position != RecyclerView.NO_POSITION) {
+        firstPosition = Math.min(firstPosition, position);
+      }
+    }
+    View child = firstPosition == Integer.MAX_VALUE ? null : layoutManager.findViewByPosition(firstPosition);
+    if (child == null || !updateRowHeight()) {
+      return -1;
+    }
+    return recyclerView.getPaddingTop() + (firstPosition / spanCount) * rowHeight - layoutManager.getDecoratedTop(child);
+  }
+
+  @Override public int getScrollRange() {
+    if (rowHeight <= 0 && !updateRowHeight()) {
+      return 0;
+    }
+    int spanCount = layoutManager.getSpanCount();
+    long rows = (getItemCount() + spanCount - 1) / spanCount;
+    return (int) Math.min(Integer.MAX_VALUE,
+        recyclerView.getPaddingTop() + rows * rowHeight + recyclerView.getPaddingBottom());
+  }
+
+  @Override public int getPositionAtOffset(int offset) {
+    int itemCount = getItemCount();
+    if (rowHeight <= 0 || itemCount == 0) {
+      return 0;
+    }
+    return Math.max(0, Math.min(itemCount - 1, layoutManager.getSpanCount() * (offset / rowHeight)));
+  }
+
+  @Override public void scrollToOffset(int offset) {
+    if (rowHeight <= 0) {
+      return;
+    }
+    offset = Math.max(0, offset);
+    layoutManager.scrollToPositionWithOffset(layoutManager.getSpanCount() * (offset / rowHeight),
+        -(offset % rowHeight));
+  }
+
+  /**
+   * Averages the decorated height of the laid out children.
+   */
+  private boolean updateRowHeight() {
+    int childCount = layoutManager.getChildCount();
+    long totalHeight = 0;
+    int measured = 0;
+    for (int i = 0; i < childCount; i++) {
+      View child = layoutManager.getChildAt(i);
+      int height = layoutManager.getDecoratedBottom(child) - layoutManager.getDecoratedTop(child);
+      if (height > 0) {
+        totalHeight += height;
+        measured++;
+      }
+    }
+    if (measured == 0) {
+      return false;
+    }
+    rowHeight = (int) (totalHeight / measured);
+    return true;
+  }
+
+  private int getItemCount() {
+    RecyclerView.Adapter adapter = recyclerView.getAdapter();
+    return adapter == null ? 0 : adapter.getItemCount();
+  }
+
+}
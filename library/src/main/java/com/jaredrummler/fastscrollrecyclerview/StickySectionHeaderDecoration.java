@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.v4.util.LruCache;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * Pins the header of the top-most section to the top of a {@link FastScrollRecyclerView}. The next header pushes it
+ * up as it scrolls in.
+ *
+ * <p>Section names come from {@link FastScrollRecyclerView#getSectionIndex()}, the same table the popup and the rail
+ * use, so the adapter is never asked for names while drawing. Headers are drawn once into bitmaps kept in a small
+ * cache keyed by section name; an evicted bitmap is reused for the next header, so fast scrolling through many
+ * sections does not allocate. Because the header, the popup and the rail read one table, they always agree, and
+ * {@link FastScrollRecyclerView#invalidateSectionIndex()} refreshes all of them.</p>
+ *
+ * <p>Subclasses can draw custom headers by overriding {@link #onDrawHeader(Canvas, String, int, int)}.</p>
+ */
+public class StickySectionHeaderDecoration extends RecyclerView.ItemDecoration {
+
+  private static final int DEFAULT_CACHE_SIZE = 8;
+
+  private final Canvas bitmapCanvas = new Canvas();
+  private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+  private final FastScrollRecyclerView recyclerView;
+  private final LruCache<String, Bitmap> headers;
+  private final Paint textPaint;
+  private int textPadding;
+  private int headerHeight;
+  @ColorInt private int backgroundColor;
+  private Bitmap recycledBitmap;
+
+  public StickySectionHeaderDecoration(@NonNull FastScrollRecyclerView rv) {
+    this(rv, rv.getFastScrollStyle());
+  }
+
+  public StickySectionHeaderDecoration(@NonNull FastScrollRecyclerView rv, @NonNull FastScrollStyle style) {
+    recyclerView = rv;
+    textPaint = new Paint();
+    textPaint.setAntiAlias(true);
+    headers = new LruCache<String, Bitmap>(DEFAULT_CACHE_SIZE) {
+
+      @Override protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+        if (evicted) {
+          recycledBitmap = oldValue;
+        }
+      }
+    };
+    setStyle(style);
+  }
+
+  /*package*/ void setStyle(FastScrollStyle style) {
+    headerHeight = style.stickyHeaderHeight;
+    textPadding = style.stickyHeaderPadding;
+    backgroundColor = style.stickyHeaderBackgroundColor;
+    textPaint.setColor(style.stickyHeaderTextColor);
+    textPaint.setTextSize(style.stickyHeaderTextSize);
+    invalidateHeaders();
+  }
+
+  public void setBackgroundColor(@ColorInt int color) {
+    backgroundColor = color;
+    invalidateHeaders();
+  }
+
+  public void setTextColor(@ColorInt int color) {
+    textPaint.setColor(color);
+    invalidateHeaders();
+  }
+
+  public void setTextSize(float textSize) {
+    textPaint.setTextSize(textSize);
+    invalidateHeaders();
+  }
+
+  public void setHeaderHeight(int height) {
+    headerHeight = height;
+    invalidateHeaders();
+  }
+
+  public int getHeaderHeight() {
+    return headerHeight;
+  }
+
+  /**
+   * Keeps at most the given number of header bitmaps, dropping the least recently drawn ones. The reusable bitmap is
+   * released as well.
+   */
+  public void trimToSize(int maxCount) {
+    headers.trimToSize(Math.max(0, maxCount));
+    recycledBitmap = null;
+  }
+
+  /**
+   * Returns the number of headers drawn from the cache.
+   */
+  public int getHitCount() {
+    return headers.hitCount();
+  }
+
+  /**
+   * Returns the number of headers that had to be rendered.
+   */
+  public int getMissCount() {
+    return headers.missCount();
+  }
+
+  /**
+   * Returns the memory used by the cached header bitmaps, in bytes.
+   */
+  public long getRetainedBytes() {
+    long bytes = recycledBitmap != null ? getBitmapBytes(recycledBitmap) : 0;
+    for (Bitmap bitmap : headers.snapshot().values()) {
+      bytes += getBitmapBytes(bitmap);
+    }
+    return bytes;
+  }
+
+  private static long getBitmapBytes(Bitmap bitmap) {
+    return (long) bitmap.getRowBytes() * bitmap.getHeight();
+  }
+
+  /**
+   * Drops the cached header bitmaps, for example after the look of the headers changed.
+   */
+  public void invalidateHeaders() {
+    headers.evictAll();
+    recycledBitmap = null;
+    recyclerView.invalidate();
+  }
+
+  @Override public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+    View child = parent.getChildAt(0);
+    int width = parent.getWidth();
+    if (child == null || width <= 0 || headerHeight <= 0) {
+      return;
+    }
+    SectionIndex index = recyclerView.peekSectionIndex();
+    int position = parent.getChildLayoutPosition(child);
+    int section = position == RecyclerView.NO_POSITION ? -1 : index.getSectionForPosition(position);
+    if (section < 0) {
+      return;
+    }
+
+    // The header of the next section pushes this one up
+    int top = 0;
+    if (section + 1 < index.getSectionCount()) {
+      int nextPosition = index.getPositionForSection(section + 1);
+      for (int i = 1, count = parent.getChildCount(); i < count; i++) {
+        View next = parent.getChildAt(i);
+        int nextChildPosition = parent.getChildLayoutPosition(next);
+        if (nextChildPosition >= nextPosition) {
+          if (nextChildPosition == nextPosition) {
+            top = Math.min(0, next.getTop() - headerHeight);
+          }
+          break;
+        }
+      }
+    }
+
+    Bitmap header = getHeader(index.getSectionName(section), width);
+    c.drawBitmap(header, 0, top, null);
+  }
+
+  /**
+   * Draws the header of a section. The canvas is cleared before this is called.
+   *
+   * @param canvas
+   *     the canvas of the header bitmap
+   * @param sectionName
+   *     the name of the section
+   * @param width
+   *     the width of the header
+   * @param height
+   *     the height of the header
+   */
+  protected void onDrawHeader(Canvas canvas, String sectionName, int width, int height) {
+    canvas.drawColor(backgroundColor);
+    textPaint.getFontMetrics(fontMetrics);
+    float baseline = (height - fontMetrics.ascent - fontMetrics.descent) / 2;
+    if (Utilities.isRtl(recyclerView.getResources())) {
+      canvas.drawText(sectionName, width - textPadding - textPaint.measureText(sectionName), baseline, textPaint);
+    } else {
+      canvas.drawText(sectionName, textPadding, baseline, textPaint);
+    }
+  }
+
+  private Bitmap getHeader(String sectionName, int width) {
+    Bitmap header = headers.get(sectionName);
+    if (header != null && header.getWidth() == width && header.getHeight() == headerHeight) {
+      return header;
+    }
+    Bitmap bitmap = recycledBitmap;
+    recycledBitmap = null;
+    if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != headerHeight) {
+      bitmap = Bitmap.createBitmap(width, headerHeight, Bitmap.Config.ARGB_8888);
+    } else {
+      bitmap.eraseColor(0);
+    }
+    bitmapCanvas.setBitmap(bitmap);
+    onDrawHeader(bitmapCanvas, sectionName, width, headerHeight);
+    bitmapCanvas.setBitmap(null);
+    headers.put(sectionName, bitmap);
+    return bitmap;
+  }
+
+}
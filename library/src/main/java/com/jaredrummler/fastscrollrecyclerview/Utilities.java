@@ -23,9 +23,16 @@ import android.view.View;
 
 final class Utilities {
 
+  // Approximate heap cost of a String and its char array, without the characters
+  static final int STRING_OVERHEAD_BYTES = 40;
+
   static boolean isRtl(Resources res) {
     return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 &&
         res.getConfiguration().getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
   }
 
+  static long getStringBytes(String string) {
+    return STRING_OVERHEAD_BYTES + string.length() * 2L;
+  }
+
 }
@@ -0,0 +1,655 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Estimates the offsets of rows that are not laid out from the mean height of each view type.
+ *
+ * <p>Averaging the visible rows gives a content height that swings with whatever is on screen: a screen of 32dp
+ * headers makes the list look short, a screen of 300dp cards makes it look long. This model learns the mean height of
+ * every {@link RecyclerView.Adapter#getItemViewType(int) view type} from the measured rows instead. The offset of a
+ * position is the sum over the view types of their mean height times the number of their rows above it, so the
+ * estimate only moves when the mean of a view type does.</p>
+ *
+ * <p>The view type of every row is kept in chunks of about {@link #CHUNK_SIZE} rows, four bytes per item, along with
+ * the number of rows of each view type in the chunk. They are built with one pass over the view types of the adapter
+ * the first time they are needed. Inserted, removed, moved and changed rows are then patched in, see
+ * {@link #insert(int, int)}: only the chunks holding them are touched, which costs O(count + {@link #CHUNK_SIZE}), plus
+ * moving the chunk references when a chunk is split or dropped. The view types of new and changed rows are read by the
+ * next {@link #update(RecyclerView.Adapter)}, once the adapter holds its final data. Lists with more than
+ * {@link #DEFAULT_MAX_ITEMS} items are not indexed and fall back to the average row height.</p>
+ *
+ * <p>The counts of each view type above every chunk are summed again before the first offset after an update, which
+ * costs O(n / {@link #CHUNK_SIZE} &times; types) once per batch of updates. An offset then costs
+ * O(types &times; log n + {@link #CHUNK_SIZE}).</p>
+ *
+ * <p>Every position is sampled once, so the means do not lean towards the rows that happen to be on screen. Changed
+ * rows are sampled again. The means are kept across changes of the adapter.</p>
+ *
+ * <p>This class is not thread safe and must only be used on the UI thread.</p>
+ */
+public class ViewTypeHeightModel {
+
+  public static final int DEFAULT_MAX_ITEMS = 256 * 1024;
+
+  /** Rows per chunk after a pass over the adapter. Chunks are split at twice this size. */
+  /*package*/ static final int CHUNK_SIZE = 512;
+
+  // A row holds the index of its view type and whether its height is in the means
+  private static final int TYPE_MASK = 0xFFFF;
+  private static final int PENDING = TYPE_MASK; // the view type of the row is not read yet
+  private static final int SAMPLED = 1 << 16;
+
+  private final int maxItems;
+
+  // Learned heights, kept across data changes
+  private int[] sampleTypes = new int[4];
+  private long[] heightSums = new long[4];
+  private int[] heightCounts = new int[4];
+  private int sampleTypeCount;
+  private final BitSet sampled = new BitSet(); // sampled positions while the rows are not indexed
+
+  // Rows of the adapter, rebuilt after a change
+  private int[] viewTypes; // the distinct view types of the adapter
+  private int typeCount;
+  private final List<Chunk> chunks = new ArrayList<>();
+  private int pendingCount;
+  private int itemCount;
+  private boolean indexed;
+
+  // First position and number of rows of each view type above each chunk, summed again after an update
+  private int[] chunkStarts = new int[0];
+  private int[] typesAbove = new int[0];
+  private boolean prefixValid;
+  private int[] heights = new int[4];
+
+  public ViewTypeHeightModel() {
+    this(DEFAULT_MAX_ITEMS);
+  }
+
+  /**
+   * @param maxItems
+   *     the largest adapter that is indexed
+   */
+  public ViewTypeHeightModel(int maxItems) {
+    this.maxItems = maxItems;
+  }
+
+  /**
+   * Records the measured height of the row at the position, unless the row was sampled already.
+   */
+  public void record(int position, int viewType, int height) {
+    if (height <= 0 || position < 0) {
+      return;
+    }
+    if (viewTypes != null) {
+      if (position >= itemCount) {
+        return;
+      }
+      int index = chunkIndexOf(position);
+      Chunk chunk = chunks.get(index);
+      int offset = position - chunkStarts[index];
+      if ((chunk.rows[offset] & SAMPLED) != 0) {
+        return;
+      }
+      chunk.rows[offset] |= SAMPLED;
+    } else if (sampled.get(position)) {
+      return;
+    } else {
+      sampled.set(position);
+    }
+    int index = indexOfSampleType(viewType);
+    if (index < 0) {
+      if (sampleTypeCount == sampleTypes.length) {
+        sampleTypes = Arrays.copyOf(sampleTypes, sampleTypeCount * 2);
+        heightSums = Arrays.copyOf(heightSums, sampleTypeCount * 2);
+        heightCounts = Arrays.copyOf(heightCounts, sampleTypeCount * 2);
+      }
+      index = sampleTypeCount++;
+      sampleTypes[index] = viewType;
+      heightSums[index] = 0;
+      heightCounts[index] = 0;
+    }
+    heightSums[index] += height;
+    heightCounts[index]++;
+  }
+
+  /**
+   * Returns the mean height of the view type, or -1 if no row of it was measured.
+   */
+  public int getMeanHeight(int viewType) {
+    int index = indexOfSampleType(viewType);
+    if (index < 0 || heightCounts[index] == 0) {
+      return -1;
+    }
+    return (int) Math.round(heightSums[index] / (double) heightCounts[index]);
+  }
+
+  /**
+   * Indexes the view types of the adapter unless they are indexed already.
+   *
+   * @return {@code true} if the adapter is indexed and offsets can be estimated
+   */
+  public boolean update(RecyclerView.Adapter adapter) {
+    int count = adapter == null ? 0 : adapter.getItemCount();
+    if (indexed && count == itemCount && (pendingCount == 0 || resolvePending(adapter))) {
+      return viewTypes != null;
+    }
+    // Carry the sampled rows over to the new pass
+    int start = 0;
+    for (Chunk chunk : chunks) {
+      for (int i = 0; i < chunk.size; i++) {
+        if ((chunk.rows[i] & SAMPLED) != 0) {
+          sampled.set(start + i);
+        }
+      }
+      start += chunk.size;
+    }
+    dropRows();
+    indexed = true;
+    itemCount = count;
+    if (count == 0 || count > maxItems) {
+      return false;
+    }
+
+    // One pass over the adapter, rows are appended in order
+    viewTypes = new int[4];
+    Chunk chunk = null;
+    int lastType = 0;
+    int lastIndex = -1;
+    for (int position = 0; position < count; position++) {
+      int viewType = adapter.getItemViewType(position);
+      int index = lastIndex >= 0 && viewType == lastType ? lastIndex : typeIndexOf(viewType);
+      if (chunk == null || chunk.size == CHUNK_SIZE) {
+        chunk = new Chunk(CHUNK_SIZE);
+        chunks.add(chunk);
+      }
+      chunk.append(sampled.get(position) ? index | SAMPLED : index);
+      lastType = viewType;
+      lastIndex = index;
+    }
+    sampled.clear();
+    return true;
+  }
+
+  /**
+   * Reads the view types of the pending rows.
+   *
+   * @return {@code false} if so many rows are pending that a new pass over the adapter is cheaper
+   */
+  private boolean resolvePending(RecyclerView.Adapter adapter) {
+    if (pendingCount > itemCount / 8) {
+      return false;
+    }
+    int start = 0;
+    for (Chunk chunk : chunks) {
+      for (int i = 0; chunk.pendingCount > 0 && i < chunk.size; i++) {
+        int row = chunk.rows[i];
+        if ((row & TYPE_MASK) == PENDING) {
+          chunk.set(i, (row & SAMPLED) | typeIndexOf(adapter.getItemViewType(start + i)));
+        }
+      }
+      start += chunk.size;
+    }
+    pendingCount = 0;
+    prefixValid = false;
+    return true;
+  }
+
+  /**
+   * Adds rows inserted at the position. Their view types are read by the next {@link #update(RecyclerView.Adapter)}.
+   */
+  public void insert(int position, int count) {
+    if (viewTypes == null) {
+      shiftUp(sampled, position, count);
+      indexed = false;
+      return;
+    }
+    insertRows(position, count, PENDING);
+    if (itemCount > maxItems) {
+      indexed = false;
+    }
+  }
+
+  /**
+   * Drops the removed rows.
+   */
+  public void remove(int position, int count) {
+    if (viewTypes == null) {
+      shiftDown(sampled, position, count);
+      indexed = false;
+      return;
+    }
+    removeRows(position, count);
+    if (itemCount == 0) {
+      indexed = false;
+    }
+  }
+
+  /**
+   * Moves a single row, keeping its view type and sampled height.
+   */
+  public void move(int fromPosition, int toPosition) {
+    if (viewTypes == null || fromPosition >= itemCount) {
+      remove(fromPosition, 1);
+      insert(toPosition, 1);
+      return;
+    }
+    int index = chunkIndexOf(fromPosition);
+    int row = chunks.get(index).rows[fromPosition - chunkStarts[index]];
+    removeRows(fromPosition, 1);
+    insertRows(toPosition, 1, row);
+  }
+
+  /**
+   * Marks the rows as changed. Their view types are read again by the next {@link #update(RecyclerView.Adapter)}, and
+   * their heights are sampled again.
+   */
+  public void change(int position, int count) {
+    if (viewTypes == null) {
+      sampled.clear(position, position + count);
+      return;
+    }
+    int end = Math.min(position + count, itemCount);
+    while (position < end) {
+      int index = chunkIndexOf(position);
+      Chunk chunk = chunks.get(index);
+      int start = chunkStarts[index];
+      for (int i = position - start, last = Math.min(chunk.size, end - start); i < last; i++) {
+        if ((chunk.rows[i] & TYPE_MASK) != PENDING) {
+          pendingCount++;
+        }
+        chunk.set(i, PENDING);
+      }
+      position = start + chunk.size;
+    }
+    prefixValid = false;
+  }
+
+  /**
+   * Drops the rows, for example after the adapter changed. They are rebuilt by the next
+   * {@link #update(RecyclerView.Adapter)}. The learned heights are kept.
+   */
+  public void invalidate() {
+    indexed = false;
+    dropRows();
+    chunkStarts = new int[0];
+    typesAbove = new int[0];
+    sampled.clear();
+  }
+
+  /**
+   * Forgets the learned heights as well as the rows.
+   */
+  public void clear() {
+    invalidate();
+    sampleTypeCount = 0;
+  }
+
+  /**
+   * Returns whether the adapter is indexed.
+   */
+  public boolean isIndexed() {
+    return viewTypes != null;
+  }
+
+  /**
+   * Returns the estimated height of the rows above the position.
+   *
+   * @param position
+   *     the adapter position, up to the item count
+   * @param fallbackHeight
+   *     the height of view types that were never measured
+   */
+  public long getOffsetForPosition(int position, int fallbackHeight) {
+    loadHeights(fallbackHeight);
+    if (position >= itemCount) {
+      return getOffsetAbove(chunks.size());
+    }
+    int index = chunkIndexOf(position);
+    Chunk chunk = chunks.get(index);
+    long offset = getOffsetAbove(index);
+    for (int i = 0, end = position - chunkStarts[index]; i < end; i++) {
+      offset += getHeightOf(chunk.rows[i]);
+    }
+    return offset;
+  }
+
+  /**
+   * Returns the estimated height of all rows.
+   */
+  public long getTotalHeight(int fallbackHeight) {
+    loadHeights(fallbackHeight);
+    return getOffsetAbove(chunks.size());
+  }
+
+  /**
+   * Returns the position of the row at the offset.
+   */
+  public int getPositionForOffset(long offset, int fallbackHeight) {
+    loadHeights(fallbackHeight);
+    int low = 0;
+    int high = chunks.size() - 1;
+    if (high < 0) {
+      return 0;
+    }
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (getOffsetAbove(mid) <= offset) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    Chunk chunk = chunks.get(low);
+    long top = getOffsetAbove(low);
+    int position = chunkStarts[low];
+    for (int i = 1; i < chunk.size; i++) {
+      top += getHeightOf(chunk.rows[i - 1]);
+      if (top > offset) {
+        break;
+      }
+      position = chunkStarts[low] + i;
+    }
+    return position;
+  }
+
+  /**
+   * Returns the memory used by the rows, in bytes.
+   */
+  public long getRetainedBytes() {
+    long bytes = 4L * (chunkStarts.length + typesAbove.length);
+    for (Chunk chunk : chunks) {
+      bytes += 4L * (chunk.rows.length + chunk.typeCounts.length);
+    }
+    return bytes + sampled.size() / 8;
+  }
+
+  private void dropRows() {
+    viewTypes = null;
+    typeCount = 0;
+    chunks.clear();
+    pendingCount = 0;
+    prefixValid = false;
+  }
+
+  /**
+   * Inserts rows holding the same value, splitting the chunk if it grows past twice {@link #CHUNK_SIZE}.
+   */
+  private void insertRows(int position, int count, int row) {
+    if (chunks.isEmpty()) {
+      chunks.add(new Chunk(CHUNK_SIZE));
+    }
+    int index;
+    int offset;
+    if (position >= itemCount) {
+      index = chunks.size() - 1;
+      offset = chunks.get(index).size;
+    } else {
+      index = chunkIndexOf(position);
+      offset = position - chunkStarts[index];
+    }
+    Chunk chunk = chunks.get(index);
+    if (chunk.size + count <= 2 * CHUNK_SIZE) {
+      chunk.insert(offset, count, row);
+    } else {
+      int[] tail = Arrays.copyOfRange(chunk.rows, offset, chunk.size);
+      chunk.remove(offset, chunk.size);
+      List<Chunk> added = new ArrayList<>();
+      Chunk last = chunk;
+      for (int i = 0; i < count + tail.length; i++) {
+        if (last.size >= CHUNK_SIZE) {
+          last = new Chunk(CHUNK_SIZE);
+          added.add(last);
+        }
+        last.append(i < count ? row : tail[i - count]);
+      }
+      chunks.addAll(index + 1, added);
+    }
+    if ((row & TYPE_MASK) == PENDING) {
+      pendingCount += count;
+    }
+    itemCount += count;
+    prefixValid = false;
+  }
+
+  /**
+   * Removes rows, dropping emptied chunks and merging short neighbours so removals leave no trail of tiny chunks.
+   */
+  private void removeRows(int position, int count) {
+    count = Math.min(count, itemCount - position);
+    if (count <= 0) {
+      return;
+    }
+    int first = chunkIndexOf(position);
+    int index = first;
+    int offset = position - chunkStarts[first];
+    for (int remaining = count; remaining > 0; index++, offset = 0) {
+      Chunk chunk = chunks.get(index);
+      int end = Math.min(chunk.size, offset + remaining);
+      pendingCount -= chunk.pendingCount;
+      chunk.remove(offset, end);
+      pendingCount += chunk.pendingCount;
+      remaining -= end - offset;
+    }
+    // Only the first and the last chunk can keep rows, the ones between are empty
+    int last = index - 1;
+    int from = chunks.get(first).size > 0 ? first + 1 : first;
+    int to = last >= from && chunks.get(last).size > 0 ? last : last + 1;
+    if (from < to) {
+      chunks.subList(from, to).clear();
+    }
+    int seam = Math.max(0, from - 1);
+    if (seam + 1 < chunks.size() && chunks.get(seam).size + chunks.get(seam + 1).size <= CHUNK_SIZE) {
+      Chunk next = chunks.remove(seam + 1);
+      Chunk chunk = chunks.get(seam);
+      for (int i = 0; i < next.size; i++) {
+        chunk.append(next.rows[i]);
+      }
+    }
+    itemCount -= count;
+    prefixValid = false;
+  }
+
+  /**
+   * Sums the first position and the number of rows of each view type above every chunk, if an update changed them.
+   */
+  private void ensurePrefix() {
+    if (prefixValid) {
+      return;
+    }
+    int count = chunks.size();
+    if (chunkStarts.length < count + 1) {
+      chunkStarts = new int[count + 1 + count / 4];
+    }
+    if (typesAbove.length < (count + 1) * typeCount) {
+      typesAbove = new int[(count + 1 + count / 4) * typeCount];
+    }
+    Arrays.fill(typesAbove, 0, typeCount, 0);
+    int start = 0;
+    for (int c = 0; c < count; c++) {
+      Chunk chunk = chunks.get(c);
+      chunkStarts[c] = start;
+      for (int t = 0, base = c * typeCount; t < typeCount; t++) {
+        typesAbove[base + typeCount + t] = typesAbove[base + t] + chunk.getTypeCount(t);
+      }
+      start += chunk.size;
+    }
+    chunkStarts[count] = start;
+    prefixValid = true;
+  }
+
+  /**
+   * Returns the chunk holding the position, which must be below the item count.
+   */
+  private int chunkIndexOf(int position) {
+    ensurePrefix();
+    int index = Arrays.binarySearch(chunkStarts, 0, chunks.size(), position);
+    return index >= 0 ? index : -(index + 1) - 1;
+  }
+
+  private long getOffsetAbove(int chunkIndex) {
+    ensurePrefix();
+    long offset = 0;
+    for (int t = 0, base = chunkIndex * typeCount; t < typeCount; t++) {
+      offset += (long) heights[t] * typesAbove[base + t];
+    }
+    return offset;
+  }
+
+  private void loadHeights(int fallbackHeight) {
+    if (heights.length < typeCount) {
+      heights = new int[typeCount];
+    }
+    for (int t = 0; t < typeCount; t++) {
+      int height = getMeanHeight(viewTypes[t]);
+      heights[t] = height > 0 ? height : fallbackHeight;
+    }
+  }
+
+  private int getHeightOf(int row) {
+    int type = row & TYPE_MASK;
+    return type == PENDING ? 0 : heights[type];
+  }
+
+  /**
+   * Returns the index of the view type, adding it if the adapter did not have it yet.
+   */
+  private int typeIndexOf(int viewType) {
+    int index = indexOf(viewTypes, typeCount, viewType);
+    if (index < 0) {
+      if (typeCount == viewTypes.length) {
+        viewTypes = Arrays.copyOf(viewTypes, typeCount * 2);
+      }
+      index = typeCount++;
+      viewTypes[index] = viewType;
+      prefixValid = false;
+    }
+    return index;
+  }
+
+  /**
+   * Moves the bits from the position on up by the count.
+   */
+  private static void shiftUp(BitSet bits, int position, int count) {
+    int length = bits.length();
+    if (length <= position) {
+      return;
+    }
+    BitSet tail = bits.get(position, length);
+    bits.clear(position, length);
+    for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+      bits.set(position + count + i);
+    }
+  }
+
+  /**
+   * Drops the bits of the removed range and moves the bits after it back to the position.
+   */
+  private static void shiftDown(BitSet bits, int position, int count) {
+    int length = bits.length();
+    if (length <= position) {
+      return;
+    }
+    BitSet tail = bits.get(Math.min(position + count, length), length);
+    bits.clear(position, length);
+    for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+      bits.set(position + i);
+    }
+  }
+
+  private int indexOfSampleType(int viewType) {
+    return indexOf(sampleTypes, sampleTypeCount, viewType);
+  }
+
+  private static int indexOf(int[] array, int count, int value) {
+    for (int i = 0; i < count; i++) {
+      if (array[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * A run of consecutive rows and the number of rows of each view type in it.
+   */
+  private static final class Chunk {
+
+    int[] rows;
+    int size;
+    int[] typeCounts = new int[4];
+    int pendingCount;
+
+    Chunk(int capacity) {
+      rows = new int[capacity];
+    }
+
+    int getTypeCount(int type) {
+      return type < typeCounts.length ? typeCounts[type] : 0;
+    }
+
+    void append(int row) {
+      insert(size, 1, row);
+    }
+
+    void insert(int offset, int count, int row) {
+      if (size + count > rows.length) {
+        rows = Arrays.copyOf(rows, Math.max(size + count, Math.min(2 * CHUNK_SIZE, rows.length * 2)));
+      }
+      System.arraycopy(rows, offset, rows, offset + count, size - offset);
+      Arrays.fill(rows, offset, offset + count, row);
+      size += count;
+      count(row, count);
+    }
+
+    void set(int offset, int row) {
+      count(rows[offset], -1);
+      rows[offset] = row;
+      count(row, 1);
+    }
+
+    void remove(int from, int to) {
+      for (int i = from; i < to; i++) {
+        count(rows[i], -1);
+      }
+      System.arraycopy(rows, to, rows, from, size - to);
+      size -= to - from;
+    }
+
+    private void count(int row, int delta) {
+      int type = row & TYPE_MASK;
+      if (type == PENDING) {
+        pendingCount += delta;
+      } else {
+        if (type >= typeCounts.length) {
+          typeCounts = Arrays.copyOf(typeCounts, Math.max(type + 1, typeCounts.length * 2));
+        }
+        typeCounts[type] += delta;
+      }
+    }
+  }
+
+}
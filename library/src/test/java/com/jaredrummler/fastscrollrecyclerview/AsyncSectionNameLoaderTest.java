@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AsyncSectionNameLoaderTest {
+
+  private static final int FAILING_POSITION = 7;
+
+  private final List<String> loaded = new ArrayList<>();
+  private final CountDownLatch failedLoads = new CountDownLatch(1);
+  private final CountDownLatch backgroundLoads = new CountDownLatch(1);
+  private AsyncSectionNameLoader loader;
+
+  @Before
+  public void setUp() {
+    // Results of the background loads stay queued, the tests deliver them with onLoaded
+    ShadowLooper.pauseMainLooper();
+    loader = new AsyncSectionNameLoader(new FastScrollRecyclerView.AsyncSectionedAdapter() {
+
+      @NonNull @Override public String loadSectionName(int position) {
+        if (position == FAILING_POSITION) {
+          failedLoads.countDown();
+          throw new IllegalStateException("The row was deleted");
+        }
+        backgroundLoads.countDown();
+        return "loaded " + position;
+      }
+
+      @NonNull @Override public String getPlaceholderSectionName(int position) {
+        return "...";
+      }
+    }, new AsyncSectionNameLoader.Callback() {
+
+      @Override public void onSectionNameLoaded(int position, @NonNull String sectionName) {
+        loaded.add(position + "=" + sectionName);
+      }
+    }, 2);
+  }
+
+  @Test
+  public void getSectionName_returnsThePlaceholderUntilTheNameIsLoaded() {
+    assertEquals("...", loader.getSectionName(3));
+
+    loader.onLoaded(0, 3, "C");
+
+    assertEquals("[3=C]", loaded.toString());
+    assertEquals("C", loader.getSectionName(3));
+    assertEquals(1, loader.getHitCount());
+  }
+
+  @Test
+  public void onLoaded_onlyReportsTheLatestRequest() {
+    loader.getSectionName(3);
+    loader.getSectionName(4);
+
+    loader.onLoaded(0, 3, "C");
+
+    assertTrue(loaded.isEmpty());
+    assertEquals("C", loader.getSectionName(3));
+  }
+
+  @Test
+  public void invalidate_dropsNamesLoadedForTheOldData() {
+    loader.getSectionName(3);
+    loader.onLoaded(0, 3, "C");
+
+    loader.invalidate();
+    loader.getSectionName(3);
+    loader.onLoaded(0, 3, "stale");
+
+    assertEquals(0, loader.getCacheSize());
+    assertEquals("[3=C]", loaded.toString());
+
+    loader.onLoaded(1, 3, "D");
+    assertEquals("D", loader.getSectionName(3));
+  }
+
+  @Test
+  public void cache_keepsTheMostRecentlyUsedNames() {
+    loader.onLoaded(0, 1, "A");
+    loader.onLoaded(0, 2, "B");
+    loader.getSectionName(1);
+    loader.onLoaded(0, 3, "C");
+
+    assertEquals(2, loader.getCacheSize());
+    assertEquals("A", loader.getSectionName(1));
+    assertEquals("...", loader.getSectionName(2));
+
+    loader.trimToSize(0);
+    assertEquals(0, loader.getCacheSize());
+    assertEquals(0, loader.getRetainedBytes());
+  }
+
+  @Test
+  public void failedLoad_doesNotStopLaterLoads() throws InterruptedException {
+    loader.getSectionName(FAILING_POSITION);
+    assertTrue(failedLoads.await(5, TimeUnit.SECONDS));
+
+    loader.getSectionName(4);
+    assertTrue(backgroundLoads.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void onLoaded_keepsThePlaceholderOfAFailedPosition() {
+    loader.getSectionName(FAILING_POSITION);
+    loader.onLoaded(0, FAILING_POSITION, null);
+
+    assertTrue(loaded.isEmpty());
+    assertEquals("...", loader.getSectionName(FAILING_POSITION));
+    assertEquals(1, loader.getHitCount());
+  }
+
+}
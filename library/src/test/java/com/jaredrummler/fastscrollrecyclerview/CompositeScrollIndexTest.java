@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CompositeScrollIndexTest {
+
+  private static final int FALLBACK_HEIGHT = 10;
+
+  private ChildAdapter header;
+  private ChildAdapter empty;
+  private ChildAdapter list;
+  private CompositeScrollIndex index;
+
+  @Before
+  public void setUp() {
+    header = new ChildAdapter("#");
+    empty = new ChildAdapter();
+    list = new ChildAdapter("#", "#", "A", "A", "B");
+    final ChildAdapter[] segments = {header, empty, list};
+    index = new CompositeScrollIndex(new FastScrollRecyclerView.SegmentedAdapter() {
+
+      @Override public int getSegmentCount() {
+        return segments.length;
+      }
+
+      @NonNull @Override public RecyclerView.Adapter getSegment(int segment) {
+        return segments[segment];
+      }
+    });
+  }
+
+  @Test
+  public void getSegmentForPosition_skipsEmptySegments() {
+    assertEquals(6, index.getItemCount());
+    assertEquals(0, index.getSegmentForPosition(0));
+    assertEquals(2, index.getSegmentForPosition(1));
+    assertEquals(2, index.getSegmentForPosition(5));
+    assertEquals(1, index.getSegmentStartPosition(2));
+  }
+
+  @Test
+  public void getSectionIndex_foldsSectionsContinuingAcrossSegments() {
+    SectionIndex sections = index.getSectionIndex();
+
+    assertEquals(3, sections.getSectionCount());
+    assertEquals("#", sections.getSectionName(0));
+    assertEquals(3, sections.getPositionForSection(1));
+    assertEquals(5, sections.getPositionForSection(2));
+    assertEquals("A", index.getSectionNameForPosition(4));
+  }
+
+  @Test
+  public void recordRowHeight_countsEachRowOnce() {
+    index.recordRowHeight(1, 100);
+    index.recordRowHeight(1, 100);
+    index.recordRowHeight(1, 100);
+    index.recordRowHeight(2, 50);
+
+    assertEquals(75, index.getRowHeight(2, FALLBACK_HEIGHT));
+    assertEquals(FALLBACK_HEIGHT, index.getRowHeight(0, FALLBACK_HEIGHT));
+  }
+
+  @Test
+  public void offsets_useTheHeightOfEachSegment() {
+    index.recordRowHeight(0, 40);
+    index.recordRowHeight(1, 20);
+
+    assertEquals(0, index.getOffsetForPosition(0, FALLBACK_HEIGHT));
+    assertEquals(40, index.getOffsetForPosition(1, FALLBACK_HEIGHT));
+    assertEquals(80, index.getOffsetForPosition(3, FALLBACK_HEIGHT));
+    assertEquals(140, index.getTotalHeight(FALLBACK_HEIGHT));
+    assertEquals(0, index.getPositionForOffset(39, FALLBACK_HEIGHT));
+    assertEquals(3, index.getPositionForOffset(85, FALLBACK_HEIGHT));
+    assertEquals(5, index.getPositionForOffset(1000, FALLBACK_HEIGHT));
+  }
+
+  @Test
+  public void childChange_resetsOnlyItsSegment() {
+    index.recordRowHeight(0, 40);
+    index.recordRowHeight(1, 20);
+
+    list.names = new String[]{"C", "D"};
+    list.notifyDataSetChanged();
+
+    assertEquals(3, index.getItemCount());
+    assertEquals(FALLBACK_HEIGHT, index.getRowHeight(2, FALLBACK_HEIGHT));
+    assertEquals(40, index.getRowHeight(0, FALLBACK_HEIGHT));
+    assertEquals("D", index.getSectionNameForPosition(2));
+
+    // The rows of the changed segment are measured again
+    index.recordRowHeight(1, 30);
+    assertEquals(30, index.getRowHeight(2, FALLBACK_HEIGHT));
+  }
+
+  @Test
+  public void itemChange_keepsTheRestOfTheSegment() {
+    index.recordRowHeight(1, 20);
+    index.recordRowHeight(2, 40);
+    index.getSectionIndex();
+    list.asked.clear();
+
+    list.names[1] = "A";
+    list.notifyItemChanged(1);
+
+    assertEquals(Arrays.asList(1), resolveAskedPositions());
+    assertEquals("A", index.getSectionNameForPosition(2));
+    assertEquals(2, index.getSectionIndex().getPositionForSection(1));
+    // The changed row leaves the average as it was and is measured again
+    assertEquals(30, index.getRowHeight(2, FALLBACK_HEIGHT));
+    index.recordRowHeight(2, 20);
+    assertEquals(25, index.getRowHeight(2, FALLBACK_HEIGHT));
+  }
+
+  @Test
+  public void itemInsertAndRemove_shiftTheMeasuredRows() {
+    index.recordRowHeight(1, 20);
+    index.recordRowHeight(5, 40);
+    index.getSectionIndex();
+    list.asked.clear();
+
+    list.names = new String[]{"#", "#", "#", "A", "A", "B"};
+    list.notifyItemInserted(0);
+    assertEquals(Arrays.asList(0), resolveAskedPositions());
+    assertEquals(7, index.getItemCount());
+    assertEquals(4, index.getSectionIndex().getPositionForSection(1));
+
+    // The rows measured before keep counting once at their new positions
+    index.recordRowHeight(2, 100);
+    index.recordRowHeight(6, 100);
+    assertEquals(30, index.getRowHeight(2, FALLBACK_HEIGHT));
+
+    list.names = new String[]{"#", "#", "#", "A", "A"};
+    list.notifyItemRemoved(5);
+    assertEquals(30, index.getRowHeight(2, FALLBACK_HEIGHT));
+    assertEquals("A", index.getSectionNameForPosition(5));
+    assertEquals(2, index.getSectionIndex().getSectionCount());
+  }
+
+  @Test
+  public void itemMove_keepsTheSectionsOfTheMovedRow() {
+    index.getSectionIndex();
+    list.asked.clear();
+
+    list.names = new String[]{"#", "A", "A", "B", "#"};
+    list.notifyItemMoved(1, 4);
+
+    assertEquals(4, index.getSectionIndex().getSectionCount());
+    assertEquals("#", index.getSectionNameForPosition(5));
+    assertEquals(0, list.asked.size());
+  }
+
+  private List<Integer> resolveAskedPositions() {
+    index.getSectionIndex();
+    return list.asked;
+  }
+
+  private static class ChildAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+      implements FastScrollRecyclerView.SectionedAdapter {
+
+    final List<Integer> asked = new ArrayList<>();
+    String[] names;
+
+    ChildAdapter(String... names) {
+      this.names = names;
+    }
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return names.length;
+    }
+
+    @NonNull @Override public String getSectionName(int position) {
+      asked.add(position);
+      return names[position];
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FastScrollStyleTest {
+
+  private Context context;
+
+  @Before
+  public void setUp() {
+    context = RuntimeEnvironment.application;
+  }
+
+  @After
+  public void tearDown() {
+    FastScrollStyle.clearCache();
+  }
+
+  @Test
+  public void obtain_sharesTheStyleOfTheSameThemeAndStyle() {
+    FastScrollStyle style = FastScrollStyle.obtain(context, null, 0);
+
+    assertSame(style, FastScrollStyle.obtain(context, null, 0));
+    assertSame(style, FastScrollStyle.obtain(context, Robolectric.buildAttributeSet().build(), 0));
+  }
+
+  @Test
+  public void obtain_keysTheCacheOnDefStyleAttrAndStyleAttribute() {
+    FastScrollStyle style = FastScrollStyle.obtain(context, null, 0);
+    FastScrollStyle defStyled = FastScrollStyle.obtain(context, null, android.R.attr.listViewStyle);
+    AttributeSet styledAttrs = Robolectric.buildAttributeSet()
+        .setStyleAttribute("@android:style/Widget.ListView")
+        .build();
+    FastScrollStyle styled = FastScrollStyle.obtain(context, styledAttrs, 0);
+
+    assertNotSame(style, defStyled);
+    assertNotSame(style, styled);
+    assertNotSame(defStyled, styled);
+    assertSame(defStyled, FastScrollStyle.obtain(context, null, android.R.attr.listViewStyle));
+    assertSame(styled, FastScrollStyle.obtain(context, styledAttrs, 0));
+  }
+
+  @Test
+  public void obtain_keysTheCacheOnTheTheme() {
+    Context themed = new ContextThemeWrapper(context, android.R.style.Theme_DeviceDefault);
+
+    assertNotSame(FastScrollStyle.obtain(context, null, 0), FastScrollStyle.obtain(themed, null, 0));
+  }
+
+  @Test
+  public void obtain_doesNotCacheAttributesSettingFastScrollValues() {
+    AttributeSet attrs = Robolectric.buildAttributeSet()
+        .addAttribute(R.attr.fastScrollHideDelay, "250")
+        .build();
+    FastScrollStyle style = FastScrollStyle.obtain(context, attrs, 0);
+
+    assertEquals(250, style.getHideDelay());
+    assertNotSame(style, FastScrollStyle.obtain(context, attrs, 0));
+    // A list without the attribute does not pick up the value
+    assertEquals(FastScrollStyle.DEFAULT_HIDE_DELAY, FastScrollStyle.obtain(context, null, 0).getHideDelay());
+  }
+
+  @Test
+  public void clearCache_dropsTheSharedStyles() {
+    FastScrollStyle style = FastScrollStyle.obtain(context, null, 0);
+    FastScrollStyle.clearCache();
+
+    assertNotSame(style, FastScrollStyle.obtain(context, null, 0));
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Canvas;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FastScrollTraceTest {
+
+  private static final int ITEM_COUNT = 100;
+  private static final int ITEM_HEIGHT = 100;
+
+  private final List<String> events = new ArrayList<>();
+  private FastScrollRecyclerView recyclerView;
+
+  @Before
+  public void setUp() {
+    recyclerView = new FastScrollRecyclerView(RuntimeEnvironment.application);
+    recyclerView.setLayoutManager(new LinearLayoutManager(RuntimeEnvironment.application));
+    recyclerView.setAdapter(new ItemAdapter());
+    recyclerView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(10 * ITEM_HEIGHT, View.MeasureSpec.EXACTLY));
+    recyclerView.layout(0, 0, 480, 10 * ITEM_HEIGHT);
+
+    FastScrollTrace.setRecorder(new FastScrollTrace.Recorder() {
+
+      @Override public void beginSection(@NonNull String name) {
+        events.add("begin " + name);
+      }
+
+      @Override public void endSection() {
+        events.add("end");
+      }
+
+      @Override public void setCounter(@NonNull String name, long value) {
+        // Counters are not sections
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    FastScrollTrace.setRecorder(null);
+  }
+
+  @Test
+  public void onUpdateScrollbar_nestsRowHeightInUpdate() {
+    recyclerView.onUpdateScrollbar(0);
+
+    assertEquals(Arrays.asList(
+        "begin " + FastScrollTrace.UPDATE_SCROLLBAR,
+        "begin " + FastScrollTrace.CALCULATE_ROW_HEIGHT,
+        "end",
+        "end"), events);
+  }
+
+  @Test
+  public void scrollToPositionAtProgress_nestsSectionNameInJump() {
+    recyclerView.onUpdateScrollbar(0);
+    events.clear();
+
+    String sectionName = recyclerView.scrollToPositionAtProgress(0.5f);
+
+    assertEquals("5", sectionName);
+    assertEquals(Arrays.asList(
+        "begin " + FastScrollTrace.SCROLL_TO_PROGRESS,
+        "begin " + FastScrollTrace.SECTION_NAME,
+        "end",
+        "end"), events);
+  }
+
+  @Test
+  public void popupDraw_isOneSection() {
+    FastScrollPopup popup = new FastScrollPopup(recyclerView, recyclerView.getFastScrollStyle());
+    events.clear();
+
+    popup.draw(new Canvas());
+
+    assertEquals(Arrays.asList("begin " + FastScrollTrace.DRAW_POPUP, "end"), events);
+  }
+
+  private static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+      implements FastScrollRecyclerView.SectionedAdapter {
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      View view = new View(parent.getContext());
+      view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+      return new RecyclerView.ViewHolder(view) {
+      };
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return ITEM_COUNT;
+    }
+
+    @NonNull @Override public String getSectionName(int position) {
+      return String.valueOf(position / 10);
+    }
+  }
+
+}
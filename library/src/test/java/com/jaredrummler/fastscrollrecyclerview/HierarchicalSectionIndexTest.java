@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class HierarchicalSectionIndexTest {
+
+  private static final String[][] ITEMS = {
+      {"2019", "Jan"}, {"2019", "Jan"}, {"2019", "Feb"},
+      {"2020", "Feb"}, {"2020", "Feb"}, {"2020", "Mar"},
+      {"2021", "Jan"},
+  };
+
+  private static final FastScrollRecyclerView.NestedSectionedAdapter ADAPTER =
+      new FastScrollRecyclerView.NestedSectionedAdapter() {
+
+        @NonNull @Override public String getSectionName(int position) {
+          return ITEMS[position][0];
+        }
+
+        @NonNull @Override public String getSubsectionName(int position) {
+          return ITEMS[position][1];
+        }
+      };
+
+  @Test
+  public void build_startsASubsectionWithEverySection() {
+    HierarchicalSectionIndex index = HierarchicalSectionIndex.build(ADAPTER, ITEMS.length);
+
+    SectionIndex sections = index.getSections();
+    assertEquals(3, sections.getSectionCount());
+    assertEquals(3, sections.getPositionForSection(1));
+    assertEquals(6, sections.getPositionForSection(2));
+
+    // "Feb" continues across the new year, but becomes two subsections
+    SectionIndex subsections = index.getSubsections();
+    assertEquals(5, subsections.getSectionCount());
+    assertEquals("Feb", subsections.getSectionName(1));
+    assertEquals(2, subsections.getPositionForSection(1));
+    assertEquals("Feb", subsections.getSectionName(2));
+    assertEquals(3, subsections.getPositionForSection(2));
+    assertEquals(ITEMS.length, index.getItemCount());
+  }
+
+  @Test
+  public void subsectionsOfASection_areAContiguousRun() {
+    HierarchicalSectionIndex index = HierarchicalSectionIndex.build(ADAPTER, ITEMS.length);
+
+    assertEquals(0, index.getFirstSubsection(0));
+    assertEquals(2, index.getSubsectionCount(0));
+    assertEquals(2, index.getFirstSubsection(1));
+    assertEquals(2, index.getSubsectionCount(1));
+    assertEquals(4, index.getFirstSubsection(2));
+    assertEquals(1, index.getSubsectionCount(2));
+  }
+
+  @Test
+  public void namesForPosition_lookUpBothLevels() {
+    HierarchicalSectionIndex index = HierarchicalSectionIndex.build(ADAPTER, ITEMS.length);
+
+    for (int position = 0; position < ITEMS.length; position++) {
+      assertEquals(ITEMS[position][0], index.getSectionNameForPosition(position));
+      assertEquals(ITEMS[position][1], index.getSubsectionNameForPosition(position));
+    }
+  }
+
+  @Test
+  public void build_withoutItemsIsEmpty() {
+    assertSame(HierarchicalSectionIndex.EMPTY, HierarchicalSectionIndex.build(ADAPTER, 0));
+    assertEquals(0, HierarchicalSectionIndex.EMPTY.getSections().getSectionCount());
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.os.MessageQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class IdleTaskSchedulerTest {
+
+  private final List<String> runs = new ArrayList<>();
+  private IdleTaskScheduler scheduler;
+  private int deadlineCount;
+
+  @Before
+  public void setUp() {
+    ShadowLooper.pauseMainLooper();
+    scheduler = new IdleTaskScheduler();
+    scheduler.setDeadlineAction(new Runnable() {
+
+      @Override public void run() {
+        deadlineCount++;
+      }
+    });
+  }
+
+  @Test
+  public void queueIdle_givesEachTaskOneTurnPerSlice() {
+    scheduler.setBudget(1000);
+    scheduler.schedule(new Task("a", 0, true));
+    scheduler.schedule(new Task("b", 0, true));
+
+    assertTrue(scheduler.queueIdle());
+    assertEquals("[a, b]", runs.toString());
+    assertEquals(2, scheduler.getPendingTaskCount());
+    assertEquals(2, scheduler.getTaskRunCount());
+    assertEquals(1, scheduler.getSliceCount());
+  }
+
+  @Test
+  public void queueIdle_stopsWhenTheBudgetIsSpent() {
+    scheduler.setBudget(1);
+    scheduler.schedule(new Task("slow", 2, false));
+    scheduler.schedule(new Task("next", 0, false));
+
+    assertTrue(scheduler.queueIdle());
+    assertEquals("[slow]", runs.toString());
+    assertTrue(scheduler.getMaxSliceNanos() >= 2000000L);
+
+    // The rest runs in the next slice, after which the scheduler has nothing left to do
+    assertFalse(scheduler.queueIdle());
+    assertEquals("[slow, next]", runs.toString());
+    assertEquals(0, scheduler.getPendingTaskCount());
+    assertEquals(2, scheduler.getSliceCount());
+    assertTrue(scheduler.getTotalTimeNanos() >= scheduler.getMaxSliceNanos());
+  }
+
+  @Test
+  public void queueIdle_postsOneDelayedWakeUpWhileTasksRemain() {
+    Scheduler looper = Robolectric.getForegroundThreadScheduler();
+    scheduler.setBudget(1000);
+    scheduler.schedule(new Task("a", 0, true));
+    // Registering wakes the thread once, in case it is idle already
+    ShadowLooper.idleMainLooper(0);
+    assertEquals(0, looper.size());
+
+    assertTrue(scheduler.queueIdle());
+    assertTrue(scheduler.queueIdle());
+    assertEquals(1, looper.size());
+
+    ShadowLooper.idleMainLooper(IdleTaskScheduler.WAKE_UP_DELAY_MS - 1);
+    assertEquals(1, looper.size());
+    ShadowLooper.idleMainLooper(1);
+    assertEquals(0, looper.size());
+  }
+
+  @Test
+  public void schedule_queuesATaskOnce() {
+    Task task = new Task("a", 0, false);
+    scheduler.schedule(task);
+    scheduler.schedule(task);
+    assertEquals(1, scheduler.getPendingTaskCount());
+
+    scheduler.cancel(task);
+    assertFalse(scheduler.isScheduled(task));
+    assertFalse(scheduler.queueIdle());
+    assertEquals(0, runs.size());
+  }
+
+  @Test
+  public void scheduleDeadline_movesTheDeadlineLater() {
+    scheduler.scheduleDeadline(100);
+    ShadowLooper.idleMainLooper(50);
+    scheduler.scheduleDeadline(100);
+    ShadowLooper.idleMainLooper(60);
+    assertEquals(0, deadlineCount);
+    assertTrue(scheduler.hasDeadline());
+
+    ShadowLooper.idleMainLooper(40);
+    assertEquals(1, deadlineCount);
+    assertFalse(scheduler.hasDeadline());
+  }
+
+  @Test
+  public void cancelDeadline_skipsTheAction() {
+    scheduler.scheduleDeadline(100);
+    scheduler.cancelDeadline();
+    ShadowLooper.idleMainLooper(200);
+
+    assertEquals(0, deadlineCount);
+  }
+
+  @Test
+  public void release_keepsTheDeadlineUntilResume() {
+    scheduler.scheduleDeadline(100);
+    scheduler.release();
+    ShadowLooper.idleMainLooper(200);
+    assertEquals(0, deadlineCount);
+    assertTrue(scheduler.hasDeadline());
+
+    scheduler.resume();
+    ShadowLooper.idleMainLooper(0);
+    assertEquals(1, deadlineCount);
+  }
+
+  private class Task implements MessageQueue.IdleHandler {
+
+    private final String name;
+    private final long busyMillis;
+    private final boolean moreWork;
+
+    Task(String name, long busyMillis, boolean moreWork) {
+      this.name = name;
+      this.busyMillis = busyMillis;
+      this.moreWork = moreWork;
+    }
+
+    @Override public boolean queueIdle() {
+      runs.add(name);
+      long end = System.nanoTime() + busyMillis * 1000000L;
+      while (System.nanoTime() < end) {
+        // Simulates work that takes longer than the budget
+      }
+      return moreWork;
+    }
+  }
+
+}
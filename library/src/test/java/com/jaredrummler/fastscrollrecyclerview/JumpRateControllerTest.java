@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JumpRateControllerTest {
+
+  private static final long MS = 1000000L;
+  private static final long FRAME = 16 * MS;
+
+  private JumpRateController controller;
+
+  @Before
+  public void setUp() {
+    controller = new JumpRateController();
+    controller.setFrameNanos(FRAME);
+  }
+
+  @Test
+  public void getDelayNanos_isZeroBeforeTheFirstJump() {
+    assertEquals(0, controller.getMinIntervalNanos());
+    assertEquals(0, controller.getDelayNanos(5 * MS));
+  }
+
+  @Test
+  public void cheapJumps_jumpOnEveryFrame() {
+    jump(0, 2 * MS, 6 * MS);
+
+    assertEquals(0, controller.getMinIntervalNanos());
+    assertEquals(0, controller.getDelayNanos(MS));
+  }
+
+  @Test
+  public void slowJumps_areSpacedByTheLoad() {
+    jump(100 * MS, 10 * MS, 30 * MS);
+
+    assertEquals(80 * MS, controller.getMinIntervalNanos());
+    assertEquals(50 * MS, controller.getDelayNanos(130 * MS));
+    assertEquals(0, controller.getDelayNanos(180 * MS));
+
+    controller.setMaxLoad(1f);
+    assertEquals(40 * MS, controller.getMinIntervalNanos());
+  }
+
+  @Test
+  public void onLayout_averagesTheCostOfJumps() {
+    jump(0, 0, 40 * MS);
+    assertEquals(40 * MS, controller.getAverageCostNanos());
+
+    jump(100 * MS, 0, 80 * MS);
+    assertEquals(50 * MS, controller.getAverageCostNanos());
+    assertEquals(2, controller.getJumpCount());
+  }
+
+  @Test
+  public void onLayout_withoutAJumpIsIgnored() {
+    controller.onLayout(40 * MS);
+
+    assertEquals(0, controller.getJumpCount());
+    assertEquals(0, controller.getAverageCostNanos());
+  }
+
+  @Test
+  public void getMinIntervalNanos_isCappedAt250Ms() {
+    jump(0, 0, 400 * MS);
+
+    assertEquals(250 * MS, controller.getMinIntervalNanos());
+    assertEquals(250 * MS, controller.getDelayNanos(0));
+  }
+
+  @Test
+  public void onJumpSkipped_doesNotBillTheNextLayout() {
+    controller.onJump(0, 2 * MS);
+    assertTrue(controller.isAwaitingLayout());
+
+    controller.onJumpSkipped();
+    controller.onLayout(200 * MS);
+
+    assertFalse(controller.isAwaitingLayout());
+    assertEquals(0, controller.getJumpCount());
+    assertEquals(0, controller.getAverageCostNanos());
+  }
+
+  @Test
+  public void reset_forgetsTheCost() {
+    jump(0, 0, 400 * MS);
+    controller.onJumpDeferred();
+
+    controller.reset();
+
+    assertEquals(0, controller.getMinIntervalNanos());
+    assertEquals(0, controller.getDelayNanos(0));
+    assertEquals(0, controller.getDeferredCount());
+  }
+
+  private void jump(long start, long callNanos, long layoutNanos) {
+    controller.onJump(start, callNanos);
+    controller.onLayout(layoutNanos);
+  }
+
+}
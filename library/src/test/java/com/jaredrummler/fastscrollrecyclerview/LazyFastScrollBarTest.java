@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class LazyFastScrollBarTest {
+
+  private static final int WIDTH = 480;
+  private static final int HEIGHT = 1000;
+  private static final int ITEM_HEIGHT = 100;
+
+  private FastScrollRecyclerView recyclerView;
+  private ItemAdapter adapter;
+
+  @Before
+  public void setUp() {
+    recyclerView = new FastScrollRecyclerView(RuntimeEnvironment.application);
+    recyclerView.setLayoutManager(new LinearLayoutManager(RuntimeEnvironment.application));
+    adapter = new ItemAdapter();
+    recyclerView.setAdapter(adapter);
+  }
+
+  @Test
+  public void constructor_doesNotCreateTheScrollBar() {
+    assertFalse(recyclerView.hasFastScrollBar());
+  }
+
+  @Test
+  public void shortList_neverCreatesTheScrollBar() {
+    adapter.itemCount = 5;
+    recyclerView.setFastScrollStyle(recyclerView.getFastScrollStyle().buildUpon().setAlwaysEnabled(true).build());
+    layout();
+    recyclerView.onUpdateScrollbar(0);
+    touchScrollBarEdge();
+
+    assertFalse(recyclerView.hasFastScrollBar());
+  }
+
+  @Test
+  public void scrollableList_createsTheScrollBarWhenTheEdgeIsTouched() {
+    adapter.itemCount = 100;
+    layout();
+    assertFalse(recyclerView.hasFastScrollBar());
+
+    touchScrollBarEdge();
+    assertTrue(recyclerView.hasFastScrollBar());
+  }
+
+  @Test
+  public void scrollableList_createsTheScrollBarWhenItIsAlwaysShown() {
+    adapter.itemCount = 100;
+    recyclerView.setFastScrollStyle(recyclerView.getFastScrollStyle().buildUpon().setAlwaysEnabled(true).build());
+    layout();
+    assertFalse(recyclerView.hasFastScrollBar());
+
+    // The thumb is placed on the next frame
+    recyclerView.onUpdateScrollbar(0);
+    assertTrue(recyclerView.hasFastScrollBar());
+  }
+
+  @Test
+  public void getFastScrollBar_createsTheScrollBarOnDemand() {
+    assertNotNull(recyclerView.getFastScrollBar());
+    assertTrue(recyclerView.hasFastScrollBar());
+  }
+
+  private void touchScrollBarEdge() {
+    MotionEvent down = MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, WIDTH - 1, HEIGHT / 2, 0);
+    recyclerView.onInterceptTouchEvent(recyclerView, down);
+    down.recycle();
+  }
+
+  private void layout() {
+    recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+    recyclerView.layout(0, 0, WIDTH, HEIGHT);
+  }
+
+  private static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    int itemCount;
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      View view = new View(parent.getContext());
+      view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+      return new RecyclerView.ViewHolder(view) {
+      };
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return itemCount;
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class PagedAdapterTest {
+
+  private static final int PAGE_SIZE = 50;
+
+  private final Set<Integer> loadedPages = new HashSet<>();
+  private final List<Integer> namedPositions = new ArrayList<>();
+  private FastScrollRecyclerView recyclerView;
+  private ItemAdapter adapter;
+
+  @Before
+  public void setUp() {
+    loadedPages.add(0);
+    recyclerView = new FastScrollRecyclerView(RuntimeEnvironment.application);
+    recyclerView.setLayoutManager(new LinearLayoutManager(RuntimeEnvironment.application));
+    adapter = new ItemAdapter();
+    recyclerView.setAdapter(adapter);
+  }
+
+  @Test
+  public void getSectionIndex_usesThePageNamesOfASectionedAdapter() {
+    assertEquals(4, recyclerView.getSectionIndex().getSectionCount());
+
+    adapter.itemCount += PAGE_SIZE;
+    adapter.notifyItemRangeInserted(100, PAGE_SIZE);
+    assertEquals(5, recyclerView.getSectionIndex().getSectionCount());
+
+    adapter.itemCount -= 1;
+    adapter.notifyItemRemoved(10);
+    recyclerView.getSectionIndex();
+
+    // The index is rebuilt from the page names, placeholder rows are never asked for theirs
+    assertTrue(namedPositions.isEmpty());
+  }
+
+  @Test
+  public void notifyItemMoved_landsAJumpWaitingForItsPage() {
+    PagedJumpController controller = recyclerView.getPagedJumpController();
+    controller.onScrub(120, 0);
+    assertTrue(controller.isWaiting());
+
+    loadedPages.add(2);
+    adapter.notifyItemMoved(0, 1);
+
+    assertFalse(controller.isWaiting());
+  }
+
+  @Test
+  public void scrollToSectionPosition_goesThroughThePagedController() {
+    recyclerView.scrollToSectionPosition(150);
+
+    PagedJumpController controller = recyclerView.getPagedJumpController();
+    assertEquals(150, controller.getTargetPosition());
+    assertTrue(controller.isRequestPending());
+  }
+
+  private class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+      implements FastScrollRecyclerView.PagedAdapter, FastScrollRecyclerView.SectionedAdapter {
+
+    int itemCount = 4 * PAGE_SIZE;
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+      };
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return itemCount;
+    }
+
+    @Override public int getPageSize() {
+      return PAGE_SIZE;
+    }
+
+    @Override public boolean isPageLoaded(int page) {
+      return loadedPages.contains(page);
+    }
+
+    @Override public void requestPage(int page) {
+    }
+
+    @NonNull @Override public String getPageSectionName(int page) {
+      return String.valueOf((char) ('A' + page));
+    }
+
+    @NonNull @Override public String getSectionName(int position) {
+      namedPositions.add(position);
+      return getPageSectionName(position / PAGE_SIZE);
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PagedJumpControllerTest {
+
+  private static final int PAGE_SIZE = 50;
+  private static final String[] PAGE_NAMES = {"A", "A", "B", "C", "C", "C", "D"};
+
+  private final Set<Integer> loadedPages = new HashSet<>();
+  private final List<Integer> requestedPages = new ArrayList<>();
+  private final List<Integer> scrolledPositions = new ArrayList<>();
+  private PagedJumpController controller;
+
+  @Before
+  public void setUp() {
+    loadedPages.add(0);
+    controller = new PagedJumpController(new FastScrollRecyclerView.PagedAdapter() {
+
+      @Override public int getPageSize() {
+        return PAGE_SIZE;
+      }
+
+      @Override public boolean isPageLoaded(int page) {
+        return loadedPages.contains(page);
+      }
+
+      @Override public void requestPage(int page) {
+        requestedPages.add(page);
+      }
+
+      @NonNull @Override public String getPageSectionName(int page) {
+        return PAGE_NAMES[page];
+      }
+    }, new PagedJumpController.Callback() {
+
+      @Override public void scrollToPosition(int position) {
+        scrolledPositions.add(position);
+      }
+    });
+    controller.setDebounce(100);
+  }
+
+  @Test
+  public void onScrub_landsRightAwayOnLoadedPage() {
+    controller.onScrub(10, 0);
+
+    assertEquals(Arrays.asList(10), scrolledPositions);
+    assertFalse(controller.isWaiting());
+    assertEquals(-1, controller.poll(1000));
+    assertTrue(requestedPages.isEmpty());
+  }
+
+  @Test
+  public void poll_requestsOnlyThePageTheThumbRestsOn() {
+    // A drag across pages 1 to 5 within the debounce time
+    for (int page = 1; page <= 5; page++) {
+      controller.onScrub(page * PAGE_SIZE, page * 10);
+      assertEquals(100, controller.poll(page * 10));
+    }
+    assertTrue(requestedPages.isEmpty());
+    assertTrue(scrolledPositions.isEmpty());
+
+    assertEquals(-1, controller.poll(150));
+    assertEquals(Arrays.asList(5), requestedPages);
+    assertTrue(controller.isWaiting());
+  }
+
+  @Test
+  public void onScrubEnd_requestsWithoutDebounce() {
+    controller.onScrub(3 * PAGE_SIZE, 0);
+    controller.onScrubEnd();
+
+    assertEquals(Arrays.asList(3), requestedPages);
+    assertFalse(controller.isRequestPending());
+  }
+
+  @Test
+  public void onDataChanged_landsOnceTargetPageIsLoaded() {
+    controller.onScrub(3 * PAGE_SIZE + 7, 0);
+    controller.onScrubEnd();
+
+    controller.onDataChanged();
+    assertTrue(scrolledPositions.isEmpty());
+
+    loadedPages.add(3);
+    controller.onDataChanged();
+    assertEquals(Arrays.asList(3 * PAGE_SIZE + 7), scrolledPositions);
+    assertFalse(controller.isWaiting());
+
+    controller.onDataChanged();
+    assertEquals(1, scrolledPositions.size());
+  }
+
+  @Test
+  public void landOnPlaceholders_scrollsBeforePageIsLoaded() {
+    controller.setLandOnPlaceholders(true);
+    controller.onScrub(4 * PAGE_SIZE, 0);
+
+    assertEquals(Arrays.asList(4 * PAGE_SIZE), scrolledPositions);
+    assertFalse(controller.isWaiting());
+    assertTrue(controller.isRequestPending());
+  }
+
+  @Test
+  public void request_isNotRepeatedForSamePage() {
+    controller.onScrub(2 * PAGE_SIZE, 0);
+    controller.onScrubEnd();
+    controller.onScrub(2 * PAGE_SIZE + 1, 10);
+    controller.onScrubEnd();
+
+    assertEquals(Arrays.asList(2), requestedPages);
+  }
+
+  @Test
+  public void cancel_forgetsTarget() {
+    controller.onScrub(2 * PAGE_SIZE, 0);
+    controller.onScrubEnd();
+    controller.cancel();
+    loadedPages.add(2);
+    controller.onDataChanged();
+
+    assertTrue(scrolledPositions.isEmpty());
+    assertEquals(-1, controller.getTargetPosition());
+  }
+
+  @Test
+  public void buildSectionIndex_foldsPagesWithSameName() {
+    SectionIndex index = controller.buildSectionIndex(PAGE_NAMES.length * PAGE_SIZE - 20);
+
+    assertEquals(4, index.getSectionCount());
+    assertEquals(0, index.getPositionForSection(0));
+    assertEquals(2 * PAGE_SIZE, index.getPositionForSection(1));
+    assertEquals(3 * PAGE_SIZE, index.getPositionForSection(2));
+    assertEquals(6 * PAGE_SIZE, index.getPositionForSection(3));
+    assertEquals("C", controller.getSectionName(5 * PAGE_SIZE + 3));
+  }
+
+}
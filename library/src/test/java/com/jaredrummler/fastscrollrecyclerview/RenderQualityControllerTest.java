@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RenderQualityControllerTest {
+
+  private static final long FRAME = 16000000L;
+  private static final long LATE_FRAME = 3 * FRAME;
+
+  private final List<Integer> changes = new ArrayList<>();
+  private RenderQualityController controller;
+
+  @Before
+  public void setUp() {
+    controller = new RenderQualityController();
+    controller.setFrameNanos(FRAME);
+    controller.addOnQualityChangedListener(new RenderQualityController.OnQualityChangedListener() {
+
+      @Override public void onQualityChanged(int quality) {
+        changes.add(quality);
+      }
+    });
+  }
+
+  @Test
+  public void lateFrames_lowerTheQualityOneLevelAtATime() {
+    frames(LATE_FRAME, RenderQualityController.DEFAULT_DEGRADE_FRAMES - 1);
+    assertEquals(RenderQualityController.QUALITY_FULL, controller.getQuality());
+
+    frames(LATE_FRAME, 1);
+    assertEquals(RenderQualityController.QUALITY_REDUCED, controller.getQuality());
+
+    // The window starts over at every level
+    frames(LATE_FRAME, RenderQualityController.DEFAULT_DEGRADE_FRAMES);
+    assertEquals(RenderQualityController.QUALITY_MINIMAL, controller.getQuality());
+
+    frames(LATE_FRAME, RenderQualityController.WINDOW_FRAMES);
+    assertEquals(RenderQualityController.QUALITY_MINIMAL, controller.getQuality());
+    assertEquals(Arrays.asList(RenderQualityController.QUALITY_REDUCED, RenderQualityController.QUALITY_MINIMAL),
+        changes);
+  }
+
+  @Test
+  public void lateFrames_outsideTheWindowAreForgotten() {
+    for (int i = 0; i < 10; i++) {
+      frames(LATE_FRAME, 1);
+      frames(FRAME, 9);
+    }
+
+    assertEquals(RenderQualityController.QUALITY_FULL, controller.getQuality());
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  public void onTimeFrames_restoreTheQuality() {
+    frames(LATE_FRAME, RenderQualityController.DEFAULT_DEGRADE_FRAMES);
+
+    frames(FRAME, RenderQualityController.DEFAULT_RESTORE_FRAMES - 1);
+    frames(LATE_FRAME, 1);
+    frames(FRAME, RenderQualityController.DEFAULT_RESTORE_FRAMES - 1);
+    assertEquals(RenderQualityController.QUALITY_REDUCED, controller.getQuality());
+
+    frames(FRAME, 1);
+    assertEquals(RenderQualityController.QUALITY_FULL, controller.getQuality());
+  }
+
+  @Test
+  public void setLowestQuality_limitsAndRaisesTheQuality() {
+    frames(LATE_FRAME, 2 * RenderQualityController.DEFAULT_DEGRADE_FRAMES);
+    assertEquals(RenderQualityController.QUALITY_MINIMAL, controller.getQuality());
+
+    controller.setLowestQuality(RenderQualityController.QUALITY_REDUCED);
+    assertEquals(RenderQualityController.QUALITY_REDUCED, controller.getQuality());
+
+    frames(LATE_FRAME, RenderQualityController.WINDOW_FRAMES);
+    assertEquals(RenderQualityController.QUALITY_REDUCED, controller.getQuality());
+
+    controller.setLowestQuality(RenderQualityController.QUALITY_FULL);
+    frames(LATE_FRAME, RenderQualityController.WINDOW_FRAMES);
+    assertEquals(RenderQualityController.QUALITY_FULL, controller.getQuality());
+  }
+
+  @Test
+  public void onFrame_ignoresPausesBetweenGestures() {
+    frames(250000001L, RenderQualityController.WINDOW_FRAMES);
+    frames(0, RenderQualityController.WINDOW_FRAMES);
+
+    assertEquals(RenderQualityController.QUALITY_FULL, controller.getQuality());
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  public void setJankFactor_movesTheLateThreshold() {
+    controller.setJankFactor(4f);
+    frames(LATE_FRAME, RenderQualityController.WINDOW_FRAMES);
+
+    assertEquals(RenderQualityController.QUALITY_FULL, controller.getQuality());
+  }
+
+  private void frames(long intervalNanos, int count) {
+    for (int i = 0; i < count; i++) {
+      controller.onFrame(intervalNanos);
+    }
+  }
+
+}
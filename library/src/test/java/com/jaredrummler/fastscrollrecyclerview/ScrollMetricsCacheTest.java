@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ScrollMetricsCacheTest {
+
+  private static final int ENTRY_BYTES = 80;
+
+  private final ScrollMetricsCache cache = new ScrollMetricsCache(3 * ENTRY_BYTES);
+
+  @Test
+  public void put_keepsTheAveragesOfAllRowsAndOfEachViewType() {
+    cache.put(1, 0, 100);
+    cache.put(2, 0, 50);
+    cache.put(3, 1, 30);
+
+    assertEquals(3, cache.getCount());
+    assertEquals(60, cache.getAverageHeight());
+    assertEquals(75, cache.getAverageHeight(0));
+    assertEquals(30, cache.getAverageHeight(1));
+    assertEquals(-1, cache.getAverageHeight(2));
+    assertEquals(3 * ENTRY_BYTES, cache.getRetainedBytes());
+  }
+
+  @Test
+  public void put_replacesTheHeightOfAnId() {
+    cache.put(1, 0, 100);
+    cache.put(1, 1, 40);
+
+    assertEquals(1, cache.getCount());
+    assertEquals(40, cache.getAverageHeight());
+    assertEquals(-1, cache.getAverageHeight(0));
+    assertEquals(40, cache.getHeight(1, 1));
+    assertEquals(-1, cache.getHeight(1, 0));
+  }
+
+  @Test
+  public void put_ignoresEmptyRows() {
+    cache.put(1, 0, 0);
+
+    assertEquals(0, cache.getCount());
+    assertEquals(-1, cache.getAverageHeight());
+  }
+
+  @Test
+  public void eviction_removesTheLeastRecentlyUsedRowsFromTheAverages() {
+    cache.put(1, 0, 100);
+    cache.put(2, 0, 50);
+    cache.put(3, 1, 30);
+    cache.getHeight(1, 0);
+
+    cache.put(4, 1, 10);
+
+    assertEquals(3, cache.getCount());
+    assertEquals(-1, cache.getHeight(2, 0));
+    assertEquals(100, cache.getAverageHeight(0));
+    assertEquals(20, cache.getAverageHeight(1));
+    assertEquals(47, cache.getAverageHeight());
+  }
+
+  @Test
+  public void trimToSize_keepsTheAccountingInStep() {
+    cache.put(1, 0, 100);
+    cache.put(2, 0, 50);
+    cache.put(3, 1, 30);
+
+    cache.trimToSize(ENTRY_BYTES);
+
+    assertEquals(1, cache.getCount());
+    assertEquals(30, cache.getAverageHeight());
+    assertEquals(-1, cache.getAverageHeight(0));
+    assertEquals(ENTRY_BYTES, cache.getRetainedBytes());
+  }
+
+  @Test
+  public void clear_resetsTheCounts() {
+    cache.put(1, 0, 100);
+    cache.getHeight(1, 0);
+    cache.getHeight(2, 0);
+
+    cache.clear();
+
+    assertEquals(0, cache.getCount());
+    assertEquals(-1, cache.getAverageHeight());
+    assertEquals(0, cache.getRetainedBytes());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.content.Context;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class ScrollMetricsProviderTest {
+
+  private static final int WIDTH = 480;
+  private static final int HEIGHT = 1000;
+
+  private Context context;
+  private FastScrollRecyclerView recyclerView;
+
+  @Before
+  public void setUp() {
+    context = RuntimeEnvironment.application;
+    recyclerView = new FastScrollRecyclerView(context);
+  }
+
+  @Test
+  public void setLayoutManager_resolvesTheBuiltInProvider() {
+    recyclerView.setLayoutManager(new LinearLayoutManager(context));
+    assertTrue(recyclerView.getScrollMetricsProvider() instanceof LinearScrollMetrics);
+
+    recyclerView.setLayoutManager(new GridLayoutManager(context, 3));
+    assertTrue(recyclerView.getScrollMetricsProvider() instanceof GridScrollMetrics);
+
+    recyclerView.setLayoutManager(new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL));
+    assertTrue(recyclerView.getScrollMetricsProvider() instanceof StaggeredGridScrollMetrics);
+
+    recyclerView.setLayoutManager(new PlainLayoutManager());
+    assertTrue(recyclerView.getScrollMetricsProvider() instanceof ComputedScrollMetrics);
+
+    ProvidingLayoutManager providing = new ProvidingLayoutManager();
+    recyclerView.setLayoutManager(providing);
+    assertSame(providing, recyclerView.getScrollMetricsProvider());
+  }
+
+  @Test
+  public void setScrollMetricsProvider_survivesNewLayoutManagers() {
+    FakeProvider provider = new FakeProvider();
+    recyclerView.setScrollMetricsProvider(provider);
+    recyclerView.setLayoutManager(new LinearLayoutManager(context));
+    assertSame(provider, recyclerView.getScrollMetricsProvider());
+
+    recyclerView.setScrollMetricsProvider(null);
+    assertTrue(recyclerView.getScrollMetricsProvider() instanceof LinearScrollMetrics);
+  }
+
+  @Test
+  public void scrollToPositionAtProgress_jumpsThroughTheProvider() {
+    FakeProvider provider = new FakeProvider();
+    recyclerView.setLayoutManager(new LinearLayoutManager(context));
+    recyclerView.setScrollMetricsProvider(provider);
+    recyclerView.setAdapter(new ItemAdapter());
+    recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+    recyclerView.layout(0, 0, WIDTH, HEIGHT);
+
+    recyclerView.scrollToPositionAtProgress(0.5f);
+
+    // Half of the range that can be scrolled, the popup names the row at half of the visible area below it
+    assertEquals(Arrays.asList(4500), provider.scrolledOffsets);
+    assertEquals(50, recyclerView.getScrubPosition());
+  }
+
+  private static class FakeProvider implements ScrollMetricsProvider {
+
+    final List<Integer> scrolledOffsets = new ArrayList<>();
+
+    @Override public int getScrollOffset() {
+      return 0;
+    }
+
+    @Override public int getScrollRange() {
+      return 10000;
+    }
+
+    @Override public int getPositionAtOffset(int offset) {
+      return offset / 100;
+    }
+
+    @Override public void scrollToOffset(int offset) {
+      scrolledOffsets.add(offset);
+    }
+  }
+
+  private static class PlainLayoutManager extends RecyclerView.LayoutManager {
+
+    @Override public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+      return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
+  }
+
+  private static class ProvidingLayoutManager extends PlainLayoutManager implements ScrollMetricsProvider {
+
+    @Override public int getScrollOffset() {
+      return -1;
+    }
+
+    @Override public int getScrollRange() {
+      return 0;
+    }
+
+    @Override public int getPositionAtOffset(int offset) {
+      return 0;
+    }
+
+    @Override public void scrollToOffset(int offset) {
+    }
+  }
+
+  private static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      View view = new View(parent.getContext());
+      view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 100));
+      return new RecyclerView.ViewHolder(view) {
+      };
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return 100;
+    }
+  }
+
+}
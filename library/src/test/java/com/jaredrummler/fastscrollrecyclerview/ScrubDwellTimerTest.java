@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScrubDwellTimerTest {
+
+  private static final long DWELL = 300;
+
+  private final ScrubDwellTimer timer = new ScrubDwellTimer();
+  private final List<Long> commits = new ArrayList<>();
+  private long checkTime = -1; // when the posted check runs, like a handler
+
+  @Test
+  public void resting_commitsOnceAfterTheDwellTime() {
+    move(0);
+    runUntil(299);
+    assertTrue(commits.isEmpty());
+
+    runUntil(1000);
+    assertEquals(Arrays.asList(300L), commits);
+  }
+
+  @Test
+  public void moving_postsOneCheckAndWaitsForTheWholeDwellTime() {
+    assertEquals(DWELL, timer.onMove(0, DWELL));
+    checkTime = DWELL;
+    for (long time = 50; time <= 500; time += 50) {
+      assertEquals(ScrubDwellTimer.NONE, timer.onMove(time, DWELL));
+      runUntil(time);
+    }
+    assertTrue(commits.isEmpty());
+
+    runUntil(2000);
+    assertEquals(Arrays.asList(800L), commits);
+  }
+
+  @Test
+  public void movingAfterACommit_commitsAgain() {
+    move(0);
+    runUntil(400);
+    move(500);
+    runUntil(1000);
+
+    assertEquals(Arrays.asList(300L, 800L), commits);
+  }
+
+  @Test
+  public void noDwellTime_neverCommits() {
+    assertEquals(ScrubDwellTimer.NONE, timer.onMove(0, 0));
+    assertFalse(timer.cancel());
+  }
+
+  @Test
+  public void cancel_removesThePostedCheck() {
+    move(0);
+
+    assertTrue(timer.cancel());
+    assertFalse(timer.cancel());
+    // The next scrub posts a new check
+    assertEquals(DWELL, timer.onMove(1000, DWELL));
+  }
+
+  private void move(long now) {
+    long delay = timer.onMove(now, DWELL);
+    if (delay != ScrubDwellTimer.NONE) {
+      checkTime = now + delay;
+    }
+  }
+
+  private void runUntil(long now) {
+    while (checkTime >= 0 && checkTime <= now) {
+      long time = checkTime;
+      checkTime = -1;
+      long wait = timer.onCheck(time, DWELL);
+      if (wait > 0) {
+        checkTime = time + wait;
+      } else {
+        commits.add(time);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SectionIndexPatchTest {
+
+  /**
+   * Each case is the initial items, one letter per item holding its section name, and the updates applied to them:
+   * {@code i<position>:<letters>} inserts, {@code r<position>:<count>} removes, {@code c<position>:<letters>}
+   * changes and {@code m<from>:<to>} moves.
+   */
+  private static final String[][] CASES = {
+      {"AABBCC", "i0:X"},
+      {"AABBCC", "i6:X"},
+      {"AABBCC", "i1:X"},
+      {"AABBCC", "i2:B"},
+      {"AABBCC", "i2:A"},
+      {"AABBCC", "i3:BB"},
+      {"AABBCC", "r0:2"},
+      {"AABBCC", "r2:2"},
+      {"AABBCC", "r1:4"},
+      {"AABBCC", "r4:2"},
+      {"AABBCC", "r0:6"},
+      {"ABA", "r1:1"},
+      {"AABBCC", "c2:AA"},
+      {"AABBCC", "c3:X"},
+      {"AABBCC", "c0:CCCCCC"},
+      {"AABBCC", "m0:5"},
+      {"AABBCC", "m5:0"},
+      {"ABC", "m1:2"},
+      {"AABBCC", "m2:3"},
+      {"", "i0:ABC"},
+      {"AABBCC", "i3:X", "r0:3", "i1:YY", "m0:4"},
+      {"AABBCC", "r2:2", "i2:B", "c0:C", "m4:1", "r0:1"},
+  };
+
+  @Test
+  public void replaceAndMove_matchAFreshScan() {
+    for (String[] testCase : CASES) {
+      List<String> items = toItems(testCase[0]);
+      SectionIndexPatch patch = new SectionIndexPatch(SectionIndex.build(adapter(items, null), items.size()));
+      for (int i = 1; i < testCase.length; i++) {
+        apply(patch, items, testCase[i]);
+      }
+
+      String message = Arrays.toString(testCase);
+      SectionIndex patched = patch.resolve(adapter(items, null));
+      SectionIndex scanned = SectionIndex.build(adapter(items, null), items.size());
+      assertEquals(message, scanned.getItemCount(), patched.getItemCount());
+      assertEquals(message, scanned.getSectionCount(), patched.getSectionCount());
+      for (int section = 0; section < scanned.getSectionCount(); section++) {
+        assertEquals(message, scanned.getSectionName(section), patched.getSectionName(section));
+        assertEquals(message, scanned.getPositionForSection(section), patched.getPositionForSection(section));
+      }
+    }
+  }
+
+  @Test
+  public void randomUpdates_matchAFreshScan() {
+    Random random = new Random(42);
+    List<String> items = toItems("AAABBCCCCDEEF");
+    SectionIndexPatch patch = new SectionIndexPatch(SectionIndex.build(adapter(items, null), items.size()));
+    for (int i = 0; i < 500; i++) {
+      String letters = "ABCDEF".substring(random.nextInt(5)).substring(0, 1 + random.nextInt(2));
+      int size = items.size();
+      switch (random.nextInt(4)) {
+        case 0:
+          apply(patch, items, "i" + random.nextInt(size + 1) + ":" + letters);
+          break;
+        case 1:
+          if (size > 0) {
+            int position = random.nextInt(size);
+            apply(patch, items, "r" + position + ":" + (1 + random.nextInt(Math.min(3, size - position))));
+          }
+          break;
+        case 2:
+          if (size > 1) {
+            apply(patch, items, "c" + random.nextInt(size - 1) + ":" + letters);
+          }
+          break;
+        default:
+          if (size > 0) {
+            apply(patch, items, "m" + random.nextInt(size) + ":" + random.nextInt(size));
+          }
+          break;
+      }
+    }
+
+    SectionIndex patched = patch.resolve(adapter(items, null));
+    SectionIndex scanned = SectionIndex.build(adapter(items, null), items.size());
+    assertEquals(scanned.getSectionCount(), patched.getSectionCount());
+    for (int section = 0; section < scanned.getSectionCount(); section++) {
+      assertEquals(scanned.getSectionName(section), patched.getSectionName(section));
+      assertEquals(scanned.getPositionForSection(section), patched.getPositionForSection(section));
+    }
+  }
+
+  @Test
+  public void resolve_onlyAsksForInsertedAndChangedItems() {
+    List<String> items = toItems("AAABBBCCC");
+    SectionIndexPatch patch = new SectionIndexPatch(SectionIndex.build(adapter(items, null), items.size()));
+    apply(patch, items, "i4:XX");
+    apply(patch, items, "c9:C");
+    apply(patch, items, "m0:10");
+
+    List<Integer> asked = new ArrayList<>();
+    patch.resolve(adapter(items, asked));
+
+    assertEquals(Arrays.asList(3, 4, 8), asked);
+  }
+
+  private static void apply(SectionIndexPatch patch, List<String> items, String update) {
+    int colon = update.indexOf(':');
+    int position = Integer.parseInt(update.substring(1, colon));
+    String argument = update.substring(colon + 1);
+    switch (update.charAt(0)) {
+      case 'i':
+        items.addAll(position, toItems(argument));
+        patch.replace(position, 0, argument.length());
+        break;
+      case 'r':
+        int count = Integer.parseInt(argument);
+        items.subList(position, position + count).clear();
+        patch.replace(position, count, 0);
+        break;
+      case 'c':
+        for (int i = 0; i < argument.length(); i++) {
+          items.set(position + i, argument.substring(i, i + 1));
+        }
+        patch.replace(position, argument.length(), argument.length());
+        break;
+      case 'm':
+        int toPosition = Integer.parseInt(argument);
+        items.add(toPosition, items.remove(position));
+        patch.move(position, toPosition);
+        break;
+      default:
+        throw new IllegalArgumentException(update);
+    }
+  }
+
+  private static List<String> toItems(String letters) {
+    List<String> items = new ArrayList<>();
+    for (int i = 0; i < letters.length(); i++) {
+      items.add(letters.substring(i, i + 1));
+    }
+    return items;
+  }
+
+  private static FastScrollRecyclerView.SectionedAdapter adapter(final List<String> items, final List<Integer> asked) {
+    return new FastScrollRecyclerView.SectionedAdapter() {
+
+      @NonNull @Override public String getSectionName(int position) {
+        if (asked != null) {
+          asked.add(position);
+        }
+        return items.get(position);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class SectionIndexScanTest {
+
+  private final List<SectionIndex> scanned = new ArrayList<>();
+
+  @Test
+  public void queueIdle_scansInSlicesAndMatchesAFullBuild() {
+    ItemAdapter adapter = new ItemAdapter(2000);
+    adapter.busyNanos = 20000; // 40ms in total, well over one slice
+    SectionIndexScan scan = new SectionIndexScan(adapter, adapter.itemCount, new SectionIndexScan.Callback() {
+
+      @Override public void onSectionIndexScanned(SectionIndexScan scan, SectionIndex index) {
+        scanned.add(index);
+      }
+    });
+
+    assertTrue(scan.queueIdle());
+    assertTrue(scan.getScannedCount() < adapter.itemCount);
+    assertTrue(scanned.isEmpty());
+
+    int slices = 1;
+    while (scan.queueIdle()) {
+      slices++;
+    }
+    assertTrue(slices > 1);
+    assertEquals(1, scanned.size());
+    assertEquals(adapter.itemCount, adapter.askedCount);
+
+    adapter.busyNanos = 0;
+    SectionIndex built = SectionIndex.build(adapter, adapter.itemCount);
+    SectionIndex index = scanned.get(0);
+    assertEquals(built.getSectionCount(), index.getSectionCount());
+    for (int section = 0; section < built.getSectionCount(); section++) {
+      assertEquals(built.getSectionName(section), index.getSectionName(section));
+      assertEquals(built.getPositionForSection(section), index.getPositionForSection(section));
+    }
+  }
+
+  @Test
+  public void peekSectionIndex_scansLargeAdaptersInIdleTime() {
+    FastScrollRecyclerView recyclerView = newRecyclerView();
+    ItemAdapter adapter = new ItemAdapter(100000);
+    recyclerView.setAdapter(adapter);
+
+    assertSame(SectionIndex.EMPTY, recyclerView.peekSectionIndex());
+    assertEquals(0, adapter.askedCount);
+    assertEquals(1, recyclerView.getIdleTaskScheduler().getPendingTaskCount());
+
+    recyclerView.getIdleTaskScheduler().setBudget(1000);
+    while (recyclerView.getIdleTaskScheduler().queueIdle()) {
+      // Run the slices the looper would run while idle
+    }
+    assertEquals(100, recyclerView.peekSectionIndex().getSectionCount());
+    assertEquals(adapter.itemCount, adapter.askedCount);
+  }
+
+  @Test
+  public void peekSectionIndex_scansSmallAdaptersRightAway() {
+    FastScrollRecyclerView recyclerView = newRecyclerView();
+    recyclerView.setAdapter(new ItemAdapter(1000));
+
+    assertEquals(1, recyclerView.peekSectionIndex().getSectionCount());
+    assertEquals(0, recyclerView.getIdleTaskScheduler().getPendingTaskCount());
+  }
+
+  @Test
+  public void dataChange_cancelsTheScan() {
+    FastScrollRecyclerView recyclerView = newRecyclerView();
+    ItemAdapter adapter = new ItemAdapter(100000);
+    recyclerView.setAdapter(adapter);
+    recyclerView.peekSectionIndex();
+
+    adapter.notifyDataSetChanged();
+
+    assertFalse(recyclerView.getIdleTaskScheduler().queueIdle());
+    assertEquals(0, adapter.askedCount);
+  }
+
+  private static FastScrollRecyclerView newRecyclerView() {
+    FastScrollRecyclerView recyclerView = new FastScrollRecyclerView(RuntimeEnvironment.application);
+    recyclerView.setLayoutManager(new LinearLayoutManager(RuntimeEnvironment.application));
+    return recyclerView;
+  }
+
+  private static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+      implements FastScrollRecyclerView.SectionedAdapter {
+
+    final int itemCount;
+    long busyNanos;
+    int askedCount;
+
+    ItemAdapter(int itemCount) {
+      this.itemCount = itemCount;
+    }
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new RecyclerView.ViewHolder(new View(parent.getContext())) {
+      };
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return itemCount;
+    }
+
+    @NonNull @Override public String getSectionName(int position) {
+      askedCount++;
+      long end = System.nanoTime() + busyNanos;
+      while (System.nanoTime() < end) {
+        // Simulates a slow lookup
+      }
+      return String.valueOf(position / 1000);
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.widget.SectionIndexer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SectionIndexTest {
+
+  private static final String[] NAMES = {"Alpha", "Apple", "Beta", "Charlie", "Cherry", "Chip"};
+
+  @Test
+  public void build_foldsConsecutiveSections() {
+    SectionIndex index = SectionIndex.build(new FastScrollRecyclerView.SectionedAdapter() {
+
+      @NonNull @Override public String getSectionName(int position) {
+        return NAMES[position].substring(0, 1);
+      }
+    }, NAMES.length);
+
+    assertEquals(3, index.getSectionCount());
+    assertEquals(0, index.getPositionForSection(0));
+    assertEquals(2, index.getPositionForSection(1));
+    assertEquals(3, index.getPositionForSection(2));
+    assertEquals("C", index.getSectionNameForPosition(5));
+  }
+
+  @Test
+  public void fromCursor_usesGroupedCounts() {
+    SQLiteDatabase db = createItemsDatabase();
+    SectionIndex index;
+    try {
+      Cursor cursor = db.rawQuery("SELECT substr(name, 1, 1) AS section, COUNT(*) AS size FROM items "
+          + "GROUP BY section ORDER BY section", null);
+      try {
+        index = SectionIndex.fromCursor(cursor, "section", "size");
+      } finally {
+        cursor.close();
+      }
+    } finally {
+      db.close();
+    }
+
+    assertEquals(3, index.getSectionCount());
+    assertEquals(NAMES.length, index.getItemCount());
+    assertEquals("A", index.getSectionNameForPosition(1));
+    assertEquals("B", index.getSectionNameForPosition(2));
+    assertEquals("C", index.getSectionNameForPosition(3));
+    assertEquals(3, index.getPositionForSection(2));
+  }
+
+  @Test
+  public void fromSectionIndexer_resolvesEmptySectionsToNextSection() {
+    final String[] sections = {"A", "B", "C", "D"};
+    final int[] starts = {0, 2, 2, 4};
+    SectionIndex index = SectionIndex.fromSectionIndexer(new SectionIndexer() {
+
+      @Override public Object[] getSections() {
+        return sections;
+      }
+
+      @Override public int getPositionForSection(int section) {
+        return starts[section];
+      }
+
+      @Override public int getSectionForPosition(int position) {
+        throw new AssertionError("per-position lookups are not expected");
+      }
+    }, 6);
+
+    assertEquals(Arrays.asList(sections).size(), index.getSectionCount());
+    assertEquals("A", index.getSectionNameForPosition(1));
+    assertEquals("C", index.getSectionNameForPosition(2));
+    assertEquals("D", index.getSectionNameForPosition(5));
+  }
+
+  private static SQLiteDatabase createItemsDatabase() {
+    SQLiteDatabase db = SQLiteDatabase.create(null);
+    db.execSQL("CREATE TABLE items (_id INTEGER PRIMARY KEY, name TEXT)");
+    for (String name : NAMES) {
+      db.execSQL("INSERT INTO items (name) VALUES (?)", new Object[]{name});
+    }
+    return db;
+  }
+
+}
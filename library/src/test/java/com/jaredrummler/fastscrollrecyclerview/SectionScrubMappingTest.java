@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SectionScrubMappingTest {
+
+  private static final float DELTA = 1e-4f;
+
+  // "A" holds 90 of the 100 rows, "B" is empty
+  private static final SectionIndex INDEX = new SectionIndex(new String[]{"A", "B", "C", "D"},
+      new int[]{0, 90, 90, 95}, 100);
+
+  private final SectionScrubMapping mapping = new SectionScrubMapping(INDEX);
+
+  @Test
+  public void emptySections_getNoShareOfTheTrack() {
+    assertEquals(3, mapping.getSectionCount());
+    assertTrue(mapping.isFor(INDEX));
+    assertFalse(mapping.isFor(SectionIndex.EMPTY));
+  }
+
+  @Test
+  public void getPositionForProgress_givesEverySectionTheSameShare() {
+    assertEquals(0, mapping.getPositionForProgress(0f));
+    assertEquals(45, mapping.getPositionForProgress(1 / 6f));
+    assertEquals(92, mapping.getPositionForProgress(0.5f));
+    assertEquals(99, mapping.getPositionForProgress(1f));
+    assertEquals(0, mapping.getPositionForProgress(-1f));
+    assertEquals(99, mapping.getPositionForProgress(2f));
+  }
+
+  @Test
+  public void getProgressForPosition_isTheInverse() {
+    assertEquals(0f, mapping.getProgressForPosition(0), DELTA);
+    assertEquals(1 / 3f, mapping.getProgressForPosition(90), DELTA);
+    assertEquals(2 / 3f, mapping.getProgressForPosition(95), DELTA);
+    assertEquals(1f, mapping.getProgressForPosition(100), DELTA);
+    for (int position = 0; position < 100; position++) {
+      assertEquals(position, mapping.getPositionForProgress(mapping.getProgressForPosition(position + 0.5f)));
+    }
+  }
+
+  @Test
+  public void emptyIndex_mapsToTheFirstPosition() {
+    SectionScrubMapping empty = new SectionScrubMapping(SectionIndex.EMPTY);
+
+    assertEquals(0, empty.getSectionCount());
+    assertEquals(0, empty.getPositionForProgress(0.5f));
+    assertEquals(0f, empty.getProgressForPosition(3), DELTA);
+  }
+
+}
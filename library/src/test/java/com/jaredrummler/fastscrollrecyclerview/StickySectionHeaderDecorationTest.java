@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class StickySectionHeaderDecorationTest {
+
+  private static final int ITEM_HEIGHT = 100;
+  private static final int HEADER_HEIGHT = 80;
+
+  private final List<String> drawnHeaders = new ArrayList<>();
+  private final RecordingCanvas canvas = new RecordingCanvas();
+  private FastScrollRecyclerView recyclerView;
+  private StickySectionHeaderDecoration decoration;
+
+  @Before
+  public void setUp() {
+    recyclerView = new FastScrollRecyclerView(RuntimeEnvironment.application);
+    recyclerView.setLayoutManager(new LinearLayoutManager(RuntimeEnvironment.application));
+    recyclerView.setAdapter(new ItemAdapter());
+    layout();
+
+    decoration = new StickySectionHeaderDecoration(recyclerView) {
+
+      @Override protected void onDrawHeader(Canvas canvas, String sectionName, int width, int height) {
+        drawnHeaders.add(sectionName);
+      }
+    };
+    decoration.setHeaderHeight(HEADER_HEIGHT);
+  }
+
+  @Test
+  public void onDrawOver_drawsEachHeaderOnce() {
+    decoration.onDrawOver(canvas, recyclerView, null);
+    decoration.onDrawOver(canvas, recyclerView, null);
+
+    assertEquals(Arrays.asList("0"), drawnHeaders);
+    assertEquals(1, decoration.getHitCount());
+    assertEquals(0, canvas.lastTop, 0f);
+  }
+
+  @Test
+  public void onDrawOver_letsTheNextHeaderPushThePinnedOne() {
+    // Row 10 starts section "1" and is 50px below the top
+    scrollTo(950);
+    decoration.onDrawOver(canvas, recyclerView, null);
+
+    assertEquals(Arrays.asList("0"), drawnHeaders);
+    assertEquals(50 - HEADER_HEIGHT, canvas.lastTop, 0f);
+
+    scrollTo(1000);
+    decoration.onDrawOver(canvas, recyclerView, null);
+
+    assertEquals(Arrays.asList("0", "1"), drawnHeaders);
+    assertEquals(0, canvas.lastTop, 0f);
+  }
+
+  @Test
+  public void evictedBitmaps_areReusedForNewHeaders() {
+    decoration.onDrawOver(canvas, recyclerView, null);
+    Bitmap first = canvas.lastBitmap;
+
+    // The cache holds eight headers, "8" evicts "0" and "9" is drawn into its bitmap
+    for (int section = 1; section < 10; section++) {
+      scrollTo(section * 10 * ITEM_HEIGHT);
+      decoration.onDrawOver(canvas, recyclerView, null);
+    }
+
+    assertEquals(10, drawnHeaders.size());
+    assertSame(first, canvas.lastBitmap);
+  }
+
+  @Test
+  public void trimToSize_releasesTheBitmaps() {
+    decoration.onDrawOver(canvas, recyclerView, null);
+    long bitmapBytes = (long) canvas.lastBitmap.getRowBytes() * HEADER_HEIGHT;
+    scrollTo(10 * ITEM_HEIGHT);
+    decoration.onDrawOver(canvas, recyclerView, null);
+    assertEquals(2 * bitmapBytes, decoration.getRetainedBytes());
+
+    decoration.trimToSize(1);
+    assertEquals(bitmapBytes, decoration.getRetainedBytes());
+
+    decoration.invalidateHeaders();
+    assertEquals(0, decoration.getRetainedBytes());
+  }
+
+  private void scrollTo(int offset) {
+    ((LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(offset / ITEM_HEIGHT,
+        -(offset % ITEM_HEIGHT));
+    layout();
+  }
+
+  private void layout() {
+    recyclerView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(10 * ITEM_HEIGHT, View.MeasureSpec.EXACTLY));
+    recyclerView.layout(0, 0, 480, 10 * ITEM_HEIGHT);
+  }
+
+  private static class RecordingCanvas extends Canvas {
+
+    Bitmap lastBitmap;
+    float lastTop;
+
+    @Override public void drawBitmap(@NonNull Bitmap bitmap, float left, float top, Paint paint) {
+      lastBitmap = bitmap;
+      lastTop = top;
+    }
+  }
+
+  private static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+      implements FastScrollRecyclerView.SectionedAdapter {
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      View view = new View(parent.getContext());
+      view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+      return new RecyclerView.ViewHolder(view) {
+      };
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return 100;
+    }
+
+    @NonNull @Override public String getSectionName(int position) {
+      return String.valueOf(position / 10);
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TrimCachesTest {
+
+  private static final int ROWS = 100;
+
+  private FastScrollRecyclerView recyclerView;
+  private ScrollMetricsCache cache;
+
+  @Before
+  public void setUp() {
+    recyclerView = new FastScrollRecyclerView(RuntimeEnvironment.application);
+    // Room for far more rows than are put, the cache stays well below half full
+    cache = new ScrollMetricsCache(ScrollMetricsCache.DEFAULT_MAX_BYTES);
+    recyclerView.setScrollMetricsCache(cache);
+    fill();
+  }
+
+  @Test
+  public void runningModerate_halvesAPartlyFilledCache() {
+    recyclerView.trimCaches(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+    assertEquals(ROWS / 2, cache.getCount());
+  }
+
+  @Test
+  public void runningLow_keepsAQuarterOfAPartlyFilledCache() {
+    recyclerView.trimCaches(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+    assertEquals(ROWS / 4, cache.getCount());
+  }
+
+  @Test
+  public void background_clearsTheCache() {
+    recyclerView.trimCaches(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+    assertEquals(0, cache.getCount());
+    assertEquals(0, cache.getRetainedBytes());
+  }
+
+  private void fill() {
+    for (int id = 0; id < ROWS; id++) {
+      cache.put(id, 0, 100);
+    }
+  }
+
+}
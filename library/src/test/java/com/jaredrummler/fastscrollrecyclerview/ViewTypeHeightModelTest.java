@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2016 Jared Rummler <jared.rummler@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.jaredrummler.fastscrollrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ViewTypeHeightModelTest {
+
+  private static final int FALLBACK_HEIGHT = 10;
+
+  private TypeAdapter adapter;
+  private ViewTypeHeightModel model;
+
+  @Before
+  public void setUp() {
+    // Large enough that a few updates are patched in rather than indexed again
+    adapter = new TypeAdapter();
+    for (int i = 0; i < 10; i++) {
+      adapter.insert(adapter.types.size(), 0, 1, 1, 1, 0, 2, 2, 1, 1, 0);
+    }
+    adapter.insert(adapter.types.size(), 3);
+    model = new ViewTypeHeightModel();
+    assertTrue(model.update(adapter));
+    for (int viewType = 0; viewType < 4; viewType++) {
+      int position = adapter.types.indexOf(viewType);
+      model.record(position, viewType, heightOf(viewType));
+    }
+  }
+
+  @Test
+  public void record_samplesEachPositionOnce() {
+    ViewTypeHeightModel model = new ViewTypeHeightModel();
+    model.record(0, 5, 100);
+    model.record(0, 5, 100);
+    model.record(0, 5, 100);
+    model.record(1, 5, 50);
+
+    assertEquals(75, model.getMeanHeight(5));
+    assertEquals(-1, model.getMeanHeight(6));
+  }
+
+  @Test
+  public void change_samplesTheRowsAgain() {
+    ViewTypeHeightModel model = new ViewTypeHeightModel();
+    model.record(0, 5, 100);
+    model.change(0, 1);
+    model.record(0, 5, 50);
+
+    assertEquals(75, model.getMeanHeight(5));
+  }
+
+  @Test
+  public void insert_onlyReadsTheViewTypesOfTheNewRows() {
+    adapter.insert(3, 3, 3);
+    model.insert(3, 2);
+    adapter.asked.clear();
+
+    assertTrue(model.update(adapter));
+
+    assertEquals(2, adapter.asked.size());
+    assertEquals(3, (int) adapter.asked.get(0));
+    assertEquals(4, (int) adapter.asked.get(1));
+    assertOffsetsMatchAFreshIndex();
+  }
+
+  @Test
+  public void removeAndMove_needNoPassOverTheAdapter() {
+    adapter.remove(2, 3);
+    model.remove(2, 3);
+    adapter.move(0, 4);
+    model.move(0, 4);
+    adapter.asked.clear();
+
+    assertTrue(model.update(adapter));
+
+    assertEquals(0, adapter.asked.size());
+    assertOffsetsMatchAFreshIndex();
+  }
+
+  @Test
+  public void move_keepsTheSampledHeight() {
+    model.move(0, 5);
+    model.record(5, 0, 1000);
+
+    assertEquals(heightOf(0), model.getMeanHeight(0));
+  }
+
+  @Test
+  public void randomUpdatesAcrossChunks_matchAFreshIndex() {
+    Random random = new Random(11);
+    for (int i = 0; i < 16 * ViewTypeHeightModel.CHUNK_SIZE; i++) {
+      adapter.insert(adapter.types.size(), random.nextInt(4));
+    }
+    assertTrue(model.update(adapter));
+    for (int i = 0; i < 40; i++) {
+      int size = adapter.types.size();
+      int count = 1 + random.nextInt(ViewTypeHeightModel.CHUNK_SIZE * 3 / 2);
+      if (random.nextBoolean() || size <= count) {
+        int position = random.nextInt(size + 1);
+        for (int j = 0; j < count; j++) {
+          adapter.insert(position + j, random.nextInt(4));
+        }
+        model.insert(position, count);
+      } else {
+        int position = random.nextInt(size - count);
+        adapter.remove(position, count);
+        model.remove(position, count);
+      }
+      // Few enough rows are pending that only they are read, a new pass would hide a broken patch
+      adapter.asked.clear();
+      assertTrue(model.update(adapter));
+      assertTrue(adapter.asked.size() <= count);
+      assertOffsetsMatchAFreshIndex();
+    }
+  }
+
+  @Test
+  public void randomUpdates_matchAFreshIndex() {
+    Random random = new Random(7);
+    for (int i = 0; i < 300; i++) {
+      int size = adapter.types.size();
+      switch (random.nextInt(4)) {
+        case 0: {
+          int position = random.nextInt(size + 1);
+          int count = 1 + random.nextInt(3);
+          for (int j = 0; j < count; j++) {
+            adapter.insert(position + j, random.nextInt(4));
+          }
+          model.insert(position, count);
+          break;
+        }
+        case 1:
+          if (size > 1) {
+            int position = random.nextInt(size - 1);
+            int count = 1 + random.nextInt(Math.min(2, size - 1 - position));
+            adapter.remove(position, count);
+            model.remove(position, count);
+          }
+          break;
+        case 2:
+          if (size > 0) {
+            int position = random.nextInt(size);
+            adapter.types.set(position, random.nextInt(4));
+            model.change(position, 1);
+          }
+          break;
+        default:
+          if (size > 0) {
+            int from = random.nextInt(size);
+            int to = random.nextInt(size);
+            adapter.move(from, to);
+            model.move(from, to);
+          }
+          break;
+      }
+      if (random.nextInt(5) == 0) {
+        assertTrue(model.update(adapter));
+        assertOffsetsMatchAFreshIndex();
+      }
+    }
+    assertTrue(model.update(adapter));
+    assertOffsetsMatchAFreshIndex();
+  }
+
+  private void assertOffsetsMatchAFreshIndex() {
+    long offset = 0;
+    for (int position = 0; position < adapter.types.size(); position++) {
+      assertEquals("position " + position, offset, model.getOffsetForPosition(position, FALLBACK_HEIGHT));
+      assertEquals("offset " + offset, position, model.getPositionForOffset(offset, FALLBACK_HEIGHT));
+      offset += heightOf(adapter.types.get(position));
+    }
+    assertEquals(offset, model.getTotalHeight(FALLBACK_HEIGHT));
+  }
+
+  private static int heightOf(int viewType) {
+    return 20 * (viewType + 1);
+  }
+
+  private static class TypeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    final List<Integer> types = new ArrayList<>();
+    final List<Integer> asked = new ArrayList<>();
+
+    TypeAdapter(int... types) {
+      for (int viewType : types) {
+        this.types.add(viewType);
+      }
+    }
+
+    void insert(int position, int... viewTypes) {
+      for (int i = 0; i < viewTypes.length; i++) {
+        types.add(position + i, viewTypes[i]);
+      }
+    }
+
+    void remove(int position, int count) {
+      types.subList(position, position + count).clear();
+    }
+
+    void move(int from, int to) {
+      types.add(to, types.remove(from));
+    }
+
+    @Override public int getItemViewType(int position) {
+      asked.add(position);
+      return types.get(position);
+    }
+
+    @Override public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+    }
+
+    @Override public int getItemCount() {
+      return types.size();
+    }
+  }
+
+}